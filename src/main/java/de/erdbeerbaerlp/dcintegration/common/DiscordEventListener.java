@@ -5,10 +5,15 @@ import de.erdbeerbaerlp.dcintegration.common.storage.CommandRegistry;
 import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
 import de.erdbeerbaerlp.dcintegration.common.storage.Localization;
 import de.erdbeerbaerlp.dcintegration.common.storage.linking.LinkManager;
+import de.erdbeerbaerlp.dcintegration.common.util.AttachmentRenderer;
+import de.erdbeerbaerlp.dcintegration.common.util.ComponentTemplate;
 import de.erdbeerbaerlp.dcintegration.common.util.ComponentUtils;
+import de.erdbeerbaerlp.dcintegration.common.util.IngameBroadcast;
+import de.erdbeerbaerlp.dcintegration.common.util.KeyedOrderedExecutor;
+import de.erdbeerbaerlp.dcintegration.common.util.MarkdownRenderer;
+import de.erdbeerbaerlp.dcintegration.common.util.MentionRewriter;
 import de.erdbeerbaerlp.dcintegration.common.util.MessageUtils;
 import de.erdbeerbaerlp.dcintegration.common.util.TextColors;
-import dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializer;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Message;
@@ -16,9 +21,16 @@ import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.channel.ChannelType;
 import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
-import net.dv8tion.jda.api.entities.sticker.Sticker;
 import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.channel.ChannelCreateEvent;
+import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
+import net.dv8tion.jda.api.events.channel.update.ChannelUpdateArchivedEvent;
+import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.GuildReadyEvent;
 import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleAddEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleRemoveEvent;
 import net.dv8tion.jda.api.events.guild.member.GuildMemberUpdateEvent;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
@@ -29,195 +41,285 @@ import net.dv8tion.jda.api.events.message.react.MessageReactionAddEvent;
 import net.dv8tion.jda.api.hooks.EventListener;
 import net.dv8tion.jda.api.requests.restaction.interactions.ReplyCallbackAction;
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.TextReplacementConfig;
 import net.kyori.adventure.text.event.ClickEvent;
 import net.kyori.adventure.text.event.HoverEvent;
 import net.kyori.adventure.text.format.Style;
 import net.kyori.adventure.text.format.TextColor;
-import net.kyori.adventure.text.format.TextDecoration;
-import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.apache.commons.lang3.ArrayUtils;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 class DiscordEventListener implements EventListener {
 
-    @Override
-    public void onEvent(final @NotNull GenericEvent event) {
-        final DiscordIntegration dc = DiscordIntegration.INSTANCE;
-        final JDA jda = dc.getJDA();
-        if (jda == null) return;
+    /**
+     * Handles one type of gateway event
+     */
+    private interface Handler<T extends GenericEvent> {
+        void handle(T event, DiscordIntegration dc, JDA jda);
+    }
 
-        if (event instanceof GuildMemberUpdateEvent) {
-            final GuildMemberUpdateEvent ev = (GuildMemberUpdateEvent) event;
-            DiscordIntegration.memberCache.replace(ev.getMember().getIdLong(), ev.getMember());
-        }
+    private static final Handler<GenericEvent> IGNORE = (event, dc, jda) -> {
+    };
 
-        if (event instanceof SlashCommandInteractionEvent) {
-            SlashCommandInteractionEvent ev = (SlashCommandInteractionEvent) event;
-            if (!Configuration.instance().commands.enabled) return;
-            if (ev.getChannelType().equals(ChannelType.TEXT)) {
-                if (CommandRegistry.registeredCMDs.containsKey(ev.getCommandId())) {
-                    final DiscordCommand cfCommand = CommandRegistry.registeredCMDs.get(ev.getCommandId());
-                    String cmd = cfCommand.getName();
-                    String args = ev.getOption("args") != null ? ev.getOption("args").getAsString() : "";
-                    processDiscordCommand(ev, ArrayUtils.addAll(new String[]{cmd}, args.split(" ")), ev.getChannel(), ev.getUser(), dc);
-                }
-            }
-        }
+    private final HashMap<Class<? extends GenericEvent>, Handler<GenericEvent>> handlers = new HashMap<>();
+    /**
+     * Handlers resolved for concrete event classes, including classes without a handler
+     */
+    private final ConcurrentHashMap<Class<?>, Handler<GenericEvent>> resolvedHandlers = new ConcurrentHashMap<>();
+    /**
+     * Runs heavy handlers off the JDA event thread, keeping the order of events per channel
+     */
+    private final KeyedOrderedExecutor inbound = new KeyedOrderedExecutor("DiscordIntegration Inbound", 2);
+    /**
+     * Runs reactions per channel, separate from {@link #inbound} so that a slow member lookup never holds back chat messages
+     */
+    private final KeyedOrderedExecutor reactions = new KeyedOrderedExecutor("DiscordIntegration Reactions", 1);
+    /**
+     * Sorted IDs of all channels messages and reactions get processed in
+     */
+    private volatile long[] relevantChannels = new long[0];
+    private volatile long chatInputChannel, chatOutputChannel;
 
-        // Handle button interactions (for config preview)
-        if (event instanceof ButtonInteractionEvent) {
-            ButtonInteractionEvent ev = (ButtonInteractionEvent) event;
-            String buttonId = ev.getComponentId();
-            
-            if (buttonId.startsWith("config_preview:")) {
-                handleConfigPreviewButton(ev, buttonId, dc);
-            }
-        }
+    /**
+     * Placeholders of the ingame chat formats, in the order passed to {@link ComponentTemplate#render(Component...)}
+     */
+    private static final String[] CHAT_PLACEHOLDERS = {"%user%", "%id%", "%msg%", "%ruser%", "%rmsg%"};
+    private volatile ComponentTemplate messageTemplate, replyTemplate;
+
+    DiscordEventListener() {
+        register(GuildMemberUpdateEvent.class, (ev, dc, jda) -> {
+            if (!dc.isMainGuild(ev.getGuild())) return;
+            dc.memberCache.update(ev.getMember());
+            dc.projectMember(ev.getMember());
+            dc.roleIndex.update(ev.getMember());
+            if (Configuration.instance().linking.whitelistMode) dc.whitelistIndex.memberChanged(ev.getMember());
+            dc.getPingIndex().discordNameChanged(ev.getMember().getIdLong(), ev.getMember().getEffectiveName());
+            MentionRewriter.invalidate(ev.getMember().getIdLong());
+        });
+        register(GuildMemberRoleAddEvent.class, (ev, dc, jda) -> {
+            if (!dc.isMainGuild(ev.getGuild())) return;
+            dc.roleIndex.rolesAdded(ev.getMember().getIdLong(), ev.getRoles());
+            if (Configuration.instance().linking.whitelistMode) dc.whitelistIndex.memberChanged(ev.getMember());
+        });
+        register(GuildMemberRoleRemoveEvent.class, (ev, dc, jda) -> {
+            if (!dc.isMainGuild(ev.getGuild())) return;
+            dc.roleIndex.rolesRemoved(ev.getMember().getIdLong(), ev.getRoles());
+            if (Configuration.instance().linking.whitelistMode) dc.whitelistIndex.memberChanged(ev.getMember());
+        });
+        register(SlashCommandInteractionEvent.class, this::onSlashCommand);
+        register(ButtonInteractionEvent.class, (ev, dc, jda) -> {
+            // Handle button interactions (for config preview)
+            if (ev.getComponentId().startsWith("config_preview:"))
+                handleConfigPreviewButton(ev, ev.getComponentId(), dc);
+        });
+        register(StringSelectInteractionEvent.class, (ev, dc, jda) -> {
+            // Handle string select interactions (for config preview)
+            if (ev.getComponentId().startsWith("config_preview:"))
+                handleConfigPreviewSelect(ev, ev.getComponentId());
+        });
+        register(ModalInteractionEvent.class, (ev, dc, jda) -> {
+            // Handle modal interactions (for config preview)
+            if (ev.getModalId().startsWith("config_preview:"))
+                handleConfigPreviewModal(ev, ev.getModalId());
+        });
+        register(MessageReactionAddEvent.class, this::onReactionAdd);
+        register(GuildMemberRemoveEvent.class, (ev, dc, jda) -> {
+            // With multiple servers or shards, only members of the default channel's server are relevant
+            if (!dc.isMainGuild(ev.getGuild())) return;
+            dc.memberCache.invalidate(ev.getUser().getIdLong());
+            dc.memberProjections.remove(ev.getUser().getIdLong());
+            dc.roleIndex.invalidate(ev.getUser().getIdLong());
+            if (Configuration.instance().linking.whitelistMode) dc.whitelistIndex.memberLeft(ev.getUser().getIdLong());
+            if (Configuration.instance().linking.unlinkOnLeave && LinkManager.isDiscordUserLinked(ev.getUser().getId()))
+                inbound.execute(ev.getGuild().getIdLong(), () -> LinkManager.unlinkPlayer(ev.getUser().getId()));
+        });
+        register(MessageReceivedEvent.class, this::onMessageReceived);
+        register(ChannelCreateEvent.class, (ev, dc, jda) -> dc.channelIndex.channelCreated(ev.getChannel()));
+        register(ChannelDeleteEvent.class, (ev, dc, jda) -> dc.channelIndex.channelRemoved(ev.getChannel()));
+        register(ChannelUpdateArchivedEvent.class, (ev, dc, jda) -> {
+            if (Boolean.TRUE.equals(ev.getNewValue())) dc.channelIndex.channelRemoved(ev.getChannel());
+            else dc.channelIndex.channelCreated(ev.getChannel());
+        });
+        register(GuildJoinEvent.class, (ev, dc, jda) -> dc.channelIndex.refresh());
+        // Channels of the left guild are no longer reachable
+        register(GuildLeaveEvent.class, (ev, dc, jda) -> dc.channelIndex.refresh());
+        // Channels of guilds which were not loaded yet, for example on shards that started later, are remembered as missing
+        register(GuildReadyEvent.class, (ev, dc, jda) -> dc.channelIndex.refresh());
+        updateChannels();
+    }
 
-        // Handle string select interactions (for config preview)
-        if (event instanceof StringSelectInteractionEvent) {
-            StringSelectInteractionEvent ev = (StringSelectInteractionEvent) event;
-            String selectId = ev.getComponentId();
-            
-            if (selectId.startsWith("config_preview:")) {
-                handleConfigPreviewSelect(ev, selectId);
-            }
-        }
+    @SuppressWarnings("unchecked")
+    private <T extends GenericEvent> void register(Class<T> eventClass, Handler<T> handler) {
+        handlers.put(eventClass, (Handler<GenericEvent>) handler);
+    }
 
-        // Handle modal interactions (for config preview)
-        if (event instanceof ModalInteractionEvent) {
-            ModalInteractionEvent ev = (ModalInteractionEvent) event;
-            String modalId = ev.getModalId();
-            
-            if (modalId.startsWith("config_preview:")) {
-                handleConfigPreviewModal(ev, modalId);
-            }
+    private Handler<GenericEvent> resolveHandler(Class<?> eventClass) {
+        for (Class<?> c = eventClass; c != null; c = c.getSuperclass()) {
+            final Handler<GenericEvent> handler = handlers.get(c);
+            if (handler != null) return handler;
         }
+        return IGNORE;
+    }
 
+    /**
+     * Re-reads the configured chat channels, has to be called after config reloads
+     */
+    void updateChannels() {
+        final long botChannel = parseChannelID(Configuration.instance().general.botChannel);
+        final String input = Configuration.instance().advanced.chatInputChannelID;
+        final String output = Configuration.instance().advanced.chatOutputChannelID;
+        chatInputChannel = input.equals("default") ? botChannel : parseChannelID(input);
+        chatOutputChannel = output.equals("default") ? botChannel : parseChannelID(output);
+        final long[] channels = {chatInputChannel, chatOutputChannel};
+        Arrays.sort(channels);
+        relevantChannels = channels;
+    }
 
-        if (event instanceof MessageReactionAddEvent) {
-            final MessageReactionAddEvent ev = (MessageReactionAddEvent) event;
-
-            final UUID sender = dc.getSenderUUIDFromMessageID(ev.getMessageId());
-            if (ev.getChannel().getId().equals(Configuration.instance().advanced.chatOutputChannelID.equals("default") ? Configuration.instance().general.botChannel : Configuration.instance().advanced.chatOutputChannelID))
-                if (sender != DiscordIntegration.dummyUUID) {
-                    if (LinkManager.isDiscordUserLinked(ev.getUserId())) {
-                        if (LinkManager.getLink(ev.getUserId(), null).settings.ignoreReactions) return;
-                    }
-                    dc.getServerInterface().sendIngameReaction(ev.retrieveMember().complete(), ev.retrieveMessage(), sender, ev.getEmoji());
-                }
+    private static long parseChannelID(String id) {
+        try {
+            return Long.parseLong(id.trim());
+        } catch (NumberFormatException e) {
+            return 0;
         }
+    }
 
+    private boolean isRelevantChannel(long channelID) {
+        return Arrays.binarySearch(relevantChannels, channelID) >= 0;
+    }
+
+    /**
+     * Stops the inbound executors
+     */
+    void shutdown() {
+        inbound.shutdown();
+        reactions.shutdown();
+    }
+
+    @Override
+    public void onEvent(final @NotNull GenericEvent event) {
+        final DiscordIntegration dc = DiscordIntegration.INSTANCE;
+        if (dc == null) return;
+        final JDA jda = dc.getJDA();
+        if (jda == null) return;
+        resolvedHandlers.computeIfAbsent(event.getClass(), this::resolveHandler).handle(event, dc, jda);
+    }
 
-        if (event instanceof GuildMemberRemoveEvent) {
-            GuildMemberRemoveEvent ev = (GuildMemberRemoveEvent) event;
-            if (Configuration.instance().linking.unlinkOnLeave && LinkManager.isDiscordUserLinked(ev.getUser().getId())) {
-                LinkManager.unlinkPlayer(((GuildMemberRemoveEvent) event).getUser().getId());
+    private void onSlashCommand(final SlashCommandInteractionEvent ev, final DiscordIntegration dc, final JDA jda) {
+        if (!Configuration.instance().commands.enabled) return;
+        if (ev.getChannelType().equals(ChannelType.TEXT)) {
+            if (CommandRegistry.registeredCMDs.containsKey(ev.getCommandId())) {
+                final DiscordCommand cfCommand = CommandRegistry.registeredCMDs.get(ev.getCommandId());
+                String cmd = cfCommand.getName();
+                String args = ev.getOption("args") != null ? ev.getOption("args").getAsString() : "";
+                processDiscordCommand(ev, ArrayUtils.addAll(new String[]{cmd}, args.split(" ")), ev.getChannel(), ev.getUser(), dc);
             }
         }
+    }
 
+    private void onReactionAdd(final MessageReactionAddEvent ev, final DiscordIntegration dc, final JDA jda) {
+        final long channelID = ev.getChannel().getIdLong();
+        if (channelID != chatOutputChannel) return;
+        final UUID sender = dc.getSenderUUIDFromMessageID(ev.getMessageId());
+        if (sender == DiscordIntegration.dummyUUID) return;
+        if (LinkManager.isDiscordUserLinked(ev.getUserId())) {
+            if (LinkManager.getLink(ev.getUserId(), null).settings.ignoreReactions) return;
+        }
+        final Member member = ev.getMember();
+        if (member != null) {
+            reactions.execute(channelID, () -> dc.getServerInterface().sendIngameReaction(member, ev.retrieveMessage(), sender, ev.getEmoji()));
+            return;
+        }
+        ev.retrieveMember().queue((m) -> reactions.execute(channelID, () -> dc.getServerInterface().sendIngameReaction(m, ev.retrieveMessage(), sender, ev.getEmoji())),
+                (e) -> DiscordIntegration.LOGGER.debug("Failed to retrieve the member of a reaction: " + e.getMessage()));
+    }
 
-        if (event instanceof MessageReceivedEvent) {
+    private void onMessageReceived(final MessageReceivedEvent ev, final DiscordIntegration dc, final JDA jda) {
+        if (Localization.instance().ingame_discordMessage.isEmpty()) return;
+        final long channelID = ev.getChannel().getIdLong();
+        // Messages outside of the chat channels only matter to addon event handlers
+        if (!isRelevantChannel(channelID) && !dc.hasAddonEventHandlers()) return;
+        if (!Configuration.instance().general.allowWebhookMessages && ev.isWebhookMessage()) return;
+        if (dc.recentMessages.contains(ev.getMessageIdLong())) return;
+        if (ev.isWebhookMessage()) {
+            final long webhookID = ev.getAuthor().getIdLong();
+            if (dc.pendingWebhookSends.consumeEcho(webhookID, ev.getAuthor().getName(), ev.getMessage().getContentRaw()))
+                return;
+            if (dc.pendingWebhookSends.hasPending(webhookID)) {
+                // One of our own sends through this webhook is still in flight, check again once it had time to complete
+                CompletableFuture.delayedExecutor(Configuration.instance().advanced.webhookMessageDelay, TimeUnit.MILLISECONDS, (r) -> inbound.execute(channelID, r)).execute(() -> {
+                    if (!dc.recentMessages.contains(ev.getMessageIdLong())) handleDiscordMessage(ev, dc, jda);
+                });
+                return;
+            }
+        }
+        inbound.execute(channelID, () -> handleDiscordMessage(ev, dc, jda));
+    }
 
-            if (Localization.instance().ingame_discordMessage.isEmpty()) return;
-            final MessageReceivedEvent ev = (MessageReceivedEvent) event;
-            if (!Configuration.instance().general.allowWebhookMessages && ev.isWebhookMessage()) return;
-            if(ev.isWebhookMessage()){
-                // Hacky way to lower risk of duplicate webhook messages
-                try {
-                    Thread.sleep(Configuration.instance().advanced.webhookMessageDelay);
-                } catch (InterruptedException e) {
-                    return;
+    private void handleDiscordMessage(final MessageReceivedEvent ev, final DiscordIntegration dc, final JDA jda) {
+        if (!ev.getAuthor().getId().equals(jda.getSelfUser().getId())) {
+            if (dc.callEvent((e) -> e.onDiscordMessagePre(ev))) return;
+            if (ev.getChannel().getId().equals(Configuration.instance().advanced.chatInputChannelID.equals("default") ? dc.getChannel().getId() : Configuration.instance().advanced.chatInputChannelID)) {
+                dc.projectMember(ev.getMember());
+                final List<MessageEmbed> embeds = ev.getMessage().getEmbeds();
+                String msg = ev.getMessage().getContentDisplay();
+                msg = MessageUtils.formatEmoteMessage(ev.getMessage().getMentions().getCustomEmojis(), msg);
+                final Component attachmentComponent = AttachmentRenderer.render(ev.getMessage().getAttachments(), embeds, ev.getMessage().getStickers());
+                final Message reply = ev.getMessage().getReferencedMessage();
+                final boolean hasReply = reply != null;
+                final int memberColor = (ev.getMember() != null ? ev.getMember().getColorRaw() : 0);
+                final Component msgComponent = ComponentUtils.makeURLsClickable(MarkdownRenderer.render(msg));
+                Style.Builder memberStyle = Style.style();
+                if (Configuration.instance().messages.discordRoleColorIngame)
+                    memberStyle.color(TextColor.color(memberColor));
+                Component user = Component.text((ev.getMember() != null ? ev.getMember().getEffectiveName() : ev.getAuthor().getName()));
+                if (Configuration.instance().messages.enableHoverMessage)
+                    user = user.style(memberStyle
+                            .clickEvent(ClickEvent.suggestCommand("@" + (ev.getAuthor().getDiscriminator().equals("0000") ? ev.getAuthor().getName() : ev.getAuthor().getAsTag())))
+                            .hoverEvent(HoverEvent.showText(Component.text(Localization.instance().discordUserHover.replace("%username%", (ev.getMember() != null ? ev.getMember().getEffectiveName() : ev.getAuthor().getEffectiveName())).replace("%user#tag%", !ev.getAuthor().getDiscriminator().equals("0000") ? ev.getAuthor().getAsTag() : ev.getAuthor().getName()).replace("%user%", ev.getMember() == null ? ev.getAuthor().getEffectiveName() : ev.getMember().getEffectiveName()).replace("%id%", ev.getAuthor().getId())))));
+                if (ev.getAuthor().isBot()) {
+                    user = ComponentUtils.append(user, Component.text("[APP]").style(Style.style(TextColors.DISCORD_BLURPLE).hoverEvent(HoverEvent.showText(Component.text(Localization.instance().bot)))));
                 }
-            }
-            if (dc.recentMessages.containsKey(ev.getMessageIdLong())) return;
-
-            if (!ev.getAuthor().getId().equals(jda.getSelfUser().getId())) {
-                if (dc.callEvent((e) -> e.onDiscordMessagePre(ev))) return;
-                if (ev.getChannel().getId().equals(Configuration.instance().advanced.chatInputChannelID.equals("default") ? dc.getChannel().getId() : Configuration.instance().advanced.chatInputChannelID)) {
-                    final List<MessageEmbed> embeds = ev.getMessage().getEmbeds();
-                    String msg = ev.getMessage().getContentDisplay();
-                    msg = MessageUtils.formatEmoteMessage(ev.getMessage().getMentions().getCustomEmojis(), msg);
-                    final Component attachmentComponent = getAttachmentComp(ev, embeds);
-                    @SuppressWarnings("unchecked") final Component outMsg = MinecraftSerializer.INSTANCE.serialize(msg.replace("\n", "\\n"), DiscordIntegration.mcSerializerOptions);
-                    final Message reply = ev.getMessage().getReferencedMessage();
-                    final boolean hasReply = reply != null;
-                    Component out = LegacyComponentSerializer.legacySection().deserialize(hasReply ? Localization.instance().ingame_discordReplyMessage : Localization.instance().ingame_discordMessage);
-                    final int memberColor = (ev.getMember() != null ? ev.getMember().getColorRaw() : 0);
-                    final TextReplacementConfig msgReplacer = ComponentUtils.replaceLiteral("%msg%", ComponentUtils.makeURLsClickable(outMsg.replaceText(ComponentUtils.replaceLiteral("\\n", Component.newline()))));
-                    final TextReplacementConfig idReplacer = ComponentUtils.replaceLiteral("%id%", ev.getAuthor().getId());
-                    Style.Builder memberStyle = Style.style();
+                Component repUser = null, repMsgComponent = null;
+                if (hasReply) {
+                    Member replyMember = reply.isWebhookMessage() ? null : dc.getMemberById(reply.getAuthor().getIdLong());
+                    memberStyle = Style.style();
                     if (Configuration.instance().messages.discordRoleColorIngame)
-                        memberStyle.color(TextColor.color(memberColor));
-                    Component user = Component.text((ev.getMember() != null ? ev.getMember().getEffectiveName() : ev.getAuthor().getName()));
-                    if (Configuration.instance().messages.enableHoverMessage)
-                        user = user.style(memberStyle
-                                .clickEvent(ClickEvent.suggestCommand("@" + (ev.getAuthor().getDiscriminator().equals("0000") ? ev.getAuthor().getName() : ev.getAuthor().getAsTag())))
-                                .hoverEvent(HoverEvent.showText(Component.text(Localization.instance().discordUserHover.replace("%username%", (ev.getMember() != null ? ev.getMember().getEffectiveName() : ev.getAuthor().getEffectiveName())).replace("%user#tag%", !ev.getAuthor().getDiscriminator().equals("0000") ? ev.getAuthor().getAsTag() : ev.getAuthor().getName()).replace("%user%", ev.getMember() == null ? ev.getAuthor().getEffectiveName() : ev.getMember().getEffectiveName()).replace("%id%", ev.getAuthor().getId())))));
-                    if (ev.getAuthor().isBot()) {
-                        user = ComponentUtils.append(user, Component.text("[APP]").style(Style.style(TextColors.DISCORD_BLURPLE).hoverEvent(HoverEvent.showText(Component.text(Localization.instance().bot)))));
-                    }
-                    final TextReplacementConfig userReplacer = ComponentUtils.replaceLiteral("%user%", user);
-                    out = out.replaceText(userReplacer).replaceText(idReplacer).replaceText(msgReplacer);
-                    if (hasReply) {
-                        Member replyMember = reply.isWebhookMessage() ? null : dc.getMemberById(reply.getAuthor().getIdLong());
-                        memberStyle = Style.style();
-                        if (Configuration.instance().messages.discordRoleColorIngame)
-                            memberStyle.color(TextColor.color((replyMember != null ? replyMember.getColorRaw() : 0)));
-                        final Component repUser = Component.text((replyMember != null ? replyMember.getEffectiveName() : reply.getAuthor().getName()))
-                                .style(ComponentUtils.addUserHoverClick(memberStyle.build(), reply.getAuthor(), replyMember));
-                        out = out.replaceText(ComponentUtils.replaceLiteral("%ruser%", repUser));
-                        final String repMsg = MessageUtils.formatEmoteMessage(reply.getMentions().getCustomEmojis(), reply.getContentDisplay());
-                        final Component replyMsg = MinecraftSerializer.INSTANCE.serialize(repMsg.replace("\n", "\\n"), DiscordIntegration.mcSerializerOptions);
-                        out = out.replaceText(ComponentUtils.replaceLiteral("%rmsg%", ComponentUtils.makeURLsClickable(replyMsg.replaceText(ComponentUtils.replaceLiteral("\\n", Component.newline())))));
-                    }
-                    out = ComponentUtils.append(out, attachmentComponent);
-                    dc.getServerInterface().sendIngameMessage(out);
+                        memberStyle.color(TextColor.color((replyMember != null ? replyMember.getColorRaw() : 0)));
+                    repUser = Component.text((replyMember != null ? replyMember.getEffectiveName() : reply.getAuthor().getName()))
+                            .style(ComponentUtils.addUserHoverClick(memberStyle.build(), reply.getAuthor(), replyMember));
+                    final String repMsg = MessageUtils.formatEmoteMessage(reply.getMentions().getCustomEmojis(), reply.getContentDisplay());
+                    repMsgComponent = ComponentUtils.makeURLsClickable(MarkdownRenderer.render(repMsg));
                 }
-                dc.callEventC((e) -> e.onDiscordMessagePost(ev));
+                Component out = getChatTemplate(hasReply).render(user, Component.text(ev.getAuthor().getId()), msgComponent, repUser, repMsgComponent);
+                out = ComponentUtils.append(out, attachmentComponent);
+                dc.getServerInterface().broadcastIngameMessage(IngameBroadcast.discordChat(out));
             }
+            dc.callEventC((e) -> e.onDiscordMessagePost(ev));
         }
-
     }
 
-    @NotNull
-    private static Component getAttachmentComp(MessageReceivedEvent ev, List<MessageEmbed> embeds) {
-        Component attachmentComponent = Component.empty();
-        if (!ev.getMessage().getAttachments().isEmpty()) {
-            attachmentComponent = ComponentUtils.append(attachmentComponent, Component.newline());
-            attachmentComponent = ComponentUtils.append(attachmentComponent, Component.text(Localization.instance().attachment + ":").decorate(TextDecoration.UNDERLINED));
-        }
-        for (Message.Attachment a : ev.getMessage().getAttachments()) {
-            attachmentComponent = ComponentUtils.append(attachmentComponent, Component.newline());
-            attachmentComponent = ComponentUtils.append(attachmentComponent, Component.text(a.getFileName()).decorate(TextDecoration.UNDERLINED).color(TextColor.color(0x06, 0x45, 0xAD)).clickEvent(ClickEvent.openUrl(a.getUrl())));
-        }
-        for (MessageEmbed e : embeds) {
-            if (e.isEmpty()) continue;
-            attachmentComponent = ComponentUtils.append(attachmentComponent, Component.text("\n-----[" + Localization.instance().embed + "]-----\n"));
-            if (e.getAuthor() != null && e.getAuthor().getName() != null && !e.getAuthor().getName().trim().isEmpty()) {
-                attachmentComponent = ComponentUtils.append(attachmentComponent, Component.text(e.getAuthor().getName() + "\n").decorate(TextDecoration.BOLD).decorate(TextDecoration.ITALIC));
-            }
-            if (e.getTitle() != null && !e.getTitle().trim().isEmpty()) {
-                attachmentComponent = ComponentUtils.append(attachmentComponent, Component.text(e.getTitle() + "\n").decorate(TextDecoration.BOLD));
-            }
-            if (e.getDescription() != null && !e.getDescription().trim().isEmpty()) {
-                attachmentComponent = ComponentUtils.append(attachmentComponent, Component.text(Localization.instance().embedMessage + ":\n" + e.getDescription() + "\n"));
-            }
-            if (e.getImage() != null && e.getImage().getUrl() != null && !e.getImage().getUrl().isEmpty()) {
-                attachmentComponent = ComponentUtils.append(attachmentComponent, Component.text(Localization.instance().embedImage + ": " + e.getImage().getUrl() + "\n"));
-            }
-            attachmentComponent = ComponentUtils.append(attachmentComponent, Component.text("\n-----------------"));
+    /**
+     * @param reply true for the reply format
+     * @return The compiled ingame chat format, recompiled after the localization changed
+     */
+    private ComponentTemplate getChatTemplate(boolean reply) {
+        final String format = reply ? Localization.instance().ingame_discordReplyMessage : Localization.instance().ingame_discordMessage;
+        ComponentTemplate template = reply ? replyTemplate : messageTemplate;
+        if (template == null || !template.getSource().equals(format)) {
+            template = ComponentTemplate.compile(format, CHAT_PLACEHOLDERS);
+            if (reply) replyTemplate = template;
+            else messageTemplate = template;
         }
-        for (Sticker s : ev.getMessage().getStickers())
-            attachmentComponent = ComponentUtils.append(attachmentComponent, Component.text("\n" + Localization.instance().sticker + ": " + s.getName()));
-        return attachmentComponent;
+        return template;
     }
 
-
     private void processDiscordCommand(final SlashCommandInteractionEvent ev, final String[] command,
                                        final MessageChannelUnion channel, User sender, final DiscordIntegration dc) {
         boolean hasPermission = true;
@@ -246,7 +348,7 @@ class DiscordEventListener implements EventListener {
      * Handles button interactions for config preview
      */
     private void handleConfigPreviewButton(ButtonInteractionEvent ev, String buttonId, DiscordIntegration dc) {
-        if (!dc.hasAdminRole(ev.getMember().getRoles())) {
+        if (!dc.hasAdminRole(ev.getMember())) {
             ev.reply("❌ You need admin permissions to use this feature.").setEphemeral(true).queue();
             return;
         }
@@ -294,7 +396,7 @@ class DiscordEventListener implements EventListener {
      */
     private void handleConfigPreviewSelect(StringSelectInteractionEvent ev, String selectId) {
         DiscordIntegration dc = DiscordIntegration.INSTANCE;
-        if (dc == null || !dc.hasAdminRole(ev.getMember().getRoles())) {
+        if (dc == null || !dc.hasAdminRole(ev.getMember())) {
             ev.reply("❌ You need admin permissions to use this feature.").setEphemeral(true).queue();
             return;
         }
@@ -308,7 +410,7 @@ class DiscordEventListener implements EventListener {
      */
     private void handleConfigPreviewModal(ModalInteractionEvent ev, String modalId) {
         DiscordIntegration dc = DiscordIntegration.INSTANCE;
-        if (dc == null || !dc.hasAdminRole(ev.getMember().getRoles())) {
+        if (dc == null || !dc.hasAdminRole(ev.getMember())) {
             ev.reply("❌ You need admin permissions to use this feature.").setEphemeral(true).queue();
             return;
         }
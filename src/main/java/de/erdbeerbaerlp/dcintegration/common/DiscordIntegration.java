@@ -1,8 +1,10 @@
 package de.erdbeerbaerlp.dcintegration.common;
 
+import club.minnced.discord.webhook.exception.HttpException;
 import club.minnced.discord.webhook.external.JDAWebhookClient;
 import club.minnced.discord.webhook.send.WebhookEmbed;
 import club.minnced.discord.webhook.send.WebhookEmbedBuilder;
+import club.minnced.discord.webhook.send.WebhookMessage;
 import club.minnced.discord.webhook.send.WebhookMessageBuilder;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -22,8 +24,20 @@ import de.erdbeerbaerlp.dcintegration.common.storage.linking.database.JSONInterf
 import de.erdbeerbaerlp.dcintegration.common.threads.APITestTask;
 import de.erdbeerbaerlp.dcintegration.common.threads.MessageQueueTask;
 import de.erdbeerbaerlp.dcintegration.common.threads.StatusUpdateTask;
+import de.erdbeerbaerlp.dcintegration.common.threads.WhitelistReconcileTask;
+import de.erdbeerbaerlp.dcintegration.common.util.ChannelIndex;
 import de.erdbeerbaerlp.dcintegration.common.util.DiscordMessage;
+import de.erdbeerbaerlp.dcintegration.common.util.LeaveSweep;
 import de.erdbeerbaerlp.dcintegration.common.util.McServerInterface;
+import de.erdbeerbaerlp.dcintegration.common.util.MemberCache;
+import de.erdbeerbaerlp.dcintegration.common.util.MemberProjections;
+import de.erdbeerbaerlp.dcintegration.common.util.PendingWebhookSends;
+import de.erdbeerbaerlp.dcintegration.common.util.PingIndex;
+import de.erdbeerbaerlp.dcintegration.common.util.PresenceUpdater;
+import de.erdbeerbaerlp.dcintegration.common.util.RecentMessageIndex;
+import de.erdbeerbaerlp.dcintegration.common.util.RoleIndex;
+import de.erdbeerbaerlp.dcintegration.common.util.WebhookStore;
+import de.erdbeerbaerlp.dcintegration.common.util.WhitelistIndex;
 import dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializerOptions;
 import dev.vankka.mcdiscordreserializer.rules.DiscordMarkdownRules;
 import dev.vankka.simpleast.core.node.Node;
@@ -35,7 +49,6 @@ import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.*;
-import net.dv8tion.jda.api.entities.channel.attribute.IThreadContainer;
 import net.dv8tion.jda.api.entities.channel.concrete.ThreadChannel;
 import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
 import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
@@ -44,13 +57,16 @@ import net.dv8tion.jda.api.entities.channel.middleman.StandardGuildMessageChanne
 import net.dv8tion.jda.api.exceptions.ErrorResponseException;
 import net.dv8tion.jda.api.exceptions.InvalidTokenException;
 import net.dv8tion.jda.api.exceptions.PermissionException;
+import net.dv8tion.jda.api.requests.ErrorResponse;
 import net.dv8tion.jda.api.requests.GatewayIntent;
 import net.dv8tion.jda.api.requests.RestConfig;
+import net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import net.dv8tion.jda.api.utils.ChunkingFilter;
 import net.dv8tion.jda.api.utils.MemberCachePolicy;
 import net.dv8tion.jda.api.utils.messages.MessageCreateData;
 import net.dv8tion.jda.internal.utils.PermissionUtil;
 import okhttp3.OkHttpClient;
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -64,6 +80,8 @@ import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -91,6 +109,10 @@ public class DiscordIntegration {
      * Cache file for players which ignore discord chat
      */
     private static final File IGNORED_PLAYERS = new File(discordDataDir, ".PlayerIgnores");
+    /**
+     * Webhooks used in each channel, loaded on startup without looking them up
+     */
+    private static final File WEBHOOK_CACHE = new File(discordDataDir, ".WebhookCache");
     public static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
 
     /**
@@ -110,10 +132,11 @@ public class DiscordIntegration {
     public static final int apiVersion = 3;
 
     final ArrayList<DiscordEventHandler> eventHandlers = new ArrayList<>();
+    private final DiscordEventHandler defaultEventHandler = new DiscordEventHandler() {
+    };
 
     {
-        eventHandlers.add(new DiscordEventHandler() {
-        }); //Register blank event handler to return default values
+        eventHandlers.add(defaultEventHandler); //Register blank event handler to return default values
     }
 
     static {
@@ -165,13 +188,31 @@ public class DiscordIntegration {
      */
     private JDA jda = null;
     /**
-     * Cache of channels so that they don't need to be fetched every single time
+     * Shard manager when connecting with multiple shards, see {@link Configuration.Advanced#shardCount}
+     */
+    private ShardManager shardManager = null;
+    /**
+     * Index of channels so that they don't need to be looked up every single time
      */
-    private final HashMap<String, GuildMessageChannel> channelCache = new HashMap<>();
+    final ChannelIndex channelIndex = new ChannelIndex();
     /**
      * Cache of members so that they don't need to be fetched every single time
      */
-    static final Map<Long, Member> memberCache = new HashMap<>();
+    final MemberCache memberCache = new MemberCache(this::loadMember, Configuration.instance().advanced.memberCacheSize,
+            TimeUnit.SECONDS.toMillis(Configuration.instance().advanced.memberCacheTTL), TimeUnit.SECONDS.toMillis(Configuration.instance().advanced.memberCacheNegativeTTL));
+    /**
+     * Name, color and roles of members seen while {@link Configuration.Advanced#leanMemberCache} is enabled
+     */
+    final MemberProjections memberProjections = new MemberProjections();
+    /**
+     * Bitmasks of the roles used for admin and required role checks
+     */
+    final RoleIndex roleIndex = new RoleIndex();
+    /**
+     * UUIDs of players allowed to join in {@link Configuration.Linking#whitelistMode}
+     */
+    final WhitelistIndex whitelistIndex = new WhitelistIndex(LinkManager::getAllLinks, (id) -> LinkManager.getLink(id, null), this::getMemberByIdAsync, this::loadMembers, roleIndex::hasRequiredRole,
+            () -> Configuration.instance().linking.requiredRoles.length != 0);
     /**
      * Instance of the default event listener
      */
@@ -180,7 +221,23 @@ public class DiscordIntegration {
     /**
      * Holds messages recently forwarded to discord in format MessageID, Sender UUID
      */
-    final HashMap<Long, UUID> recentMessages = new HashMap<>(150);
+    final RecentMessageIndex recentMessages = new RecentMessageIndex(Math.max(1, Configuration.instance().advanced.recentMessageCapacity));
+
+    /**
+     * Webhook messages which were sent, but not yet acknowledged by discord
+     */
+    final PendingWebhookSends pendingWebhookSends = new PendingWebhookSends();
+
+    /**
+     * Pingable names of all online players
+     */
+    private final PingIndex pingIndex = new PingIndex();
+
+    /**
+     * Updates the bot status when the player count changes
+     */
+    private final PresenceUpdater presenceUpdater = new PresenceUpdater(() -> getServerInterface().getOnlinePlayers(), () -> getServerInterface().getMaxPlayers(),
+            this::setActivity, CompletableFuture.delayedExecutor(PresenceUpdater.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS, WorkThread::executeJob));
 
     /**
      * Message pattern matcher for regex-based message interception and replacement
@@ -205,6 +262,7 @@ public class DiscordIntegration {
     private Thread launchThread;
     private TimerTask messageSender, statusUpdater;
     private APITestTask apiTest;
+    private WhitelistReconcileTask whitelistReconciler;
     private static Timer timer = new Timer();
 
     /**
@@ -223,6 +281,11 @@ public class DiscordIntegration {
             e.printStackTrace();
             return;
         }
+        recentMessages.setCapacity(Math.max(1, Configuration.instance().advanced.recentMessageCapacity));
+        updateMemberCacheLimits();
+        webhookStore.load();
+        presenceUpdater.reload();
+        roleIndex.rebuild(Configuration.instance().commands.adminRoleIDs, Configuration.instance().linking.requiredRoles);
         launchThread = new LaunchThread();
         launchThread.start();
     }
@@ -246,6 +309,15 @@ public class DiscordIntegration {
         eventHandlers.remove(handler);
     }
 
+    /**
+     * @return true if an addon registered an event handler
+     */
+    boolean hasAddonEventHandlers() {
+        for (final DiscordEventHandler h : eventHandlers)
+            if (h != defaultEventHandler) return true;
+        return false;
+    }
+
     /**
      * Unregisters ALL events handlers from this {@link DiscordIntegration} instance
      */
@@ -331,6 +403,15 @@ public class DiscordIntegration {
         // Reload message pattern matcher after config load (if INSTANCE exists)
         if (INSTANCE != null) {
             INSTANCE.messagePatternMatcher.reloadPatterns();
+            INSTANCE.recentMessages.setCapacity(Math.max(1, Configuration.instance().advanced.recentMessageCapacity));
+            INSTANCE.updateMemberCacheLimits();
+            if (INSTANCE.jda != null) INSTANCE.updateChannelAliases();
+            INSTANCE.roleIndex.rebuild(Configuration.instance().commands.adminRoleIDs, Configuration.instance().linking.requiredRoles);
+            INSTANCE.presenceUpdater.reload();
+            INSTANCE.presenceUpdater.playerCountChanged();
+            // Required roles might have changed
+            if (INSTANCE.whitelistIndex.isStarted()) INSTANCE.whitelistIndex.reconcile();
+            if (INSTANCE.listener != null) INSTANCE.listener.updateChannels();
         }
 
         if (!Configuration.instance().messages.language.equals("local")) {
@@ -390,6 +471,11 @@ public class DiscordIntegration {
         timer.scheduleAtFixedRate(statusUpdater, 0, TimeUnit.SECONDS.toMillis(10));
         timer.scheduleAtFixedRate(messageSender, 0, TimeUnit.SECONDS.toMillis(1));
         timer.scheduleAtFixedRate(apiTest, 0, TimeUnit.MINUTES.toMillis(5));
+        if (Configuration.instance().linking.whitelistMode) {
+            if (whitelistReconciler == null) whitelistReconciler = new WhitelistReconcileTask(this);
+            final long interval = TimeUnit.MINUTES.toMillis(Math.max(1, Configuration.instance().linking.whitelistReconcileInterval));
+            timer.scheduleAtFixedRate(whitelistReconciler, interval, interval);
+        }
         
         // Initialize rate-limited queue if enabled
         if (Configuration.instance().rateLimiting.enabled) {
@@ -413,6 +499,7 @@ public class DiscordIntegration {
         timer.cancel();
         timer.purge();
         if (launchThread.isAlive()) launchThread.interrupt();
+        if (apiTest != null) apiTest.cancel();
         if (rateLimitedQueue != null) {
             rateLimitedQueue.stop();
         }
@@ -430,7 +517,9 @@ public class DiscordIntegration {
             LOGGER.info("Unloading instance: {}", jda);
             if (listener != null) {
                 LOGGER.info("Unloading listener: {}", listener);
-                jda.removeEventListener(listener);
+                if (shardManager != null) shardManager.removeEventListener(listener);
+                else jda.removeEventListener(listener);
+                listener.shutdown();
             }
             stopThreads();
             unregisterAllEventHandlers();
@@ -438,7 +527,19 @@ public class DiscordIntegration {
             OkHttpClient client = jda.getHttpClient();
 
             try {
-                if (instant) {
+                if (shardManager != null) {
+                    LOGGER.info("Shutting down {} shards...", shardManager.getShardsTotal());
+                    final List<JDA> shards = shardManager.getShards();
+                    if (instant) shards.forEach(JDA::shutdownNow);
+                    shardManager.shutdown();
+                    for (final JDA shard : shards) {
+                        if (!shard.awaitShutdown(Duration.ofSeconds(10))) {
+                            shard.shutdownNow();
+                            shard.awaitShutdown();
+                        }
+                    }
+                    LOGGER.info("All shards were shut down");
+                } else if (instant) {
                     LOGGER.info("Killing JDA...");
                     jda.shutdownNow();
                     jda.awaitShutdown();
@@ -462,8 +563,11 @@ public class DiscordIntegration {
                 ignored.printStackTrace();
             }
             jda = null;
+            shardManager = null;
             INSTANCE = null;
         }
+        // Links may be written with a delay
+        if (linkDbInterface != null) linkDbInterface.flush();
     }
 
     /**
@@ -475,44 +579,38 @@ public class DiscordIntegration {
     }
 
     /**
-     * Fetches a text channel from discord
-     *
-     * @return the specified text channel (supports "default" to return the default server channel)
+     * Resolves the configured channels, has to be called after config reloads
      */
+    private void updateChannelAliases() {
+        channelIndex.setAliases(shardManager != null ? shardManager : jda, Configuration.instance().general.botChannel, getConfiguredChannelIDs());
+    }
 
-    private GuildMessageChannel retrieveChannel(final String id2) {
-        final StandardGuildMessageChannel chan = jda.getTextChannelById(id2);
-        if (chan == null) {
-            for (final Guild g : jda.getGuilds()) {
-                for (final GuildChannel gChannel : g.getChannels(true)) {
-                    if (gChannel == null) continue;
-                    if (gChannel.getId().equals(id2)) {
-                        if (gChannel instanceof StandardGuildMessageChannel)
-                            return (StandardGuildMessageChannel) gChannel;
-                        else
-                            LOGGER.error("Target Channel ID is not a valid message channel!");
-                    } else {
-                        if (gChannel instanceof IThreadContainer)
-                            for (final ThreadChannel c : ((IThreadContainer) gChannel).getThreadChannels()) {
-                                if (c.getId().equals(id2)) {
-                                    return c;
-                                }
-                            }
-                    }
-                }
-            }
-        }
-        return chan;
+    /**
+     * @return IDs of all channels messages get sent to, may contain "default"
+     */
+    private static String[] getConfiguredChannelIDs() {
+        final Configuration.Advanced advanced = Configuration.instance().advanced;
+        return new String[]{Configuration.instance().general.botChannel, advanced.serverChannelID, advanced.deathsChannelID,
+                advanced.advancementChannelID, advanced.chatOutputChannelID, advanced.chatInputChannelID,
+                Configuration.instance().votifier.votifierChannelID, Configuration.instance().dynmap.dynmapChannelID};
     }
 
     /**
-     * Retrieves a channel from cache or, if not available, fetches the channel from discord (saving it to cache)
+     * @return Index of the channels messages get sent to
+     */
+    public ChannelIndex getChannelIndex() {
+        return channelIndex;
+    }
+
+    /**
+     * Retrieves a channel from the channel index, looking it up if it was not indexed yet
      *
      * @return the specified text channel (supports "default" to return the default server channel)
      */
     public GuildMessageChannel getChannel(String id) {
         if (jda == null) return null;
-        GuildMessageChannel channel;
+        GuildMessageChannel channel = channelIndex.getAlias(id);
+        if (channel != null) return channel;
         final boolean isDefault = id.equals("default") || id.equals(Configuration.instance().general.botChannel);
         if (isDefault) id = Configuration.instance().general.botChannel;
         if (id.isEmpty()) {
@@ -521,10 +619,10 @@ public class DiscordIntegration {
             LOGGER.info("Falling back to default channel!");
             return getChannel();
         }
-        channel = channelCache.computeIfAbsent(id, this::retrieveChannel);
+        channel = channelIndex.get(id);
         if (channel == null) {
             LOGGER.error("Failed to get Channel with ID '{}', falling back to default channel", id);
-            channel = channelCache.computeIfAbsent(Configuration.instance().general.botChannel, this::retrieveChannel);
+            channel = channelIndex.get(Configuration.instance().general.botChannel);
         }
         return channel;
     }
@@ -540,24 +638,182 @@ public class DiscordIntegration {
     }
 
     /**
-     * Get member by ID from cache or from discord, saving the member to cache
+     * Get member by ID from cache or from discord, saving the member to cache<br>
+     * Blocks while the member gets retrieved, prefer {@link #getMemberByIdAsync(long)}
      *
      * @param userid ID of the member
      * @return Fetched member, or null
      */
     public Member getMemberById(final Long userid) {
-        if (memberCache.containsKey(userid)) return memberCache.get(userid);
-        else {
-            final Member out = getChannel().getGuild().retrieveMember(UserSnowflake.fromId(userid)).complete();
-            memberCache.put(userid, out);
-            return out;
+        try {
+            return memberCache.get(userid).join();
+        } catch (CompletionException e) {
+            LOGGER.debug("Failed to retrieve member {}", userid, e.getCause());
+            return null;
         }
     }
 
+    /**
+     * Loads multiple members using one gateway member chunk request, instead of one REST request per member
+     *
+     * @param ids IDs of the members
+     * @return Future completing with the members, users who are not a member of the server are missing
+     */
+    private CompletableFuture<List<Member>> loadMembers(final long[] ids) {
+        final GuildMessageChannel channel = getChannel();
+        if (channel == null) return CompletableFuture.failedFuture(new IllegalStateException("Default channel not found"));
+        final Guild guild = channel.getGuild();
+        final List<Member> found = new ArrayList<>(ids.length);
+        final long[] missing = Arrays.stream(ids).filter((id) -> {
+            final Member cached = guild.getMemberById(id);
+            if (cached != null) found.add(cached);
+            return cached == null;
+        }).toArray();
+        if (missing.length == 0) return CompletableFuture.completedFuture(found);
+        final CompletableFuture<List<Member>> future = new CompletableFuture<>();
+        guild.retrieveMembersByIds(missing).onSuccess((members) -> {
+            for (final Member m : members) {
+                memberCache.update(m);
+                projectMember(m);
+                found.add(m);
+            }
+            future.complete(found);
+        }).onError(future::completeExceptionally);
+        return future;
+    }
+
+    /**
+     * Get member by ID from cache or from discord, saving the member to cache
+     *
+     * @param userid ID of the member
+     * @return Future completing with the member, or null if the user is not a member of the server
+     */
+    public CompletableFuture<Member> getMemberByIdAsync(final long userid) {
+        return memberCache.get(userid);
+    }
+
+    private void updateMemberCacheLimits() {
+        final Configuration.Advanced advanced = Configuration.instance().advanced;
+        memberCache.setLimits(advanced.memberCacheSize, TimeUnit.SECONDS.toMillis(advanced.memberCacheTTL), TimeUnit.SECONDS.toMillis(advanced.memberCacheNegativeTTL));
+    }
+
+    /**
+     * @return Compact name, color and roles of members which are not in JDA's member cache, only filled when {@link Configuration.Advanced#leanMemberCache} is enabled
+     */
+    public MemberProjections getMemberProjections() {
+        return memberProjections;
+    }
+
+    /**
+     * Remembers name, color and roles of a member in lean member cache mode
+     */
+    void projectMember(final Member member) {
+        if (member != null && Configuration.instance().advanced.leanMemberCache) memberProjections.update(member);
+    }
+
+    private CompletableFuture<Member> loadMember(final long userid) {
+        final Guild guild = getChannel().getGuild();
+        final Member cached = guild.getMemberById(userid);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+        return guild.retrieveMember(UserSnowflake.fromId(userid)).submit().thenApply((m) -> {
+            projectMember(m);
+            roleIndex.update(m);
+            return m;
+        }).exceptionally((e) -> {
+            final Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof ErrorResponseException && (((ErrorResponseException) cause).getErrorResponse() == ErrorResponse.UNKNOWN_MEMBER || ((ErrorResponseException) cause).getErrorResponse() == ErrorResponse.UNKNOWN_USER))
+                return null;
+            throw new CompletionException(cause);
+        });
+    }
+
+    /**
+     * @return The JDA instance, or the shard the default channel's server is on when using multiple shards
+     */
     public JDA getJDA() {
         return jda;
     }
 
+    /**
+     * @return The shard manager, or null if connected without sharding
+     */
+    public ShardManager getShardManager() {
+        return shardManager;
+    }
+
+    /**
+     * @param guild Guild to check
+     * @return true if the guild is the one of the default channel, which members, roles and links are taken from
+     */
+    public boolean isMainGuild(final Guild guild) {
+        final GuildMessageChannel channel = getChannel();
+        return channel != null && channel.getGuild().getIdLong() == guild.getIdLong();
+    }
+
+    /**
+     * @return Index of the pingable names of all online players
+     */
+    public PingIndex getPingIndex() {
+        return pingIndex;
+    }
+
+    /**
+     * @return Updater of the bot status
+     */
+    public PresenceUpdater getPresenceUpdater() {
+        return presenceUpdater;
+    }
+
+    /**
+     * Updates the bot status shortly after a player joined or left the server
+     */
+    public void playerCountChanged() {
+        presenceUpdater.playerCountChanged();
+    }
+
+    /**
+     * Called by the platform when a player joined the server
+     *
+     * @param uuid Player {@link UUID}
+     * @param name Player name
+     */
+    public void playerJoined(final UUID uuid, final String name) {
+        pingIndex.playerJoined(uuid, name);
+        playerCountChanged();
+    }
+
+    /**
+     * Called by the platform when a player left the server
+     *
+     * @param uuid Player {@link UUID}
+     */
+    public void playerLeft(final UUID uuid) {
+        pingIndex.playerLeft(uuid);
+        playerCountChanged();
+    }
+
+    /**
+     * Called by the platform when the name of an online player changed
+     *
+     * @param uuid Player {@link UUID}
+     * @param name New player name
+     */
+    public void playerRenamed(final UUID uuid, final String name) {
+        pingIndex.playerRenamed(uuid, name);
+    }
+
+    /**
+     * Sets the activity of the bot on all shards
+     *
+     * @return false if the bot is not connected yet
+     */
+    private boolean setActivity(final Activity activity) {
+        if (shardManager != null) shardManager.setActivity(activity);
+        else if (jda != null) jda.getPresence().setActivity(activity);
+        else return false;
+        return true;
+    }
+
     public McServerInterface getServerInterface() {
         return serverInterface;
     }
@@ -605,10 +861,22 @@ public class DiscordIntegration {
     }
 
     public boolean hasAdminRole(List<Role> roles) {
-        for (final Role role : roles) {
-            if (ArrayUtils.contains(Configuration.instance().commands.adminRoleIDs, role.getId())) return true;
-        }
-        return false;
+        return roleIndex.hasAdminRole(roles);
+    }
+
+    /**
+     * @param member Member to check
+     * @return true if the member has one of the {@link Configuration.Commands#adminRoleIDs}
+     */
+    public boolean hasAdminRole(Member member) {
+        return roleIndex.hasAdminRole(member);
+    }
+
+    /**
+     * @return Bitmasks of the roles used for permission checks
+     */
+    public RoleIndex getRoleIndex() {
+        return roleIndex;
     }
 
     /**
@@ -630,19 +898,78 @@ public class DiscordIntegration {
                 }
         }
 
+        private MemberCachePolicy getMemberCachePolicy() {
+            if (!Configuration.instance().advanced.leanMemberCache) return MemberCachePolicy.ALL;
+            // Keep linked members, and a limited amount of recently active ones. Everyone else is stored in memberProjections
+            final MemberCachePolicy linked = (m) -> LinkManager.isDiscordUserLinked(m.getId());
+            return MemberCachePolicy.lru(Configuration.instance().advanced.leanActiveMembers).unloadUnless(linked.or(MemberCachePolicy.OWNER));
+        }
+
+        private ShardManager buildShardManager() {
+            final DefaultShardManagerBuilder sb = DefaultShardManagerBuilder.createDefault(Configuration.instance().general.botToken);
+            if (!Configuration.instance().advanced.baseAPIUrl.equals("https://discord.com"))
+                sb.setRestConfig(new RestConfig().setBaseUrl(Configuration.instance().advanced.baseAPIUrl));
+            sb.enableIntents(GatewayIntent.GUILD_MEMBERS, GatewayIntent.GUILD_VOICE_STATES, GatewayIntent.GUILD_EMOJIS_AND_STICKERS, GatewayIntent.MESSAGE_CONTENT);
+            sb.setAutoReconnect(true);
+            sb.setEnableShutdownHook(true);
+            sb.setMemberCachePolicy(getMemberCachePolicy());
+            if (Configuration.instance().advanced.leanMemberCache) sb.setChunkingFilter(ChunkingFilter.NONE);
+            // Without a total, the shard manager uses the amount recommended by discord
+            if (Configuration.instance().advanced.shardCount > 0) sb.setShardsTotal(Configuration.instance().advanced.shardCount);
+            return sb.build();
+        }
+
+        /**
+         * Waits until all shards are ready, as building the shard manager only starts the first one and queues the others
+         */
+        private void awaitShards() throws InterruptedException {
+            final int total = shardManager.getShardsTotal();
+            for (int id = 0; id < total; id++) {
+                JDA shard;
+                while ((shard = shardManager.getShardById(id)) == null) {
+                    //noinspection BusyWait
+                    sleep(500);
+                }
+                shard.awaitReady();
+            }
+        }
+
+        /**
+         * @return The shard receiving the events of the default channel's server
+         */
+        private JDA getMainShard() {
+            try {
+                final GuildChannel channel = shardManager.getChannelById(GuildChannel.class, Configuration.instance().general.botChannel);
+                if (channel != null) return channel.getJDA();
+            } catch (NumberFormatException ignored) {
+            }
+            return shardManager.getShards().get(0);
+        }
+
         @Override
         public void run() {
             while (true) {
                 b.enableIntents(GatewayIntent.GUILD_MEMBERS, GatewayIntent.GUILD_VOICE_STATES, GatewayIntent.GUILD_EMOJIS_AND_STICKERS, GatewayIntent.MESSAGE_CONTENT);
                 b.setAutoReconnect(true);
                 b.setEnableShutdownHook(true);
-                b.setMemberCachePolicy(MemberCachePolicy.ALL);
+                b.setMemberCachePolicy(getMemberCachePolicy());
+                if (Configuration.instance().advanced.leanMemberCache) b.setChunkingFilter(ChunkingFilter.NONE);
                 try {
-                    jda = b.build();
-                    jda.awaitReady();
+                    if (Configuration.instance().advanced.shardCount != 0) {
+                        shardManager = buildShardManager();
+                        awaitShards();
+                        jda = getMainShard();
+                        LOGGER.info("Connected with {} shards", shardManager.getShardsTotal());
+                    } else {
+                        jda = b.build();
+                        jda.awaitReady();
+                    }
+                    updateChannelAliases();
+                    refreshWebhooks();
                     break;
                 } catch (InvalidTokenException e) {
                     jda = null;
+                    shardManager = null;
                     if (e.getMessage().equals("The provided token is invalid!")) {
                         LOGGER.error("Invalid token, please set correct token in the config file!");
                         return;
@@ -656,6 +983,7 @@ public class DiscordIntegration {
                     }
                 } catch (InterruptedException | IllegalStateException e) {
                     jda = null;
+                    shardManager = null;
                     e.printStackTrace();
                     return;
                 }
@@ -683,7 +1011,9 @@ public class DiscordIntegration {
                 }
 
             LOGGER.info("Bot ready");
-            jda.addEventListener(listener = new DiscordEventListener());
+            listener = new DiscordEventListener();
+            if (shardManager != null) shardManager.addEventListener(listener);
+            else jda.addEventListener(listener);
             // Initialize message pattern matcher
             messagePatternMatcher.reloadPatterns();
             // Initialize template engine
@@ -726,17 +1056,15 @@ public class DiscordIntegration {
                         e.printStackTrace();
                 }
                 LinkManager.load();
+                if (Configuration.instance().linking.whitelistMode) whitelistIndex.reconcile();
 
-                if (Configuration.instance().linking.unlinkOnLeave)
-                    WorkThread.executeJob(() -> {
-                        for (final PlayerLink p : LinkManager.getAllLinks()) {
-                            try {
-                                getChannel().getGuild().retrieveMemberById(p.discordID).submit();
-                            } catch (ErrorResponseException e) {
-                                LinkManager.unlinkPlayer(p.discordID);
-                            }
-                        }
+                if (Configuration.instance().linking.unlinkOnLeave && getChannel() != null) {
+                    final List<String> linkedIDs = new ArrayList<>();
+                    for (final PlayerLink p : LinkManager.getAllLinks()) linkedIDs.add(p.discordID);
+                    LeaveSweep.forGuild(getChannel().getGuild()).run(linkedIDs).thenAccept((departed) -> {
+                        if (!departed.isEmpty()) WorkThread.executeJob(() -> LOGGER.info("Unlinked {} users who left the server", LinkManager.unlinkPlayers(departed)));
                     });
+                }
             }
         }
 
@@ -759,6 +1087,20 @@ public class DiscordIntegration {
         }
     }
 
+    /**
+     * Checks if a player is ignoring discord messages ingame
+     *
+     * @param uuid Player's UUID
+     * @return true if the player is ignoring discord messages
+     */
+    public boolean isPlayerIgnoring(UUID uuid) {
+        if (LinkManager.isPlayerLinked(uuid)) {
+            final PlayerLink link = LinkManager.getLink(null, uuid);
+            return link != null && link.settings.ignoreDiscordChatIngame;
+        }
+        return ignoringPlayers.contains(uuid);
+    }
+
     /**
      * Toggles a player's ignore status
      *
@@ -811,7 +1153,8 @@ public class DiscordIntegration {
     }
 
 
-    private final HashMap<String, Webhook> webhookHashMap = new HashMap<>();
+    private final ConcurrentHashMap<String, Webhook> webhookHashMap = new ConcurrentHashMap<>();
+    private final WebhookStore webhookStore = new WebhookStore(WEBHOOK_CACHE);
 
     /**
      * @return an instance of the webhook or null
@@ -835,11 +1178,11 @@ public class DiscordIntegration {
                 }
                 for (final Webhook web : c.getParentMessageChannel().asStandardGuildMessageChannel().retrieveWebhooks().complete()) {
                     if (web.getName().equals(Configuration.instance().webhook.webhookName)) {
-                        return web;
+                        return rememberWebhook(c.getParentChannel().getIdLong(), web);
                     }
                 }
 
-                return c.getParentMessageChannel().asStandardGuildMessageChannel().createWebhook(Configuration.instance().webhook.webhookName).complete();
+                return rememberWebhook(c.getParentChannel().getIdLong(), c.getParentMessageChannel().asStandardGuildMessageChannel().createWebhook(Configuration.instance().webhook.webhookName).complete());
             });
         } else if (ic instanceof StandardGuildMessageChannel) {
             StandardGuildMessageChannel c = (StandardGuildMessageChannel) ic;
@@ -857,16 +1200,16 @@ public class DiscordIntegration {
                 }
                 for (final Webhook web : c.retrieveWebhooks().complete()) {
                     if (web.getName().equals(Configuration.instance().webhook.webhookName)) {
-                        return web;
+                        return rememberWebhook(c.getIdLong(), web);
                     }
                 }
-                return c.createWebhook(Configuration.instance().webhook.webhookName).complete();
+                return rememberWebhook(c.getIdLong(), c.createWebhook(Configuration.instance().webhook.webhookName).complete());
             });
         }
         return null;
     }
 
-    private final HashMap<String, JDAWebhookClient> webhookClis = new HashMap<>();
+    private final ConcurrentHashMap<String, JDAWebhookClient> webhookClis = new ConcurrentHashMap<>();
 
     /**
      * Returns the corresponding {@link WebhookClient} for the given Channel ID
@@ -878,11 +1221,17 @@ public class DiscordIntegration {
     public JDAWebhookClient getWebhookCli(String channelID) {
         return webhookClis.computeIfAbsent(channelID, (id) -> {
             final GuildMessageChannel channel = getChannel(id);
-            final Webhook wh = getWebhook(channel);
-
-            if (wh == null) return null;
-
-            JDAWebhookClient cli = JDAWebhookClient.from(wh);
+            if (!Configuration.instance().webhook.enable || channel == null) return null;
+            final long parentID = channel instanceof ThreadChannel ? ((ThreadChannel) channel).getParentChannel().getIdLong() : channel.getIdLong();
+            final WebhookStore.Handle handle = webhookStore.get(parentID);
+            JDAWebhookClient cli;
+            if (handle != null && handle.name.equals(Configuration.instance().webhook.webhookName)) {
+                cli = JDAWebhookClient.withId(handle.id, handle.token);
+            } else {
+                final Webhook wh = getWebhook(channel);
+                if (wh == null) return null;
+                cli = JDAWebhookClient.from(wh);
+            }
             if (channel instanceof ThreadChannel) {
                 ThreadChannel c = (ThreadChannel) channel;
                 cli = cli.onThread(c.getIdLong());
@@ -891,6 +1240,46 @@ public class DiscordIntegration {
         });
     }
 
+    private Webhook rememberWebhook(final long channelID, final Webhook webhook) {
+        if (webhook != null && webhook.getToken() != null)
+            webhookStore.put(channelID, new WebhookStore.Handle(webhook.getIdLong(), webhook.getToken(), webhook.getName()));
+        return webhook;
+    }
+
+    /**
+     * Forgets a webhook which no longer exists, so that it gets looked up or created again on the next message
+     *
+     * @param webhookID ID of the deleted webhook
+     */
+    public void invalidateWebhook(final long webhookID) {
+        webhookStore.removeWebhook(webhookID);
+        webhookHashMap.values().removeIf((w) -> w.getIdLong() == webhookID);
+        webhookClis.values().removeIf((cli) -> {
+            if (cli.getId() != webhookID) return false;
+            cli.close();
+            return true;
+        });
+    }
+
+    /**
+     * Removes the webhooks of deleted channels, checks the remaining ones in the background and looks up the webhooks of configured channels which have none stored
+     */
+    private void refreshWebhooks() {
+        if (!Configuration.instance().webhook.enable) return;
+        final int pruned = webhookStore.retainChannels((channelID) -> channelIndex.get(channelID) != null);
+        if (pruned > 0) LOGGER.info("Removed {} cached webhooks of deleted channels", pruned);
+        webhookStore.getAll().forEach((channelID, handle) -> jda.retrieveWebhookById(handle.id).queue((wh) -> rememberWebhook(channelID, wh), (err) -> {
+            if (err instanceof ErrorResponseException && ((ErrorResponseException) err).getErrorResponse() == ErrorResponse.UNKNOWN_WEBHOOK)
+                WorkThread.executeJob(() -> invalidateWebhook(handle.id));
+        }));
+        WorkThread.executeJob(() -> {
+            for (final String id : getConfiguredChannelIDs()) {
+                final GuildMessageChannel channel = getChannel(id);
+                if (channel != null) getWebhookCli(channel.getId());
+            }
+        });
+    }
+
 
     /**
      * Adds messages to send in the next half second
@@ -1021,10 +1410,7 @@ public class DiscordIntegration {
                     messages.forEach((builder) -> {
                         builder.setUsername(name);
                         builder.setAvatarUrl(avatarURL);
-                        final JDAWebhookClient webhookCli = getWebhookCli(channel.getId());
-                        if (webhookCli != null) {
-                            webhookCli.send(builder.build()).thenAccept((a)-> rememberRecentMessage(a.getId(),  uuid.equals("0000000")?null:UUID.fromString(uuid)));
-                        }
+                        sendWebhookMessage(channel, builder.build(), name, uuid, true);
                     });
                 } else if (isChatMessage) {
                     message.setMessage(Localization.instance().discordChatMessage.replace("%player%", name).replace("%msg%", message.getMessage()));
@@ -1039,6 +1425,25 @@ public class DiscordIntegration {
         });
     }
 
+    private void sendWebhookMessage(MessageChannel channel, WebhookMessage whMsg, String name, String uuid, boolean retry) {
+        final JDAWebhookClient webhookCli = getWebhookCli(channel.getId());
+        if (webhookCli == null) return;
+        final long webhookID = webhookCli.getId();
+        final long nonce = pendingWebhookSends.register(webhookID, name, whMsg.getContent());
+        webhookCli.send(whMsg).whenComplete((a, err) -> {
+            if (a != null)
+                rememberRecentMessage(a.getId(), uuid.equals("0000000") ? null : UUID.fromString(uuid));
+            pendingWebhookSends.complete(webhookID, nonce);
+            final Throwable cause = err instanceof CompletionException ? err.getCause() : err;
+            // The stored webhook got deleted, look it up again and resend once
+            if (retry && cause instanceof HttpException && ((HttpException) cause).getCode() == 404 && WebhookStore.isUnknownWebhook(((HttpException) cause).getBody()))
+                WorkThread.executeJob(() -> {
+                    invalidateWebhook(webhookID);
+                    sendWebhookMessage(channel, whMsg, name, uuid, false);
+                });
+        });
+    }
+
     /**
      * Sends a message when *not* using a webhook and returns it as RequestFuture<Message> or null when using a webhook<br>
      * only used by starting message
@@ -1061,21 +1466,30 @@ public class DiscordIntegration {
      */
     public boolean canPlayerJoin(UUID uuid) {
         if (!Configuration.instance().linking.whitelistMode) return true;
+        if (!whitelistIndex.isReady()) return checkPlayerCanJoin(uuid);
+        if (!serverInterface.isOnlineMode() || !Configuration.instance().linking.enableLinking) return false;
+        // Missed role changes are picked up by the WhitelistReconcileTask
+        return whitelistIndex.isEligible(uuid);
+    }
+
+    /**
+     * @return Eligibility set used by {@link #canPlayerJoin(UUID)}
+     */
+    public WhitelistIndex getWhitelistIndex() {
+        return whitelistIndex;
+    }
+
+    /**
+     * Checks whitelist eligibility without the {@link #whitelistIndex}, used until it was built
+     */
+    private boolean checkPlayerCanJoin(UUID uuid) {
         if (LinkManager.isPlayerLinked(uuid)) {
             if (Configuration.instance().linking.requiredRoles.length != 0) {
                 final PlayerLink link = LinkManager.getLink(null, uuid);
                 if (link == null) return false;
                 final Member mem = getMemberById(link.discordID);
                 if (mem == null) return false;
-                final Guild g = getChannel().getGuild();
-                for (String requiredRole : Configuration.instance().linking.requiredRoles) {
-                    final Role role = g.getRoleById(requiredRole);
-                    if (role == null) continue;
-                    if (mem.getRoles().contains(role)) {
-                        return true;
-                    }
-                }
-                return false;
+                return roleIndex.hasRequiredRole(mem);
             } else return true;
         }
         return false;
@@ -1154,10 +1568,6 @@ public class DiscordIntegration {
      * @param uuid  Sender UUID
      */
     public void rememberRecentMessage(long msgID, UUID uuid) {
-        if (recentMessages.size() + 1 >= 150) {
-            final long oldest = recentMessages.entrySet().stream().sorted(Map.Entry.comparingByKey()).iterator().next().getKey();
-            recentMessages.remove(oldest);
-        }
         recentMessages.put(msgID, uuid);
     }
 
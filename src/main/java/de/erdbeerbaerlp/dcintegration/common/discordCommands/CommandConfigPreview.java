@@ -31,7 +31,7 @@ public class CommandConfigPreview extends DiscordCommand {
     
     @Override
     public void execute(SlashCommandInteractionEvent ev, ReplyCallbackAction reply) {
-        if (!DiscordIntegration.INSTANCE.hasAdminRole(ev.getMember().getRoles())) {
+        if (!DiscordIntegration.INSTANCE.hasAdminRole(ev.getMember())) {
             reply.setContent("❌ You need admin permissions to use this command.").setEphemeral(true).queue();
             return;
         }
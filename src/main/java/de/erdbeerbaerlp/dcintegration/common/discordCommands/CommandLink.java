@@ -17,7 +17,6 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 
 public class CommandLink extends DiscordCommand {
@@ -34,13 +33,7 @@ public class CommandLink extends DiscordCommand {
         if (m == null) m = DiscordIntegration.INSTANCE.getMemberById(ev.getUser().getIdLong());
         if (m != null)
             if (Configuration.instance().linking.requiredRoles.length != 0) {
-                AtomicBoolean ok = new AtomicBoolean(false);
-                m.getRoles().forEach((role) -> {
-                    for (String s : Configuration.instance().linking.requiredRoles) {
-                        if (s.equals(role.getId())) ok.set(true);
-                    }
-                });
-                if (!ok.get()) {
+                if (!DiscordIntegration.INSTANCE.getRoleIndex().hasRequiredRole(m)) {
                     reply.thenAccept((c) -> c.editOriginal(MessageEditData.fromContent(Localization.instance().linking.link_requiredRole)).queue());
                     return;
                 }
@@ -53,20 +46,24 @@ public class CommandLink extends DiscordCommand {
                     reply.thenAccept((c) -> c.editOriginal(Localization.instance().linking.alreadyLinked.replace("%player%", MessageUtils.getNameFromUUID(UUID.fromString(LinkManager.getLink(ev.getUser().getId(), null).floodgateUUID)))).queue());
                     return;
                 }
-                if (LinkManager.pendingLinks.containsKey(num)) {
-                    final boolean linked = LinkManager.linkPlayer(ev.getUser().getId(), LinkManager.pendingLinks.get(num).getValue());
+                final UUID javaPlayer = LinkManager.pendingLinks.getPlayer(num);
+                final UUID bedrockPlayer = javaPlayer == null ? LinkManager.pendingBedrockLinks.getPlayer(num) : null;
+                if (javaPlayer != null) {
+                    final boolean linked = LinkManager.linkPlayer(ev.getUser().getId(), javaPlayer);
                     if (linked) {
                         LinkManager.save();
                         reply.thenAccept((c) -> c.editOriginal(Localization.instance().linking.linkSuccessful.replace("%prefix%", "/").replace("%player%", MessageUtils.getNameFromUUID(UUID.fromString(LinkManager.getLink(ev.getUser().getId(), null).mcPlayerUUID)))).queue());
-                        DiscordIntegration.INSTANCE.getServerInterface().sendIngameMessage(Localization.instance().linking.linkSuccessfulIngame.replace("%name%", ev.getUser().getName()).replace("%name#tag%", ev.getUser().getAsTag()), LinkManager.pendingLinks.get(num).getValue());
+                        DiscordIntegration.INSTANCE.getServerInterface().sendIngameMessage(Localization.instance().linking.linkSuccessfulIngame.replace("%name%", ev.getUser().getName()).replace("%name#tag%", ev.getUser().getAsTag()), javaPlayer);
+                        LinkManager.pendingLinks.remove(num);
                     } else
                         reply.thenAccept((c) -> c.editOriginal(Localization.instance().linking.linkFailed).queue());
-                } else if (LinkManager.pendingBedrockLinks.containsKey(num)) {
-                    final boolean linked = LinkManager.linkBedrockPlayer(ev.getUser().getId(), LinkManager.pendingBedrockLinks.get(num).getValue());
+                } else if (bedrockPlayer != null) {
+                    final boolean linked = LinkManager.linkBedrockPlayer(ev.getUser().getId(), bedrockPlayer);
                     if (linked) {
                         LinkManager.save();
                         reply.thenAccept((c) -> c.editOriginal(Localization.instance().linking.linkSuccessful.replace("%prefix%", "/").replace("%player%", MessageUtils.getNameFromUUID(UUID.fromString(LinkManager.getLink(ev.getUser().getId(), null).floodgateUUID)))).queue());
-                        DiscordIntegration.INSTANCE.getServerInterface().sendIngameMessage(Localization.instance().linking.linkSuccessfulIngame.replace("%name%", ev.getUser().getName()).replace("%name#tag%", ev.getUser().getAsTag()), LinkManager.pendingBedrockLinks.get(num).getValue());
+                        DiscordIntegration.INSTANCE.getServerInterface().sendIngameMessage(Localization.instance().linking.linkSuccessfulIngame.replace("%name%", ev.getUser().getName()).replace("%name#tag%", ev.getUser().getAsTag()), bedrockPlayer);
+                        LinkManager.pendingBedrockLinks.remove(num);
                     } else
                         reply.thenAccept((c) -> c.editOriginal(Localization.instance().linking.linkFailed).queue());
                 } else {
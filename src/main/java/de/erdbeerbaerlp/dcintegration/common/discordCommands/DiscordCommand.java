@@ -92,7 +92,7 @@ public abstract class DiscordCommand extends CommandDataImpl {
     public boolean canUserExecuteCommand(User user) {
         final Member m = DiscordIntegration.INSTANCE.getMemberById(user.getIdLong());
         if (m == null) return false;
-        return !this.adminOnly() || DiscordIntegration.INSTANCE.hasAdminRole(m.getRoles());
+        return !this.adminOnly() || DiscordIntegration.INSTANCE.hasAdminRole(m);
     }
 
     public final boolean equals(DiscordCommand cmd) {
@@ -245,6 +245,12 @@ public class Configuration {
         public boolean discordRoleColorIngame = true;
         @TomlComment("Should you be able to hover and click on the discord username in-game?")
         public boolean enableHoverMessage = true;
+        @TomlComment({"Maximum amount of attachments listed in-game per discord message", "Further attachments are summarized in one line"})
+        public int maxIngameAttachments = 10;
+        @TomlComment({"Maximum amount of embeds shown in-game per discord message", "Further embeds are summarized in one line"})
+        public int maxIngameEmbeds = 5;
+        @TomlComment({"Maximum length of embed descriptions shown in-game", "Longer descriptions get cut off"})
+        public int maxEmbedDescriptionLength = 512;
 
         @TomlComment("List of characters that should be removed from usernames and chat messages before sending TO discord")
         public char[] charBlacklist = new char[]{'࿕', '࿖'};
@@ -392,8 +398,22 @@ public class Configuration {
 
         @TomlComment({"Allows you to change the target URL for the API to make it usable with custom discord instances like Spacebar", "DO NOT CHANGE if you don't know what you are doing!!"})
         public String baseAPIUrl = "https://discord.com";
-        @TomlComment({"Delay of sending webhook messages ingame in milliseconds", "If you get duplicate messages in webhook mode, increase this value a bit"})
+        @TomlComment({"Grace period in milliseconds for webhook messages received while one of our own webhook sends is still in flight", "Other webhook messages are forwarded ingame immediately", "If you get duplicate messages in webhook mode, increase this value a bit"})
         public long webhookMessageDelay = 200;
+        @TomlComment({"Amount of recently sent messages to remember", "Used to forward reactions in-game and to detect duplicate messages"})
+        public int recentMessageCapacity = 1000;
+        @TomlComment({"Maximum amount of discord members to cache", "Members which are used less often get removed first"})
+        public int memberCacheSize = 1000;
+        @TomlComment("Time in seconds discord members are cached")
+        public long memberCacheTTL = 600;
+        @TomlComment("Time in seconds to remember that a user is not a member of the server")
+        public long memberCacheNegativeTTL = 60;
+        @TomlComment({"Only keep linked and recently active discord members in memory", "Reduces memory usage on big discord servers, other members get retrieved from discord when needed", "Requires a restart"})
+        public boolean leanMemberCache = false;
+        @TomlComment({"Amount of recently active discord members to keep in memory when leanMemberCache is enabled", "Linked members are always kept"})
+        public int leanActiveMembers = 500;
+        @TomlComment({"Amount of gateway shards to connect with, for bots in a lot of discord servers", "0 uses a single connection, -1 uses the amount recommended by discord", "Requires a restart"})
+        public int shardCount = 0;
     }
 
     public static class ForgeSpecific {
@@ -439,6 +459,10 @@ public class Configuration {
         public boolean testAvatarURL = true;
         @TomlComment({"Alternative avatar URL used when main URL is not reachable"})
         public String fallbackAvatarURL = "https://minotar.net/avatar/%uuid%?randomuuid=%randomUUID%";
+        @TomlComment({"Additional avatar URLs to test alongside playerAvatarURL and fallbackAvatarURL", "The fastest reachable URL will be used", "Supports the same placeholders as playerAvatarURL"})
+        public String[] additionalAvatarURLs = new String[0];
+        @TomlComment({"Connect and read timeout in milliseconds when testing avatar URLs"})
+        public int avatarTestTimeout = 3000;
         public String webhookName = "MC_DC_INTEGRATION";
     }
 
@@ -466,6 +490,11 @@ public class Configuration {
 
         @TomlComment("Adding Role IDs here will require the players to have at least ONE of these roles to link account")
         public String[] requiredRoles = new String[0];
+
+        @TomlComment({"Interval in minutes in which the whitelist gets rebuilt from all links and member roles", "Fixes players missing from (or left in) the whitelist after missed discord events"})
+        public int whitelistReconcileInterval = 10;
+        @TomlComment({"Delay in milliseconds before changed player links are written to LinkedPlayers.json", "All changes made within this delay are combined into one write, 0 writes changes right away"})
+        public int linkSaveDelay = 2000;
         @TomlComment({"Adding setting keys to this array will prevent those settings to be changed", "They will still show up in the list though"})
         public String[] settingsBlacklist = new String[0];
         @TomlComment("Allows you to configure the default values of some personal settings")
@@ -58,6 +58,8 @@ public class Localization {
     public String embedImage = "Image";
     @TomlComment("Message shown for embed messages")
     public String embedMessage = "Message";
+    @TomlComment({"Shown in-game for attachments and embeds exceeding the configured limits", "PLACEHOLDERS:", "%count% - Amount of hidden attachments or embeds"})
+    public String attachmentsOmitted = "... and %count% more";
     @TomlComment("Hover message for the bot tag in-game")
     public String bot = "This user is an application";
     @TomlComment("Strings about the discord commands")
@@ -0,0 +1,173 @@
+package de.erdbeerbaerlp.dcintegration.common.storage.linking;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Immutable index from discord IDs, java UUIDs and floodgate UUIDs to positions in a list of links.<br>
+ * Keys are stored as primitive longs in open addressing tables, so lookups neither allocate nor hash strings
+ */
+public class LinkIndex {
+    /**
+     * Returned by lookups if there is no link with the key
+     */
+    public static final int NOT_FOUND = -1;
+
+    private final long[] discordKeys;
+    private final int[] discordSlots;
+    private final long[] javaMost, javaLeast;
+    private final int[] javaSlots;
+    private final long[] bedrockMost, bedrockLeast;
+    private final int[] bedrockSlots;
+    private int skipped;
+
+    /**
+     * Indexes the links, later links replacing earlier ones with the same key.<br>
+     * Discord IDs which are not numbers and invalid UUIDs are not indexed
+     *
+     * @param links Links to index
+     */
+    public LinkIndex(List<PlayerLink> links) {
+        int java = 0, bedrock = 0;
+        for (final PlayerLink link : links) {
+            if (!isEmpty(link.mcPlayerUUID)) java++;
+            if (!isEmpty(link.floodgateUUID)) bedrock++;
+        }
+        discordKeys = new long[capacity(links.size())];
+        discordSlots = new int[discordKeys.length];
+        javaMost = new long[capacity(java)];
+        javaLeast = new long[javaMost.length];
+        javaSlots = new int[javaMost.length];
+        bedrockMost = new long[capacity(bedrock)];
+        bedrockLeast = new long[bedrockMost.length];
+        bedrockSlots = new int[bedrockMost.length];
+        for (int i = 0; i < links.size(); i++) {
+            final PlayerLink link = links.get(i);
+            final long discordID = parseID(link.discordID);
+            if (discordID != 0) put(discordKeys, discordSlots, discordID, i);
+            else if (!isEmpty(link.discordID)) skipped++;
+            if (!isEmpty(link.mcPlayerUUID)) {
+                final UUID uuid = parseUUID(link.mcPlayerUUID);
+                if (uuid != null) put(javaMost, javaLeast, javaSlots, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), i);
+                else skipped++;
+            }
+            if (!isEmpty(link.floodgateUUID)) {
+                final UUID uuid = parseUUID(link.floodgateUUID);
+                if (uuid != null) put(bedrockMost, bedrockLeast, bedrockSlots, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), i);
+                else skipped++;
+            }
+        }
+    }
+
+    /**
+     * @return Amount of keys which could not be indexed
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @param discordID Discord user ID
+     * @return Position of the link, or {@link #NOT_FOUND}
+     */
+    public int findDiscord(long discordID) {
+        final int mask = discordKeys.length - 1;
+        for (int i = (int) mix(discordID) & mask; ; i = (i + 1) & mask) {
+            final int slot = discordSlots[i];
+            if (slot == 0) return NOT_FOUND;
+            if (discordKeys[i] == discordID) return slot - 1;
+        }
+    }
+
+    /**
+     * @param discordID Discord user ID as string
+     * @return Position of the link, or {@link #NOT_FOUND}
+     */
+    public int findDiscord(String discordID) {
+        final long id = parseID(discordID);
+        return id == 0 ? NOT_FOUND : findDiscord(id);
+    }
+
+    /**
+     * @param uuid Java player UUID
+     * @return Position of the link, or {@link #NOT_FOUND}
+     */
+    public int findJava(UUID uuid) {
+        return find(javaMost, javaLeast, javaSlots, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * @param uuid Floodgate player UUID
+     * @return Position of the link, or {@link #NOT_FOUND}
+     */
+    public int findBedrock(UUID uuid) {
+        return find(bedrockMost, bedrockLeast, bedrockSlots, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    private static int find(long[] most, long[] least, int[] slots, long msb, long lsb) {
+        final int mask = slots.length - 1;
+        for (int i = (int) mix(msb * 31 + lsb) & mask; ; i = (i + 1) & mask) {
+            final int slot = slots[i];
+            if (slot == 0) return NOT_FOUND;
+            if (most[i] == msb && least[i] == lsb) return slot - 1;
+        }
+    }
+
+    // Slots store the position plus one, so that zero marks free slots
+
+    private static void put(long[] keys, int[] slots, long key, int position) {
+        final int mask = keys.length - 1;
+        int i = (int) mix(key) & mask;
+        while (slots[i] != 0 && keys[i] != key) i = (i + 1) & mask;
+        keys[i] = key;
+        slots[i] = position + 1;
+    }
+
+    private static void put(long[] most, long[] least, int[] slots, long msb, long lsb, int position) {
+        final int mask = slots.length - 1;
+        int i = (int) mix(msb * 31 + lsb) & mask;
+        while (slots[i] != 0 && (most[i] != msb || least[i] != lsb)) i = (i + 1) & mask;
+        most[i] = msb;
+        least[i] = lsb;
+        slots[i] = position + 1;
+    }
+
+    /**
+     * @return Power of two table size keeping the load factor at or below 0.5
+     */
+    private static int capacity(int entries) {
+        return Integer.highestOneBit(Math.max(entries, 2) * 2 - 1) << 1;
+    }
+
+    /**
+     * Spreads the key bits, as snowflakes and UUIDs have lots of similar bits
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static boolean isEmpty(String s) {
+        return s == null || s.isEmpty();
+    }
+
+    private static long parseID(String id) {
+        if (isEmpty(id)) return 0;
+        try {
+            return Long.parseUnsignedLong(id);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static UUID parseUUID(String uuid) {
+        try {
+            return UUID.fromString(uuid);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
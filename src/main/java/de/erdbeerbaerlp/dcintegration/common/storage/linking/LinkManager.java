@@ -4,22 +4,18 @@ import com.google.gson.JsonObject;
 import com.google.gson.stream.JsonReader;
 import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
 import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
-import org.apache.commons.collections4.KeyValue;
-import org.apache.commons.collections4.keyvalue.DefaultKeyValue;
 
 import javax.net.ssl.HttpsURLConnection;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URL;
-import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
 
 @SuppressWarnings("unused")
 public class LinkManager {
 
     private static final String API_URL = "https://api.erdbeerbaerlp.de/dcintegration/link";
-    private static ArrayList<PlayerLink> linkCache = new ArrayList<>();
+    private static final LinkStore linkCache = new LinkStore();
 
     /**
      * Player UUID cache for players not on global linking API
@@ -29,22 +25,22 @@ public class LinkManager {
     /**
      * Pending /discord link requests
      */
-    public static final HashMap<Integer, KeyValue<Instant, UUID>> pendingLinks = new HashMap<>();
+    public static final PendingLinks pendingLinks = new PendingLinks();
     /**
      * Pending /discord link requests for floodgate users
      */
-    public static final HashMap<Integer, KeyValue<Instant, UUID>> pendingBedrockLinks = new HashMap<>();
+    public static final PendingLinks pendingBedrockLinks = new PendingLinks();
 
     public static void load() {
         if (Configuration.instance().linking.enableLinking) {
-            linkCache = new ArrayList<>(Arrays.asList(DiscordIntegration.INSTANCE.getDatabaseInterface().getAllLinks()));
-            DiscordIntegration.LOGGER.debug("LinkManager load | cache: " + linkCache);
+            linkCache.replaceAll(Arrays.asList(DiscordIntegration.INSTANCE.getDatabaseInterface().getAllLinks()));
+            DiscordIntegration.LOGGER.debug("LinkManager load | cache: " + linkCache.getAll());
         }
     }
 
     public static void save() {
         if (Configuration.instance().linking.enableLinking)
-            linkCache.forEach((l) -> DiscordIntegration.INSTANCE.getDatabaseInterface().addLink(l));
+            linkCache.getAll().forEach((l) -> DiscordIntegration.INSTANCE.getDatabaseInterface().addLink(l));
     }
 
     /**
@@ -67,8 +63,10 @@ public class LinkManager {
             final JsonObject o = DiscordIntegration.gson.fromJson(new JsonReader(new InputStreamReader(connection.getInputStream())), JsonObject.class);
             if (o.has("dcID") && !o.get("dcID").getAsString().isEmpty()) {
                 connection.disconnect();
-                if (addLink(new PlayerLink(o.get("dcID").getAsString(), uuid.toString(), "", o.get("settings") == null ? new PlayerSettings() : DiscordIntegration.gson.fromJson(o.get("settings"), PlayerSettings.class)))) {
-                    save();
+                final PlayerLink link = new PlayerLink(o.get("dcID").getAsString(), uuid.toString(), "", o.get("settings") == null ? new PlayerSettings() : DiscordIntegration.gson.fromJson(o.get("settings"), PlayerSettings.class));
+                if (addLink(link)) {
+                    // Only this link changed, no need to save all of them
+                    DiscordIntegration.INSTANCE.getDatabaseInterface().addLink(link);
                     return true;
                 }
             }
@@ -81,8 +79,11 @@ public class LinkManager {
 
     }
 
-    public static ArrayList<PlayerLink> getAllLinks() {
-        return linkCache;
+    /**
+     * @return Unmodifiable snapshot of all links
+     */
+    public static List<PlayerLink> getAllLinks() {
+        return linkCache.getAll();
     }
 
     /**
@@ -94,11 +95,34 @@ public class LinkManager {
     public static boolean unlinkPlayer(String discordID) {
         if (!DiscordIntegration.INSTANCE.getServerInterface().isOnlineMode()) return false;
         if (!Configuration.instance().linking.enableLinking) return false;
-        linkCache.removeIf(link -> link.discordID.equals(discordID));
+        for (final PlayerLink link : linkCache.removeByDiscordIDs(Collections.singleton(discordID))) {
+            if (Configuration.instance().linking.whitelistMode) DiscordIntegration.INSTANCE.getWhitelistIndex().unlinked(link);
+            linkChanged(link);
+        }
         DiscordIntegration.INSTANCE.getDatabaseInterface().removeLink(discordID);
         return true;
     }
 
+    /**
+     * Unlinks multiple players from the local database in one operation
+     *
+     * @param discordIDs discord IDs of the players to unlink
+     * @return Amount of removed links
+     */
+    public static int unlinkPlayers(Collection<String> discordIDs) {
+        if (!DiscordIntegration.INSTANCE.getServerInterface().isOnlineMode()) return 0;
+        if (!Configuration.instance().linking.enableLinking) return 0;
+        if (discordIDs.isEmpty()) return 0;
+        final Set<String> remove = new HashSet<>(discordIDs);
+        final List<PlayerLink> removed = linkCache.removeByDiscordIDs(remove);
+        for (final PlayerLink link : removed) {
+            if (Configuration.instance().linking.whitelistMode) DiscordIntegration.INSTANCE.getWhitelistIndex().unlinked(link);
+            linkChanged(link);
+        }
+        DiscordIntegration.INSTANCE.getDatabaseInterface().removeLinks(remove);
+        return removed.size();
+    }
+
     /**
      * Links a discord user ID with a player's {@link UUID}
      *
@@ -149,12 +173,7 @@ public class LinkManager {
     public static boolean isJavaPlayerLinked(UUID player) {
         if (!DiscordIntegration.INSTANCE.getServerInterface().isOnlineMode()) return false;
         if (!Configuration.instance().linking.enableLinking) return false;
-        for (final PlayerLink o : getAllLinks()) {
-            if (o.mcPlayerUUID != null && !o.mcPlayerUUID.isEmpty() && o.mcPlayerUUID.equals(player.toString())) {
-                return true;
-            }
-        }
-        return false;
+        return linkCache.getByJavaUUID(player) != null;
     }
 
     /**
@@ -166,12 +185,8 @@ public class LinkManager {
     public static boolean isDiscordUserLinkedToJava(String discordID) {
         if (!DiscordIntegration.INSTANCE.getServerInterface().isOnlineMode()) return false;
         if (!Configuration.instance().linking.enableLinking) return false;
-        for (final PlayerLink o : getAllLinks()) {
-            if (!o.discordID.isEmpty() && o.discordID.equals(discordID)) {
-                return !(o.mcPlayerUUID == null || o.mcPlayerUUID.isEmpty());
-            }
-        }
-        return false;
+        final PlayerLink o = linkCache.getByDiscordID(discordID);
+        return o != null && !(o.mcPlayerUUID == null || o.mcPlayerUUID.isEmpty());
     }
 
     /**
@@ -196,12 +211,8 @@ public class LinkManager {
     public static boolean isDiscordUserLinkedToBedrock(String discordID) {
         if (!DiscordIntegration.INSTANCE.getServerInterface().isOnlineMode()) return false;
         if (!Configuration.instance().linking.enableLinking) return false;
-        for (final PlayerLink o : getAllLinks()) {
-            if (!o.discordID.isEmpty() && o.discordID.equals(discordID)) {
-                return o.floodgateUUID != null && !o.floodgateUUID.isEmpty();
-            }
-        }
-        return false;
+        final PlayerLink o = linkCache.getByDiscordID(discordID);
+        return o != null && o.floodgateUUID != null && !o.floodgateUUID.isEmpty();
     }
 
 
@@ -227,13 +238,7 @@ public class LinkManager {
     public static boolean isBedrockPlayerLinked(UUID player) {
         if (!DiscordIntegration.INSTANCE.getServerInterface().isOnlineMode()) return false;
         if (!Configuration.instance().linking.enableLinking) return false;
-
-        for (final PlayerLink o : getAllLinks()) {
-            if (o.floodgateUUID != null && !o.floodgateUUID.isEmpty() && o.floodgateUUID.equals(player.toString())) {
-                return true;
-            }
-        }
-        return false;
+        return linkCache.getByBedrockUUID(player) != null;
     }
 
 
@@ -246,17 +251,33 @@ public class LinkManager {
     public static boolean addLink(final PlayerLink l) {
         if (!Configuration.instance().linking.enableLinking) return false;
         if (l.discordID == null) return false;
-        PlayerLink tmp = null;
-        for (final PlayerLink link : getAllLinks()) {
-            if (link.discordID.equals(l.discordID) || (link.mcPlayerUUID != null && !link.mcPlayerUUID.isEmpty() && link.mcPlayerUUID.equals(l.mcPlayerUUID)) || (link.floodgateUUID != null && !link.floodgateUUID.isEmpty() && link.floodgateUUID.equals(l.floodgateUUID)))
-                tmp = link;
+        final List<PlayerLink> replaced = linkCache.put(l);
+        DiscordIntegration.LOGGER.debug("LinkManager addLink | replaced:" + replaced + ", l:" + l);
+        if (DiscordIntegration.INSTANCE != null) {
+            final boolean whitelist = Configuration.instance().linking.whitelistMode;
+            for (final PlayerLink tmp : replaced) {
+                if (whitelist) DiscordIntegration.INSTANCE.getWhitelistIndex().unlinked(tmp);
+                linkChanged(tmp);
+            }
+            if (whitelist) DiscordIntegration.INSTANCE.getWhitelistIndex().linked(l);
+            linkChanged(l);
         }
-        if (tmp != null) linkCache.remove(tmp);
-        DiscordIntegration.LOGGER.debug("LinkManager addLink | tmp:" + tmp + ", l:" + l + ", linkCache:" + linkCache);
-        linkCache.add(l);
         return true;
     }
 
+    /**
+     * Updates the pingable discord name of the online players of a link
+     */
+    private static void linkChanged(final PlayerLink link) {
+        for (final String uuid : new String[]{link.mcPlayerUUID, link.floodgateUUID}) {
+            if (uuid == null || uuid.isEmpty()) continue;
+            try {
+                DiscordIntegration.INSTANCE.getPingIndex().linkChanged(UUID.fromString(uuid));
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+    }
+
     /**
      * Gets the player link from one of the given parameters, if it exists
      *
@@ -267,20 +288,9 @@ public class LinkManager {
     public static PlayerLink getLink(final String discordID, final UUID uuid) {
         if (!Configuration.instance().linking.enableLinking) return null;
         if (uuid == null && discordID == null) return null;
-        if (discordID != null) {
-            for (final PlayerLink l : getAllLinks()) {
-                if (l.discordID.equals(discordID))
-                    return l;
-            }
-        }
-        if (uuid != null) {
-            for (final PlayerLink l : getAllLinks()) {
-                if (isFloodgateUUID(uuid) ? l.floodgateUUID.equals(uuid.toString()) : l.mcPlayerUUID.equals(uuid.toString()))
-                    return l;
-            }
-
-        }
-        return null;
+        final PlayerLink link = linkCache.getByDiscordID(discordID);
+        if (link != null || uuid == null) return link;
+        return isFloodgateUUID(uuid) ? linkCache.getByBedrockUUID(uuid) : linkCache.getByJavaUUID(uuid);
     }
 
     private static boolean isFloodgateUUID(final UUID uuid) {
@@ -295,7 +305,7 @@ public class LinkManager {
      * @return Link number for this player
      */
     public static int genLinkNumber(UUID uniqueID) {
-        return genLinkNumber(uniqueID, pendingLinks);
+        return pendingLinks.generate(uniqueID);
     }
 
     /**
@@ -305,20 +315,6 @@ public class LinkManager {
      * @return Link number for this player
      */
     public static int genBedrockLinkNumber(UUID uniqueID) {
-        return genLinkNumber(uniqueID, pendingBedrockLinks);
-    }
-
-    private static int genLinkNumber(UUID uniqueID, HashMap<Integer, KeyValue<Instant, UUID>> targetMap) {
-        final AtomicInteger r = new AtomicInteger(-1);
-        targetMap.forEach((k, v) -> {
-            if (v.getValue().equals(uniqueID))
-                r.set(k);
-        });
-        if (r.get() != -1) return r.get();
-        do {
-            r.set(new Random().nextInt(99999));
-        } while (targetMap.containsKey(r.get()));
-        targetMap.put(r.get(), new DefaultKeyValue<>(Instant.now(), uniqueID));
-        return r.get();
+        return pendingBedrockLinks.generate(uniqueID);
     }
 }
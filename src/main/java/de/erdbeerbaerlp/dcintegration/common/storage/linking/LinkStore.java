@@ -0,0 +1,150 @@
+package de.erdbeerbaerlp.dcintegration.common.storage.linking;
+
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+
+import java.util.*;
+
+/**
+ * In-memory player links, indexed by discord ID, java UUID and floodgate UUID using a {@link LinkIndex}.<br>
+ * Readers work on an immutable snapshot without locking, writers build a new snapshot and publish it in one step, so the indexes are always consistent with each other
+ */
+public class LinkStore {
+    private static final class Snapshot {
+        final List<PlayerLink> links;
+        final LinkIndex index;
+
+        Snapshot(List<PlayerLink> links) {
+            this.links = Collections.unmodifiableList(links);
+            index = new LinkIndex(links);
+        }
+
+        PlayerLink get(int position) {
+            return position == LinkIndex.NOT_FOUND ? null : links.get(position);
+        }
+    }
+
+    private volatile Snapshot snapshot = new Snapshot(new ArrayList<>());
+
+    /**
+     * @return Unmodifiable snapshot of all links
+     */
+    public List<PlayerLink> getAll() {
+        return snapshot.links;
+    }
+
+    /**
+     * @return Amount of stored links
+     */
+    public int size() {
+        return snapshot.links.size();
+    }
+
+    /**
+     * @param discordID Discord user ID
+     * @return The link of this user, or null
+     */
+    public PlayerLink getByDiscordID(String discordID) {
+        final Snapshot snapshot = this.snapshot;
+        return snapshot.get(snapshot.index.findDiscord(discordID));
+    }
+
+    /**
+     * @param discordID Discord user ID
+     * @return The link of this user, or null
+     */
+    public PlayerLink getByDiscordID(long discordID) {
+        final Snapshot snapshot = this.snapshot;
+        return snapshot.get(snapshot.index.findDiscord(discordID));
+    }
+
+    /**
+     * @param uuid Java player UUID
+     * @return The link of this player, or null
+     */
+    public PlayerLink getByJavaUUID(UUID uuid) {
+        final Snapshot snapshot = this.snapshot;
+        return uuid == null ? null : snapshot.get(snapshot.index.findJava(uuid));
+    }
+
+    /**
+     * @param uuid Floodgate player UUID
+     * @return The link of this player, or null
+     */
+    public PlayerLink getByBedrockUUID(UUID uuid) {
+        final Snapshot snapshot = this.snapshot;
+        return uuid == null ? null : snapshot.get(snapshot.index.findBedrock(uuid));
+    }
+
+    /**
+     * Replaces all links, for example after loading them from the database.<br>
+     * Links sharing a discord ID or UUID with an earlier link are skipped
+     *
+     * @param links Links to store
+     */
+    public synchronized void replaceAll(Collection<PlayerLink> links) {
+        final List<PlayerLink> unique = new ArrayList<>(links.size());
+        final Set<String> discordIDs = new HashSet<>(), javaUUIDs = new HashSet<>(), bedrockUUIDs = new HashSet<>();
+        for (final PlayerLink link : links) {
+            if (link == null || link.discordID == null) continue;
+            if (taken(discordIDs, link.discordID) || taken(javaUUIDs, link.mcPlayerUUID) || taken(bedrockUUIDs, link.floodgateUUID)) {
+                DiscordIntegration.LOGGER.warn("Ignoring duplicate player link " + link);
+                continue;
+            }
+            discordIDs.add(link.discordID);
+            javaUUIDs.add(link.mcPlayerUUID);
+            bedrockUUIDs.add(link.floodgateUUID);
+            unique.add(link);
+        }
+        snapshot = new Snapshot(unique);
+        if (snapshot.index.getSkipped() > 0)
+            DiscordIntegration.LOGGER.warn(snapshot.index.getSkipped() + " player links contain invalid discord IDs or UUIDs, these can not be looked up");
+    }
+
+    private static boolean taken(Set<String> keys, String key) {
+        return key != null && !key.isEmpty() && keys.contains(key);
+    }
+
+    /**
+     * Adds a link, replacing all links sharing its discord ID or one of its UUIDs
+     *
+     * @param link Link to add, which may already be stored and modified
+     * @return The replaced links, which may include the added link itself
+     */
+    public synchronized List<PlayerLink> put(PlayerLink link) {
+        final List<PlayerLink> replaced = new ArrayList<>(1);
+        final List<PlayerLink> links = new ArrayList<>(snapshot.links.size() + 1);
+        for (final PlayerLink existing : snapshot.links) {
+            if (existing == link || conflicts(existing, link)) replaced.add(existing);
+            else links.add(existing);
+        }
+        links.add(link);
+        snapshot = new Snapshot(links);
+        return replaced;
+    }
+
+    private static boolean conflicts(PlayerLink a, PlayerLink b) {
+        return a.discordID.equals(b.discordID) || sameKey(a.mcPlayerUUID, b.mcPlayerUUID) || sameKey(a.floodgateUUID, b.floodgateUUID);
+    }
+
+    private static boolean sameKey(String a, String b) {
+        return a != null && !a.isEmpty() && a.equals(b);
+    }
+
+    /**
+     * Removes the links of the given discord users
+     *
+     * @param discordIDs Discord user IDs
+     * @return The removed links
+     */
+    public synchronized List<PlayerLink> removeByDiscordIDs(Collection<String> discordIDs) {
+        final Set<String> remove = discordIDs instanceof Set ? (Set<String>) discordIDs : new HashSet<>(discordIDs);
+        final List<PlayerLink> removed = new ArrayList<>();
+        final List<PlayerLink> links = new ArrayList<>(snapshot.links.size());
+        for (final PlayerLink link : snapshot.links) {
+            if (remove.contains(link.discordID)) removed.add(link);
+            else links.add(link);
+        }
+        if (!removed.isEmpty()) snapshot = new Snapshot(links);
+        return removed;
+    }
+}
@@ -0,0 +1,165 @@
+package de.erdbeerbaerlp.dcintegration.common.storage.linking;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Pending /discord link codes, expiring after a fixed time.<br>
+ * Codes are indexed in both directions, expiry is driven by a timing wheel so that {@link #expire()} only looks at the codes which are due
+ */
+public class PendingLinks {
+    /**
+     * Codes are numbers between 0 (inclusive) and this (exclusive)
+     */
+    private static final int MAX_CODE = 99999;
+
+    private static final class Entry {
+        final int code;
+        final UUID player;
+        final long deadline;
+
+        Entry(int code, UUID player, long deadline) {
+            this.code = code;
+            this.player = player;
+            this.deadline = deadline;
+        }
+    }
+
+    private final ConcurrentHashMap<Integer, Entry> byCode = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, Entry> byPlayer = new ConcurrentHashMap<>();
+    private final long ttl, tick;
+    private final LongSupplier clock;
+    private final long origin;
+    /**
+     * Codes by the tick they expire in, modulo the wheel size
+     */
+    private final HashSet<Integer>[] wheel;
+    /**
+     * Last tick which was expired
+     */
+    private long expiredTick;
+
+    /**
+     * Creates a store with codes expiring after 10 minutes
+     */
+    public PendingLinks() {
+        this(Duration.ofMinutes(10), Duration.ofSeconds(10), System::nanoTime);
+    }
+
+    /**
+     * @param ttl   Time after which codes expire
+     * @param tick  Resolution of the expiry
+     * @param clock Time source in nanoseconds
+     */
+    @SuppressWarnings("unchecked")
+    public PendingLinks(Duration ttl, Duration tick, LongSupplier clock) {
+        this.ttl = ttl.toNanos();
+        this.tick = tick.toNanos();
+        this.clock = clock;
+        this.origin = clock.getAsLong();
+        // One extra slot, so that codes never land in the slot which is currently expiring
+        wheel = (HashSet<Integer>[]) new HashSet<?>[(int) ((this.ttl + this.tick - 1) / this.tick) + 2];
+        for (int i = 0; i < wheel.length; i++) wheel[i] = new HashSet<>();
+    }
+
+    /**
+     * Gets the code of a player, or generates a new one
+     *
+     * @param player The player's {@link UUID}
+     * @return Link code for this player
+     */
+    public int generate(UUID player) {
+        final long now = clock.getAsLong() - origin;
+        final Entry[] created = new Entry[1];
+        final Entry entry = byPlayer.compute(player, (uuid, existing) -> {
+            if (existing != null && existing.deadline > now) return existing;
+            if (existing != null) byCode.remove(existing.code, existing);
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            do {
+                created[0] = new Entry(random.nextInt(MAX_CODE), uuid, now + ttl);
+            } while (byCode.putIfAbsent(created[0].code, created[0]) != null);
+            return created[0];
+        });
+        // Scheduled outside of compute, as expiring removes from the maps while holding the wheel lock
+        if (created[0] != null) schedule(created[0]);
+        return entry.code;
+    }
+
+    private void schedule(Entry entry) {
+        final long deadlineTick = (entry.deadline + tick - 1) / tick;
+        synchronized (wheel) {
+            wheel[(int) (deadlineTick % wheel.length)].add(entry.code);
+        }
+    }
+
+    /**
+     * @param code Link code
+     * @return The player waiting for this code to be used, or null if the code is unknown or expired
+     */
+    public UUID getPlayer(int code) {
+        final Entry entry = byCode.get(code);
+        if (entry == null || entry.deadline <= clock.getAsLong() - origin) return null;
+        return entry.player;
+    }
+
+    /**
+     * @param code Link code
+     * @return true if the code is pending and not expired
+     */
+    public boolean contains(int code) {
+        return getPlayer(code) != null;
+    }
+
+    /**
+     * Removes a code, for example after it was used
+     *
+     * @param code Link code
+     * @return The player the code belonged to, or null
+     */
+    public UUID remove(int code) {
+        final Entry entry = byCode.remove(code);
+        if (entry == null) return null;
+        byPlayer.remove(entry.player, entry);
+        return entry.player;
+    }
+
+    /**
+     * @return true if there are no pending codes
+     */
+    public boolean isEmpty() {
+        return byCode.isEmpty();
+    }
+
+    /**
+     * @return Amount of pending codes, including expired codes which were not removed yet
+     */
+    public int size() {
+        return byCode.size();
+    }
+
+    /**
+     * Removes the codes which expired since the last call
+     */
+    public void expire() {
+        final long now = clock.getAsLong() - origin;
+        final long currentTick = now / tick;
+        synchronized (wheel) {
+            // After a long pause every slot is due once
+            final long from = Math.max(expiredTick + 1, currentTick - wheel.length + 1);
+            for (long t = from; t <= currentTick; t++) {
+                wheel[(int) (t % wheel.length)].removeIf((code) -> {
+                    final Entry entry = byCode.get(code);
+                    if (entry == null) return true;
+                    if (entry.deadline > now) return false;
+                    if (byCode.remove(code, entry)) byPlayer.remove(entry.player, entry);
+                    return true;
+                });
+            }
+            expiredTick = Math.max(expiredTick, currentTick);
+        }
+    }
+}
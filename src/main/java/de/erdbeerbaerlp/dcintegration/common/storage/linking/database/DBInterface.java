@@ -4,6 +4,7 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import de.erdbeerbaerlp.dcintegration.common.storage.linking.PlayerLink;
 
+import java.util.Collection;
 import java.util.concurrent.TimeUnit;
 
 public abstract class DBInterface {
@@ -33,6 +34,21 @@ public abstract class DBInterface {
      * Deletes a player link from the database
      */
     public abstract void removeLink(String id);
+
+    /**
+     * Deletes multiple player links from the database<br>
+     * Removes them one by one by default, implementations should remove them in a single operation where possible
+     */
+    public void removeLinks(Collection<String> ids) {
+        for (final String id : ids) removeLink(id);
+    }
+    /**
+     * Writes changes which were not persisted yet, called before shutting down<br>
+     * Implementations writing every change right away do not need to override this
+     */
+    public void flush() {
+    }
+
     /**
      * Gets the link in the database using floodgate uuid
      */
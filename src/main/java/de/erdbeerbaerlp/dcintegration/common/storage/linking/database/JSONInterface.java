@@ -3,19 +3,64 @@ package de.erdbeerbaerlp.dcintegration.common.storage.linking.database;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
 import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import de.erdbeerbaerlp.dcintegration.common.WorkThread;
+import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
 import de.erdbeerbaerlp.dcintegration.common.storage.linking.PlayerLink;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Default JSON database implementation
+ * Default JSON database implementation<br>
+ * Links are kept in memory, changes are written back to the file in one atomic write after {@link Configuration.Linking#linkSaveDelay} and by {@link #flush()}
  */
 public class JSONInterface extends DBInterface {
 
     public static final File jsonFile = new File(DiscordIntegration.discordDataDir, "LinkedPlayers.json");
 
+    private final File file;
+    /**
+     * Links by discord ID, in file order
+     */
+    private final LinkedHashMap<String, JsonObject> links = new LinkedHashMap<>();
+    /**
+     * Discord IDs by java and floodgate UUID
+     */
+    private final HashMap<String, String> javaOwners = new HashMap<>(), bedrockOwners = new HashMap<>();
+    private boolean loaded;
+    private boolean writeScheduled;
+    /**
+     * Serializes writes, so that an older snapshot never overwrites a newer one
+     */
+    private final Object writeLock = new Object();
+
+    private long changes, writes, failedWrites, lastWriteNanos;
+    /**
+     * Amount of changes contained in the file
+     */
+    private long persistedChanges;
+
+    public JSONInterface() {
+        this(jsonFile);
+    }
+
+    /**
+     * @param file File to store the links in
+     */
+    public JSONInterface(File file) {
+        this.file = file;
+    }
+
     @Override
     public void connect() {
         //Not required for json files
@@ -25,11 +70,11 @@ public class JSONInterface extends DBInterface {
     @Override
     public void initialize() {
         try {
-            if (!jsonFile.getParentFile().exists())
-                jsonFile.getParentFile().mkdirs();
-            if (!jsonFile.exists()) {
-                jsonFile.createNewFile();
-                try (Writer writer = new FileWriter(jsonFile)) {
+            if (!file.getAbsoluteFile().getParentFile().exists())
+                file.getAbsoluteFile().getParentFile().mkdirs();
+            if (!file.exists()) {
+                file.createNewFile();
+                try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
                     gson.toJson(new JsonArray(), writer);
                 }
             }
@@ -37,68 +82,208 @@ public class JSONInterface extends DBInterface {
         } catch (IOException e) {
             e.printStackTrace();
         }
+        synchronized (this) {
+            load();
+        }
     }
 
     @Override
     public boolean isConnected() {
-        return jsonFile.exists();
+        return file.exists();
     }
 
     @Override
-    public void addLink(final PlayerLink link) {
-        DiscordIntegration.LOGGER.debug("JSONInterface addLink | Saving "+link);
-        final JsonArray json = getJson();
-        DiscordIntegration.LOGGER.debug("JSONInterface addLink | json (old): " + json);
-        for (final JsonElement e : json) {
-            final PlayerLink o = gson.fromJson(e, PlayerLink.class);
-            if (o.discordID.equals(link.discordID) || (o.floodgateUUID != null && !o.floodgateUUID.isEmpty() && o.floodgateUUID.equals(link.floodgateUUID)) || (o.mcPlayerUUID != null && !o.mcPlayerUUID.isEmpty() && o.mcPlayerUUID.equals(link.mcPlayerUUID))) {
-                json.remove(e);
-                DiscordIntegration.LOGGER.debug("JSONInterface addLink | Removing old link from json "+o.discordID);
-                break;
-            }
-        }
-        json.add(gson.toJsonTree(link).getAsJsonObject());
-        DiscordIntegration.LOGGER.debug("JSONInterface addLink | json (new): " + json);
-        try (Writer writer = new FileWriter(jsonFile)) {
-            gson.toJson(json, writer);
-            DiscordIntegration.LOGGER.debug("JSONInterface addLink | Written to File");
-        } catch (IOException ex) {
-            ex.printStackTrace();
-        }
+    public synchronized void addLink(final PlayerLink link) {
+        load();
+        DiscordIntegration.LOGGER.debug("JSONInterface addLink | Saving " + link);
+        if (put(gson.toJsonTree(link).getAsJsonObject(), link)) changed();
+    }
+
+    @Override
+    public synchronized void removeLink(final String id) {
+        load();
+        if (remove(id)) changed();
+    }
+
+    @Override
+    public synchronized void removeLinks(final Collection<String> ids) {
+        load();
+        boolean removed = false;
+        for (final String id : ids)
+            removed |= remove(id);
+        if (removed) changed();
+    }
+
+    @Override
+    public synchronized PlayerLink[] getAllLinks() {
+        load();
+        final PlayerLink[] all = new PlayerLink[links.size()];
+        int i = 0;
+        for (final JsonObject o : links.values())
+            all[i++] = gson.fromJson(o, PlayerLink.class);
+        return all;
     }
 
+    /**
+     * Writes pending changes to the file right away
+     */
     @Override
-    public void removeLink(final String id) {
-        for (final JsonElement e : getJson()) {
-            final PlayerLink o = gson.fromJson(e, PlayerLink.class);
-            if (o.discordID != null && o.discordID.equals(id)) {
-                final JsonArray json = getJson();
-                json.remove(e);
-                try (Writer writer = new FileWriter(jsonFile)) {
-                    gson.toJson(json, writer);
-                } catch (IOException ex) {
-                    ex.printStackTrace();
-                    return;
+    public void flush() {
+        synchronized (writeLock) {
+            final JsonArray json;
+            final long written;
+            synchronized (this) {
+                if (changes == persistedChanges) return;
+                written = changes;
+                json = new JsonArray();
+                for (final JsonObject o : links.values()) json.add(o);
+            }
+            final long start = System.nanoTime();
+            try {
+                write(json);
+                synchronized (this) {
+                    persistedChanges = written;
+                    writes++;
+                    lastWriteNanos = System.nanoTime() - start;
+                }
+                DiscordIntegration.LOGGER.debug("JSONInterface | Wrote " + json.size() + " links in " + TimeUnit.NANOSECONDS.toMillis(lastWriteNanos) + "ms");
+            } catch (IOException e) {
+                DiscordIntegration.LOGGER.error("Failed to save player links, retrying later: " + e.getMessage());
+                synchronized (this) {
+                    failedWrites++;
+                    scheduleWrite();
                 }
             }
         }
+    }
 
+    /**
+     * @return true if there are changes which were not written yet
+     */
+    public synchronized boolean isDirty() {
+        return changes != persistedChanges;
     }
 
-    @Override
-    public PlayerLink[] getAllLinks() {
-        return gson.fromJson(getJson(), PlayerLink[].class);
+    /**
+     * @return Amount of changes made since loading
+     */
+    public synchronized long getChangeCount() {
+        return changes;
+    }
+
+    /**
+     * @return Amount of successful writes, each covering one or more changes
+     */
+    public synchronized long getWriteCount() {
+        return writes;
+    }
+
+    /**
+     * @return Amount of writes which failed and were retried
+     */
+    public synchronized long getFailedWriteCount() {
+        return failedWrites;
+    }
+
+    /**
+     * @return Duration of the last successful write in nanoseconds
+     */
+    public synchronized long getLastWriteNanos() {
+        return lastWriteNanos;
+    }
+
+    private void changed() {
+        changes++;
+        scheduleWrite();
+    }
+
+    private void scheduleWrite() {
+        if (writeScheduled) return;
+        writeScheduled = true;
+        final long delay = Math.max(0, Configuration.instance().linking.linkSaveDelay);
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, WorkThread::executeJob).execute(() -> {
+            synchronized (this) {
+                writeScheduled = false;
+            }
+            flush();
+        });
+    }
+
+    /**
+     * Adds a link, replacing all links with the same discord ID or UUIDs
+     *
+     * @return false if the same link was already stored
+     */
+    private boolean put(JsonObject json, PlayerLink link) {
+        if (link.discordID == null) return false;
+        if (json.equals(links.get(link.discordID))) return false;
+        remove(link.discordID);
+        if (!isEmpty(link.mcPlayerUUID)) remove(javaOwners.get(link.mcPlayerUUID));
+        if (!isEmpty(link.floodgateUUID)) remove(bedrockOwners.get(link.floodgateUUID));
+        links.put(link.discordID, json);
+        if (!isEmpty(link.mcPlayerUUID)) javaOwners.put(link.mcPlayerUUID, link.discordID);
+        if (!isEmpty(link.floodgateUUID)) bedrockOwners.put(link.floodgateUUID, link.discordID);
+        return true;
     }
 
-    private static JsonArray getJson() {
-        final FileReader is;
+    private boolean remove(String discordID) {
+        if (discordID == null) return false;
+        final JsonObject removed = links.remove(discordID);
+        if (removed == null) return false;
+        final PlayerLink link = gson.fromJson(removed, PlayerLink.class);
+        if (!isEmpty(link.mcPlayerUUID)) javaOwners.remove(link.mcPlayerUUID, discordID);
+        if (!isEmpty(link.floodgateUUID)) bedrockOwners.remove(link.floodgateUUID, discordID);
+        return true;
+    }
+
+    private static boolean isEmpty(String s) {
+        return s == null || s.isEmpty();
+    }
+
+    /**
+     * Reads the file once, later reads are answered from memory
+     */
+    private void load() {
+        if (loaded) return;
+        loaded = true;
+        if (!file.exists()) return;
+        try (Reader r = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            final JsonElement json = JsonParser.parseReader(r);
+            if (!json.isJsonArray()) return;
+            for (final JsonElement e : json.getAsJsonArray()) {
+                if (!e.isJsonObject()) continue;
+                final PlayerLink link = gson.fromJson(e, PlayerLink.class);
+                if (link.discordID != null && links.containsKey(link.discordID) || !isEmpty(link.mcPlayerUUID) && javaOwners.containsKey(link.mcPlayerUUID)
+                        || !isEmpty(link.floodgateUUID) && bedrockOwners.containsKey(link.floodgateUUID)) {
+                    // Written back without it on the next change
+                    DiscordIntegration.LOGGER.warn("Ignoring duplicate player link " + link);
+                    continue;
+                }
+                put(e.getAsJsonObject(), link);
+            }
+        } catch (IOException | JsonParseException e) {
+            DiscordIntegration.LOGGER.error("Failed to load player links: " + e.getMessage());
+            // Keep a copy, as the next change replaces the file
+            try {
+                Files.copy(file.toPath(), new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".broken").toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException ex) {
+                DiscordIntegration.LOGGER.error("Failed to back up " + file.getName() + ": " + ex.getMessage());
+            }
+        }
+    }
+
+    private void write(JsonArray json) throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists()) parent.mkdirs();
+        // Write to a temporary file first, so that a crash can't leave a truncated file behind
+        final File tmp = new File(parent, file.getName() + ".tmp");
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            gson.toJson(json, w);
+        }
         try {
-            is = new FileReader(jsonFile);
-            final JsonArray a = JsonParser.parseReader(is).getAsJsonArray();
-            is.close();
-            return a;
-        } catch (IOException e) {
-            return new JsonArray();
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
         }
     }
 
@@ -71,10 +71,12 @@ public class ConfigValidator {
         ValidationResult result = new ValidationResult();
         
         validateGeneral(config, result);
+        validateMessages(config, result);
         validateChannels(config, result);
         validateEmbedMode(config, result);
         validateLinking(config, result);
         validateRateLimiting(config, result);
+        validateAdvanced(config, result);
         
         return result;
     }
@@ -210,6 +212,14 @@ public class ConfigValidator {
                 }
             }
         }
+
+        if (config.linking.whitelistMode && config.linking.whitelistReconcileInterval < 1) {
+            result.addError("linking.whitelistReconcileInterval must be at least 1 minute, got: " + config.linking.whitelistReconcileInterval);
+        }
+
+        if (config.linking.linkSaveDelay < 0) {
+            result.addError("linking.linkSaveDelay must not be negative, got: " + config.linking.linkSaveDelay);
+        }
         
         // Validate admin roles
         if (config.commands.adminRoleIDs != null) {
@@ -248,6 +258,41 @@ public class ConfigValidator {
         }
     }
     
+    private static void validateMessages(@NotNull Configuration config, @NotNull ValidationResult result) {
+        if (config.messages.maxIngameAttachments < 0) {
+            result.addError("messages.maxIngameAttachments cannot be negative!");
+        }
+        
+        if (config.messages.maxIngameEmbeds < 0) {
+            result.addError("messages.maxIngameEmbeds cannot be negative!");
+        }
+        
+        if (config.messages.maxEmbedDescriptionLength < 0) {
+            result.addError("messages.maxEmbedDescriptionLength cannot be negative!");
+        }
+    }
+    
+    private static void validateAdvanced(@NotNull Configuration config, @NotNull ValidationResult result) {
+        if (config.advanced.recentMessageCapacity <= 0) {
+            result.addError("advanced.recentMessageCapacity must be greater than 0!");
+        }
+        
+        if (config.advanced.memberCacheSize <= 0) {
+            result.addError("advanced.memberCacheSize must be greater than 0!");
+        }
+        
+        if (config.advanced.memberCacheTTL < 0 || config.advanced.memberCacheNegativeTTL < 0) {
+            result.addError("advanced.memberCacheTTL and advanced.memberCacheNegativeTTL cannot be negative!");
+        }
+        
+        if (config.advanced.leanMemberCache && config.advanced.leanActiveMembers <= 0) {
+            result.addError("advanced.leanActiveMembers must be greater than 0!");
+        }
+        if (config.advanced.shardCount < -1) {
+            result.addError("advanced.shardCount must be -1, 0 or a positive number of shards, got: " + config.advanced.shardCount);
+        }
+    }
+    
     /**
      * Validates if a string is a valid Discord ID (17-20 digits)
      */
@@ -2,21 +2,17 @@ package de.erdbeerbaerlp.dcintegration.common.threads;
 
 import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
 import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
+import de.erdbeerbaerlp.dcintegration.common.util.avatar.AvatarProvider;
+import de.erdbeerbaerlp.dcintegration.common.util.avatar.AvatarProviderMonitor;
 
-import java.io.IOException;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.TimerTask;
-import java.util.UUID;
 
 public class APITestTask extends TimerTask {
     private final DiscordIntegration dc;
-    private String url = Configuration.instance().webhook.playerAvatarURL;
-
-    // == Values used for testing the URL
-    private static final UUID testUUID = UUID.fromString("210f7275-c79f-44f8-a7a0-7da71c751bb9");
-    private static final String testName = "ErdbeerbaerLP";
-    // ==
+    private final AvatarProviderMonitor monitor = new AvatarProviderMonitor(Configuration.instance().webhook.avatarTestTimeout, 3, 60000);
 
     public APITestTask(final DiscordIntegration dc) {
         this.dc = dc;
@@ -24,22 +20,28 @@ public class APITestTask extends TimerTask {
 
     @Override
     public void run() {
-        final String urlToTest = Configuration.instance().webhook.playerAvatarURL.replace("%uuid%", testUUID.toString()).replace("%uuid_dashless%", testUUID.toString().replace("-", "")).replace("%name%", testName).replace("%randomUUID%", UUID.randomUUID().toString());
-        try {
-            final HttpURLConnection c = (HttpURLConnection) new URL(urlToTest).openConnection();
-            c.connect();
-            if(c.getResponseCode() == 200){
-                url = Configuration.instance().webhook.playerAvatarURL;
-                return;
-            }
-            c.disconnect();
-        } catch (IOException e) {
-
-        }
-        url = Configuration.instance().webhook.fallbackAvatarURL;
+        if (!Configuration.instance().webhook.testAvatarURL) return;
+        final List<String> urls = new ArrayList<>();
+        urls.add(Configuration.instance().webhook.playerAvatarURL);
+        urls.addAll(Arrays.asList(Configuration.instance().webhook.additionalAvatarURLs));
+        urls.add(Configuration.instance().webhook.fallbackAvatarURL);
+        monitor.setProviders(urls);
+        monitor.probeAll(); // Runs on the probe threads, never blocking the timer
+    }
+
+    public String getSkinURL() {
+        if (!Configuration.instance().webhook.testAvatarURL) return Configuration.instance().webhook.playerAvatarURL;
+        final AvatarProvider best = monitor.getBestProvider();
+        return best == null ? Configuration.instance().webhook.fallbackAvatarURL : best.getUrlTemplate();
     }
 
-    public String getSkinURL(){
-        return url;
+    public AvatarProviderMonitor getMonitor() {
+        return monitor;
+    }
+
+    @Override
+    public boolean cancel() {
+        monitor.shutdown();
+        return super.cancel();
     }
 }
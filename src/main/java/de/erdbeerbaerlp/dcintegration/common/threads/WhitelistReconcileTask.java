@@ -0,0 +1,26 @@
+package de.erdbeerbaerlp.dcintegration.common.threads;
+
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
+
+import java.util.TimerTask;
+
+/**
+ * Periodically rebuilds the whitelist eligibility set, fixing drift from missed discord events
+ */
+public class WhitelistReconcileTask extends TimerTask {
+    private final DiscordIntegration dc;
+
+    public WhitelistReconcileTask(final DiscordIntegration dc) {
+        this.dc = dc;
+    }
+
+    @Override
+    public void run() {
+        if (!Configuration.instance().linking.whitelistMode) return;
+        // Only after the links were loaded, an earlier reconciliation would refuse everyone.
+        // Until one pass completed without failed lookups, this also retries the first reconciliation
+        if (!dc.getWhitelistIndex().isStarted()) return;
+        dc.getWhitelistIndex().reconcile();
+    }
+}
@@ -0,0 +1,94 @@
+package de.erdbeerbaerlp.dcintegration.common.util;
+
+import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
+import de.erdbeerbaerlp.dcintegration.common.storage.Localization;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.sticker.StickerItem;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.TextColor;
+import net.kyori.adventure.text.format.TextDecoration;
+
+import java.util.List;
+
+/**
+ * Renders attachments, embeds and stickers of discord messages for the ingame chat.<br>
+ * The amount of attachments and embeds and the length of embed descriptions are limited by {@link Configuration.Messages},
+ * content exceeding the limits is summarized in a single line
+ */
+public class AttachmentRenderer {
+    private static final TextColor LINK_COLOR = TextColor.color(0x06, 0x45, 0xAD);
+
+    /**
+     * Renders everything attached to a message
+     *
+     * @param attachments Attachments of the message
+     * @param embeds      Embeds of the message
+     * @param stickers    Stickers of the message
+     * @return Rendered component, or {@link Component#empty()} if there is nothing to render
+     */
+    public static Component render(final List<Message.Attachment> attachments, final List<MessageEmbed> embeds, final List<StickerItem> stickers) {
+        if (attachments.isEmpty() && embeds.isEmpty() && stickers.isEmpty()) return Component.empty();
+        final Configuration.Messages config = Configuration.instance().messages;
+        final Localization lang = Localization.instance();
+        final TextComponent.Builder out = Component.text();
+        if (!attachments.isEmpty()) {
+            out.append(Component.newline()).append(Component.text(lang.attachment + ":").decorate(TextDecoration.UNDERLINED));
+            final int shown = Math.min(attachments.size(), Math.max(0, config.maxIngameAttachments));
+            for (int i = 0; i < shown; i++) {
+                final Message.Attachment a = attachments.get(i);
+                out.append(Component.newline()).append(Component.text(a.getFileName()).decorate(TextDecoration.UNDERLINED).color(LINK_COLOR).clickEvent(ClickEvent.openUrl(a.getUrl())));
+            }
+            if (shown < attachments.size())
+                out.append(Component.newline()).append(summary(attachments.size() - shown));
+        }
+        final StringBuilder text = new StringBuilder();
+        int shownEmbeds = 0, hiddenEmbeds = 0;
+        for (final MessageEmbed e : embeds) {
+            if (e.isEmpty()) continue;
+            if (shownEmbeds >= config.maxIngameEmbeds) {
+                hiddenEmbeds++;
+                continue;
+            }
+            shownEmbeds++;
+            out.append(Component.text("\n-----[" + lang.embed + "]-----\n"));
+            if (e.getAuthor() != null && e.getAuthor().getName() != null && !e.getAuthor().getName().trim().isEmpty()) {
+                out.append(Component.text(e.getAuthor().getName() + "\n").decorate(TextDecoration.BOLD).decorate(TextDecoration.ITALIC));
+            }
+            if (e.getTitle() != null && !e.getTitle().trim().isEmpty()) {
+                out.append(Component.text(e.getTitle() + "\n").decorate(TextDecoration.BOLD));
+            }
+            final String description = e.getDescription();
+            if (description != null && !description.trim().isEmpty()) {
+                text.setLength(0);
+                text.append(lang.embedMessage).append(":\n");
+                int max = Math.max(0, config.maxEmbedDescriptionLength);
+                if (description.length() > max) {
+                    // Don't split a surrogate pair, which would leave half an emoji behind
+                    if (max > 0 && Character.isHighSurrogate(description.charAt(max - 1))) max--;
+                    text.append(description, 0, max).append("...");
+                }
+                else text.append(description);
+                out.append(Component.text(text.append('\n').toString()));
+            }
+            if (e.getImage() != null && e.getImage().getUrl() != null && !e.getImage().getUrl().isEmpty()) {
+                out.append(Component.text(lang.embedImage + ": " + e.getImage().getUrl() + "\n"));
+            }
+            out.append(Component.text("\n-----------------"));
+        }
+        if (hiddenEmbeds > 0) out.append(Component.newline()).append(summary(hiddenEmbeds));
+        for (final StickerItem s : stickers)
+            out.append(Component.text("\n" + lang.sticker + ": " + s.getName()));
+        return out.build();
+    }
+
+    /**
+     * Only created when there actually is content exceeding the limits
+     */
+    private static Component summary(final int hidden) {
+        return Component.text(Localization.instance().attachmentsOmitted.replace("%count%", String.valueOf(hidden)), NamedTextColor.GRAY).decorate(TextDecoration.ITALIC);
+    }
+}
@@ -0,0 +1,154 @@
+package de.erdbeerbaerlp.dcintegration.common.util;
+
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import net.dv8tion.jda.api.entities.channel.Channel;
+import net.dv8tion.jda.api.entities.channel.attribute.IGuildChannelContainer;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the message channels messages get sent to, kept up to date by channel create, delete and archive events.<br>
+ * Configured channel aliases like "default" are resolved once per config reload
+ */
+public class ChannelIndex {
+    /**
+     * Maximum amount of remembered IDs which did not resolve to a channel
+     */
+    private static final int MAX_MISSING = 1024;
+
+    private final ConcurrentHashMap<Long, GuildMessageChannel> channels = new ConcurrentHashMap<>();
+    /**
+     * IDs which did not resolve to a message channel, until a channel gets created
+     */
+    private final Set<Long> missing = ConcurrentHashMap.newKeySet();
+    private volatile Map<String, Long> aliasIDs = Map.of();
+    private volatile Map<String, GuildMessageChannel> aliases = Map.of();
+    /**
+     * JDA or shard manager to look up channels in
+     */
+    private volatile IGuildChannelContainer<Channel> source;
+
+    /**
+     * Resolves the configured channel aliases, for example after reloading the config
+     *
+     * @param source    JDA instance or shard manager to look up channels in
+     * @param defaultID ID of the default channel
+     * @param aliases   Configured channel IDs, "default" meaning the default channel
+     */
+    public void setAliases(IGuildChannelContainer<Channel> source, String defaultID, String... aliases) {
+        this.source = source;
+        channels.clear();
+        missing.clear();
+        final long defaultChannel = parseID(defaultID);
+        final HashMap<String, Long> ids = new HashMap<>();
+        ids.put("default", defaultChannel);
+        ids.put(defaultID, defaultChannel);
+        for (final String alias : aliases) {
+            if (alias == null || alias.isEmpty() || ids.containsKey(alias)) continue;
+            final long id = parseID(alias);
+            if (id != 0) ids.put(alias, id);
+        }
+        aliasIDs = ids;
+        resolveAliases();
+    }
+
+    private void resolveAliases() {
+        final HashMap<String, GuildMessageChannel> resolved = new HashMap<>();
+        aliasIDs.forEach((alias, id) -> {
+            final GuildMessageChannel channel = get(id);
+            if (channel != null) resolved.put(alias, channel);
+        });
+        aliases = resolved;
+    }
+
+    /**
+     * @param alias Configured channel ID or "default"
+     * @return The resolved channel, or null if the alias is unknown or did not resolve
+     */
+    public GuildMessageChannel getAlias(String alias) {
+        return aliases.get(alias);
+    }
+
+    /**
+     * Gets a message channel or thread, looking it up in JDA's cache if it is not indexed yet
+     *
+     * @param id Channel ID
+     * @return The channel, or null if there is no message channel with this ID
+     */
+    public GuildMessageChannel get(long id) {
+        final GuildMessageChannel channel = channels.get(id);
+        if (channel != null || id == 0 || missing.contains(id)) return channel;
+        final GuildMessageChannel resolved = resolve(id);
+        if (resolved != null) channels.put(id, resolved);
+        else {
+            if (missing.size() >= MAX_MISSING) missing.clear();
+            missing.add(id);
+        }
+        return resolved;
+    }
+
+    /**
+     * @param id Channel ID as string
+     * @return The channel, or null if the ID is invalid or there is no message channel with this ID
+     */
+    public GuildMessageChannel get(String id) {
+        return get(parseID(id));
+    }
+
+    private GuildMessageChannel resolve(long id) {
+        final IGuildChannelContainer<Channel> source = this.source;
+        if (source == null) return null;
+        final GuildMessageChannel text = source.getTextChannelById(id);
+        if (text != null) return text;
+        final GuildChannel channel = source.getChannelById(GuildChannel.class, id);
+        if (channel instanceof GuildMessageChannel) return (GuildMessageChannel) channel;
+        if (channel != null) DiscordIntegration.LOGGER.error("Target Channel ID is not a valid message channel!");
+        return null;
+    }
+
+    /**
+     * Drops all indexed channels and resolves the aliases again, for example after joining a guild
+     */
+    public void refresh() {
+        channels.clear();
+        missing.clear();
+        resolveAliases();
+    }
+
+    /**
+     * Adds a channel to the index
+     */
+    public void put(GuildMessageChannel channel) {
+        channels.put(channel.getIdLong(), channel);
+        missing.remove(channel.getIdLong());
+    }
+
+    /**
+     * Indexes a created channel or thread
+     */
+    public void channelCreated(Channel channel) {
+        if (!(channel instanceof GuildMessageChannel)) return;
+        put((GuildMessageChannel) channel);
+        if (aliasIDs.containsValue(channel.getIdLong())) resolveAliases();
+    }
+
+    /**
+     * Removes a deleted channel or archived thread
+     */
+    public void channelRemoved(Channel channel) {
+        if (channels.remove(channel.getIdLong()) != null && aliases.containsValue(channel)) resolveAliases();
+    }
+
+    private static long parseID(String id) {
+        try {
+            return Long.parseUnsignedLong(id.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
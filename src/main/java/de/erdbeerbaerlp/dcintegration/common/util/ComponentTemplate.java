@@ -0,0 +1,135 @@
+package de.erdbeerbaerlp.dcintegration.common.util;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+
+/**
+ * Legacy formatted message compiled into a flat list of styled literals and placeholder slots.<br>
+ * Rendering fills the slots directly instead of walking the component tree once per placeholder using {@link Component#replaceText}
+ */
+public class ComponentTemplate {
+    private final String source;
+    private final String[] placeholders;
+    /**
+     * Literal component of each segment, or null for slots
+     */
+    private final Component[] literals;
+    /**
+     * Placeholder index of each segment, or -1 for literals
+     */
+    private final int[] slots;
+    /**
+     * Style inherited by the value of each slot
+     */
+    private final Style[] styles;
+
+    private ComponentTemplate(String source, String[] placeholders, Component[] literals, int[] slots, Style[] styles) {
+        this.source = source;
+        this.placeholders = placeholders;
+        this.literals = literals;
+        this.slots = slots;
+        this.styles = styles;
+    }
+
+    /**
+     * Compiles a legacy (§) formatted string
+     *
+     * @param legacyFormat Format containing placeholders
+     * @param placeholders Placeholders to turn into slots, for example %msg%
+     * @return Compiled template
+     */
+    public static ComponentTemplate compile(String legacyFormat, String... placeholders) {
+        final Builder builder = new Builder(placeholders);
+        builder.walk(LegacyComponentSerializer.legacySection().deserialize(legacyFormat), Style.empty());
+        return new ComponentTemplate(legacyFormat, placeholders.clone(), builder.literals.toArray(new Component[0]),
+                builder.slots.stream().mapToInt(Integer::intValue).toArray(), builder.styles.toArray(new Style[0]));
+    }
+
+    /**
+     * @return The format this template was compiled from
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Renders the template
+     *
+     * @param values Slot values in the order of the placeholders passed to {@link #compile(String, String...)}.<br>
+     *               Missing or null values keep the placeholder text
+     * @return Rendered component
+     */
+    public Component render(@Nullable Component... values) {
+        final TextComponent.Builder out = Component.text();
+        for (int i = 0; i < slots.length; i++) {
+            final int slot = slots[i];
+            if (slot < 0) {
+                out.append(literals[i]);
+                continue;
+            }
+            final Component value = slot < values.length && values[slot] != null ? values[slot] : Component.text(placeholders[slot]);
+            out.append(styles[i].isEmpty() ? value : Component.text().style(styles[i]).append(value).build());
+        }
+        return out.build();
+    }
+
+    private static class Builder {
+        private final String[] placeholders;
+        private final ArrayList<Component> literals = new ArrayList<>();
+        private final ArrayList<Integer> slots = new ArrayList<>();
+        private final ArrayList<Style> styles = new ArrayList<>();
+
+        Builder(String[] placeholders) {
+            this.placeholders = placeholders;
+        }
+
+        void walk(Component component, Style parentStyle) {
+            final Style style = component.style().merge(parentStyle, Style.Merge.Strategy.IF_ABSENT_ON_TARGET);
+            if (component instanceof TextComponent) {
+                split(((TextComponent) component).content(), style);
+            } else {
+                // Not produced by the legacy serializer, keep as is
+                literals.add(component.children(new ArrayList<>()).style(style));
+                slots.add(-1);
+                styles.add(style);
+                return;
+            }
+            for (Component child : component.children())
+                walk(child, style);
+        }
+
+        private void split(String content, Style style) {
+            int pos = 0;
+            while (pos < content.length()) {
+                int next = -1, slot = -1;
+                for (int i = 0; i < placeholders.length; i++) {
+                    if (placeholders[i].isEmpty()) continue;
+                    final int idx = content.indexOf(placeholders[i], pos);
+                    if (idx >= 0 && (next < 0 || idx < next)) {
+                        next = idx;
+                        slot = i;
+                    }
+                }
+                if (next < 0) break;
+                addLiteral(content.substring(pos, next), style);
+                literals.add(null);
+                slots.add(slot);
+                styles.add(style);
+                pos = next + placeholders[slot].length();
+            }
+            addLiteral(content.substring(pos), style);
+        }
+
+        private void addLiteral(String text, Style style) {
+            if (text.isEmpty()) return;
+            literals.add(Component.text(text, style));
+            slots.add(-1);
+            styles.add(style);
+        }
+    }
+}
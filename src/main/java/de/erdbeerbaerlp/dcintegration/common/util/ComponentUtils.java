@@ -2,23 +2,22 @@ package de.erdbeerbaerlp.dcintegration.common.util;
 
 import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
 import de.erdbeerbaerlp.dcintegration.common.storage.Localization;
-import de.erdbeerbaerlp.dcintegration.common.storage.linking.LinkManager;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.User;
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.PatternReplacementResult;
+import net.kyori.adventure.text.TextComponent;
 import net.kyori.adventure.text.TextReplacementConfig;
 import net.kyori.adventure.text.event.ClickEvent;
 import net.kyori.adventure.text.event.HoverEvent;
 import net.kyori.adventure.text.format.Style;
 import net.kyori.adventure.text.format.TextColor;
 import net.kyori.adventure.text.format.TextDecoration;
-import org.apache.commons.collections4.keyvalue.DefaultMapEntry;
 import org.intellij.lang.annotations.RegExp;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 @SuppressWarnings("unused")
 public class ComponentUtils {
@@ -44,7 +43,31 @@ public class ComponentUtils {
      */
 
     public static Component makeURLsClickable(final Component in) {
-        return in.replaceText(TextReplacementConfig.builder().match(MessageUtils.URL_PATTERN).replacement(url -> url.decorate(TextDecoration.UNDERLINED).color(TextColor.color(0x06, 0x45, 0xAD)).clickEvent(ClickEvent.openUrl(url.content()))).build());
+        final List<Component> children = in.children();
+        List<Component> newChildren = null;
+        for (int i = 0; i < children.size(); i++) {
+            final Component child = children.get(i);
+            final Component newChild = makeURLsClickable(child);
+            if (newChild != child && newChildren == null) newChildren = new ArrayList<>(children.subList(0, i));
+            if (newChildren != null) newChildren.add(newChild);
+        }
+        Component out = newChildren == null ? in : in.children(newChildren);
+        if (!(in instanceof TextComponent)) return out;
+        final String content = ((TextComponent) in).content();
+        final int[] urls = UrlTokenizer.findUrls(content);
+        if (urls.length == 0) return out;
+        // Keep the text before the first URL as content, URLs and the text between them become children inheriting the style
+        final ArrayList<Component> parts = new ArrayList<>(urls.length + out.children().size() + 1);
+        int pos = urls[0];
+        for (int i = 0; i < urls.length; i += 2) {
+            if (urls[i] > pos) parts.add(Component.text(content.substring(pos, urls[i])));
+            final String url = content.substring(urls[i], urls[i + 1]);
+            parts.add(Component.text(url).decorate(TextDecoration.UNDERLINED).color(TextColor.color(0x06, 0x45, 0xAD)).clickEvent(ClickEvent.openUrl(url)));
+            pos = urls[i + 1];
+        }
+        if (pos < content.length()) parts.add(Component.text(content.substring(pos)));
+        parts.addAll(out.children());
+        return ((TextComponent) out).content(content.substring(0, urls[0])).children(parts);
     }
 
     /**
@@ -148,7 +171,8 @@ public class ComponentUtils {
     }
 
     /**
-     * Parses and formats Pings/Mentions<br>Every found mention will get bold and colored in {@linkplain TextColors#PING}
+     * Parses and formats Pings/Mentions<br>Every found mention will get bold and colored in {@linkplain TextColors#PING}<br>
+     * Uses {@link PingIndex} to find the pings of all online players in a single pass
      *
      * @param msg  Message where Mentions should be formatted from
      * @param uuid {@link UUID} of the receiving player
@@ -157,19 +181,8 @@ public class ComponentUtils {
      */
 
     public static Map.Entry<Boolean, Component> parsePing(Component msg, UUID uuid, String name) {
-        AtomicBoolean hasPing = new AtomicBoolean(false);
-        msg = msg.replaceText(TextReplacementConfig.builder().matchLiteral("@" + name).replacement(Component.text("@" + name).style(Style.style(TextColors.PING).decorate(TextDecoration.BOLD))).condition((a, b) -> {
-            hasPing.set(true);
-            return PatternReplacementResult.REPLACE;
-        }).build());
-        if (!hasPing.get() && LinkManager.isPlayerLinked(uuid)) {
-            String dcname = DiscordIntegration.INSTANCE.getChannel().getGuild().retrieveMemberById(LinkManager.getLink(null,uuid).discordID).complete().getEffectiveName();
-            msg = msg.replaceText(TextReplacementConfig.builder().matchLiteral("@" + dcname).replacement(Component.text("@" + dcname).style(Style.style(TextColors.PING).decorate(TextDecoration.BOLD))).condition((a, b) -> {
-                hasPing.set(true);
-                return PatternReplacementResult.REPLACE;
-            }).build());
-        }
-        return new DefaultMapEntry<>(hasPing.get(), msg);
+        final PingIndex index = DiscordIntegration.INSTANCE == null ? new PingIndex() : DiscordIntegration.INSTANCE.getPingIndex();
+        return index.parsePing(msg, uuid, name);
     }
 
 
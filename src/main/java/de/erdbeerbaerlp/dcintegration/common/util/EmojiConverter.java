@@ -0,0 +1,187 @@
+package de.erdbeerbaerlp.dcintegration.common.util;
+
+import com.vdurmont.emoji.Emoji;
+import com.vdurmont.emoji.EmojiManager;
+import com.vdurmont.emoji.Fitzpatrick;
+import net.dv8tion.jda.api.entities.emoji.CustomEmoji;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts unicode emojis and discord custom emojis to their {@code :alias:} form in a single pass.<br>
+ * The lookup trie over all known emoji sequences is built once, on first use
+ */
+public class EmojiConverter {
+    private static final char ZWJ = '\u200D';
+    private static final char VARIATION_SELECTOR = '\uFE0F';
+
+    private static final class Node {
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        /**
+         * Emoji ending at this node, if any
+         */
+        Emoji emoji;
+
+        Node child(char c) {
+            final int idx = Arrays.binarySearch(keys, c);
+            return idx < 0 ? null : children[idx];
+        }
+
+        Node getOrAdd(char c) {
+            int idx = Arrays.binarySearch(keys, c);
+            if (idx >= 0) return children[idx];
+            idx = -idx - 1;
+            final char[] newKeys = new char[keys.length + 1];
+            final Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, idx);
+            System.arraycopy(children, 0, newChildren, 0, idx);
+            newKeys[idx] = c;
+            newChildren[idx] = new Node();
+            System.arraycopy(keys, idx, newKeys, idx + 1, keys.length - idx);
+            System.arraycopy(children, idx, newChildren, idx + 1, children.length - idx);
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[idx];
+        }
+    }
+
+    private static final class Table {
+        private final Node root = new Node();
+        /**
+         * ASCII characters which start an emoji sequence, like keycaps
+         */
+        private final boolean[] asciiStarts = new boolean[128];
+        private final Map<String, Fitzpatrick> modifiers = new HashMap<>();
+
+        Table() {
+            for (final Emoji e : EmojiManager.getAll()) {
+                final String unicode = e.getUnicode();
+                Node n = root;
+                for (int i = 0; i < unicode.length(); i++)
+                    n = n.getOrAdd(unicode.charAt(i));
+                if (n.emoji == null) n.emoji = e;
+                if (unicode.charAt(0) < 128) asciiStarts[unicode.charAt(0)] = true;
+            }
+            for (final Fitzpatrick f : Fitzpatrick.values())
+                modifiers.put(f.unicode, f);
+        }
+    }
+
+    private static final class Holder {
+        static final Table TABLE = new Table();
+    }
+
+    /**
+     * Converts all unicode emojis and the given custom emojis to their text form
+     *
+     * @param msg          Message containing emojis
+     * @param customEmojis Custom emojis to convert from {@code <:name:id>} to {@code :name:}, can be empty
+     * @return Converted message, or the input if nothing was converted
+     */
+    public static String toAliases(final String msg, final List<CustomEmoji> customEmojis) {
+        final Table table = Holder.TABLE;
+        StringBuilder out = null;
+        int copied = 0;
+        int i = 0;
+        final int len = msg.length();
+        while (i < len) {
+            final char c = msg.charAt(i);
+            if (c == '<' && !customEmojis.isEmpty()) {
+                final int end = matchCustomEmoji(msg, i, customEmojis);
+                if (end > 0) {
+                    if (out == null) out = new StringBuilder(len);
+                    out.append(msg, copied, i);
+                    final int nameStart = msg.indexOf(':', i) + 1;
+                    out.append(':').append(msg, nameStart, msg.indexOf(':', nameStart)).append(':');
+                    i = copied = end;
+                    continue;
+                }
+            }
+            if (c < 128 && !table.asciiStarts[c]) {
+                i++;
+                continue;
+            }
+            int end = matchEmoji(table, msg, i, len);
+            if (end < 0) {
+                i++;
+                continue;
+            }
+            if (out == null) out = new StringBuilder(len + 16);
+            out.append(msg, copied, i);
+            // Convert the emoji and every emoji joined to it using zero width joiners
+            while (true) {
+                final Emoji emoji = matchedEmoji(table, msg, i, end);
+                out.append(':').append(emoji.getAliases().get(0));
+                if (emoji.supportsFitzpatrick() && end + 2 <= len) {
+                    final Fitzpatrick modifier = table.modifiers.get(msg.substring(end, end + 2));
+                    if (modifier != null) {
+                        out.append('|').append(modifier.name().toLowerCase());
+                        end += 2;
+                    }
+                }
+                out.append(':');
+                if (end < len && msg.charAt(end) == VARIATION_SELECTOR) end++;
+                if (end + 1 < len && msg.charAt(end) == ZWJ) {
+                    final int next = matchEmoji(table, msg, end + 1, len);
+                    if (next > 0) {
+                        i = end + 1;
+                        end = next;
+                        continue;
+                    }
+                }
+                break;
+            }
+            i = copied = end;
+        }
+        if (out == null) return msg;
+        return out.append(msg, copied, len).toString();
+    }
+
+    /**
+     * @return End index of the longest emoji sequence starting at {@code start}, or -1
+     */
+    private static int matchEmoji(final Table table, final String msg, final int start, final int len) {
+        Node n = table.root;
+        int end = -1;
+        for (int i = start; i < len; i++) {
+            n = n.child(msg.charAt(i));
+            if (n == null) break;
+            if (n.emoji != null) end = i + 1;
+        }
+        return end;
+    }
+
+    private static Emoji matchedEmoji(final Table table, final String msg, final int start, final int end) {
+        Node n = table.root;
+        for (int i = start; i < end; i++)
+            n = n.child(msg.charAt(i));
+        return n.emoji;
+    }
+
+    /**
+     * Matches {@code <:name:id>} or {@code <a:name:id>} with an ID contained in the list
+     *
+     * @return End index of the custom emoji, or -1
+     */
+    private static int matchCustomEmoji(final String msg, final int start, final List<CustomEmoji> customEmojis) {
+        int i = start + 1;
+        final int len = msg.length();
+        if (i < len && msg.charAt(i) == 'a') i++;
+        if (i >= len || msg.charAt(i) != ':') return -1;
+        final int nameStart = ++i;
+        while (i < len && msg.charAt(i) != ':' && msg.charAt(i) != '>') i++;
+        if (i == nameStart || i >= len || msg.charAt(i) != ':') return -1;
+        final int idStart = ++i;
+        long id = 0;
+        while (i < len && i - idStart < 20 && msg.charAt(i) >= '0' && msg.charAt(i) <= '9')
+            id = id * 10 + (msg.charAt(i++) - '0');
+        if (i == idStart || i >= len || msg.charAt(i) != '>') return -1;
+        for (final CustomEmoji e : customEmojis)
+            if (e.getIdLong() == id) return i + 1;
+        return -1;
+    }
+}
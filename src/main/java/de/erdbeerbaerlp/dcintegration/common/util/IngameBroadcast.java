@@ -0,0 +1,127 @@
+package de.erdbeerbaerlp.dcintegration.common.util;
+
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * An ingame message sent to many players at once.<br>
+ * Recipients are split into groups receiving the same message, the JSON payload of each group is serialized only once,
+ * so that platforms can write the same data to every connection
+ */
+public class IngameBroadcast {
+    private final Component message;
+    private final boolean discordChat;
+    private List<Group> groups;
+
+    private IngameBroadcast(Component message, boolean discordChat) {
+        this.message = message;
+        this.discordChat = discordChat;
+    }
+
+    /**
+     * Creates a broadcast sent to every online player
+     *
+     * @param message Message to send
+     */
+    public static IngameBroadcast toEveryone(Component message) {
+        return new IngameBroadcast(message, false);
+    }
+
+    /**
+     * Creates a broadcast for discord chat, which is not sent to players ignoring discord messages and highlights pings of each player
+     *
+     * @param message Message to send
+     */
+    public static IngameBroadcast discordChat(Component message) {
+        return new IngameBroadcast(message, true);
+    }
+
+    /**
+     * @return The message without any per-player formatting
+     */
+    public Component getMessage() {
+        return message;
+    }
+
+    /**
+     * Splits the online players into groups, computed once per broadcast
+     *
+     * @return Recipient groups, each pinged player gets a group of their own
+     */
+    public synchronized List<Group> getGroups() {
+        if (groups != null) return groups;
+        final DiscordIntegration dc = DiscordIntegration.INSTANCE;
+        final Map<UUID, String> players = dc == null || dc.getServerInterface() == null ? Collections.emptyMap() : dc.getServerInterface().getPlayers();
+        final List<Group> out = new ArrayList<>();
+        final Set<UUID> everyone = new HashSet<>();
+        final Group base = new Group(message, false, everyone);
+        out.add(base);
+        for (final Map.Entry<UUID, String> player : players.entrySet()) {
+            if (discordChat) {
+                if (dc.isPlayerIgnoring(player.getKey())) continue;
+                final Map.Entry<Boolean, Component> ping = ComponentUtils.parsePing(message, player.getKey(), player.getValue());
+                if (ping.getKey()) {
+                    out.add(new Group(ping.getValue(), true, Collections.singleton(player.getKey())));
+                    continue;
+                }
+            }
+            everyone.add(player.getKey());
+        }
+        return groups = Collections.unmodifiableList(out);
+    }
+
+    /**
+     * Players receiving the same message
+     */
+    public static final class Group {
+        private final Component message;
+        private final boolean ping;
+        private final Set<UUID> recipients;
+        private volatile String json;
+
+        private Group(Component message, boolean ping, Set<UUID> recipients) {
+            this.message = message;
+            this.ping = ping;
+            this.recipients = Collections.unmodifiableSet(recipients);
+        }
+
+        /**
+         * @return Message of this group
+         */
+        public Component getMessage() {
+            return message;
+        }
+
+        /**
+         * @return Message of this group as JSON text component, serialized on first use
+         */
+        public String getJson() {
+            String out = json;
+            if (out == null) json = out = GsonComponentSerializer.gson().serialize(message);
+            return out;
+        }
+
+        /**
+         * @return true if the recipients of this group were pinged in the message
+         */
+        public boolean isPing() {
+            return ping;
+        }
+
+        /**
+         * @return {@link UUID}s of all players in this group
+         */
+        public Set<UUID> getRecipients() {
+            return recipients;
+        }
+    }
+}
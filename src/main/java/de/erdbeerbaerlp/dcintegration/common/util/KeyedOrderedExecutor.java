@@ -0,0 +1,93 @@
+package de.erdbeerbaerlp.dcintegration.common.util;
+
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread pool which runs tasks with the same key (for example a channel ID) strictly in submission order,
+ * while tasks with different keys run in parallel
+ */
+public class KeyedOrderedExecutor {
+    /**
+     * Maximum amount of tasks run for one key before giving other keys a chance
+     */
+    private static final int BATCH_SIZE = 32;
+
+    private final ExecutorService pool;
+    private final HashMap<Long, ArrayDeque<Runnable>> queues = new HashMap<>();
+
+    /**
+     * @param name    Name prefix of the worker threads
+     * @param threads Amount of worker threads
+     */
+    public KeyedOrderedExecutor(String name, int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(threads, r -> {
+            final Thread t = new Thread(r, name + " #" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Runs a task after all previously submitted tasks with the same key completed
+     *
+     * @param key  Ordering key
+     * @param task Task to run
+     */
+    public void execute(long key, Runnable task) {
+        synchronized (queues) {
+            final ArrayDeque<Runnable> queue = queues.get(key);
+            if (queue != null) {
+                queue.addLast(task);
+                return;
+            }
+            queues.put(key, new ArrayDeque<>());
+        }
+        schedule(key, task);
+    }
+
+    private void schedule(long key, Runnable first) {
+        try {
+            pool.execute(() -> drain(key, first));
+        } catch (RejectedExecutionException e) {
+            synchronized (queues) {
+                queues.remove(key);
+            }
+        }
+    }
+
+    private void drain(long key, Runnable first) {
+        Runnable task = first;
+        int ran = 0;
+        while (task != null) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                // Also catches errors, the queue of this key would never be drained again otherwise
+                DiscordIntegration.LOGGER.error("Exception in inbound task", t);
+            }
+            synchronized (queues) {
+                task = queues.get(key).pollFirst();
+                if (task == null) queues.remove(key);
+            }
+            if (task != null && ++ran >= BATCH_SIZE) {
+                schedule(key, task);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops the worker threads, tasks still waiting in a queue may be dropped
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
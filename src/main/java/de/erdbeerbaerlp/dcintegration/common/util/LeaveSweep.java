@@ -0,0 +1,111 @@
+package de.erdbeerbaerlp.dcintegration.common.util;
+
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Finds linked users who left the server, resolving members in batches through gateway member chunk requests
+ */
+public class LeaveSweep {
+    /**
+     * Maximum amount of IDs per member chunk request
+     */
+    public static final int BATCH_SIZE = 100;
+    /**
+     * Amount of member chunk requests running at the same time
+     */
+    public static final int MAX_CONCURRENT_BATCHES = 2;
+
+    private final Function<long[], CompletableFuture<List<Member>>> lookup;
+    private final int concurrency;
+
+    /**
+     * @param lookup      Resolves up to {@link #BATCH_SIZE} members, users who are not a member are missing from the result
+     * @param concurrency Amount of lookups running at the same time
+     */
+    public LeaveSweep(Function<long[], CompletableFuture<List<Member>>> lookup, int concurrency) {
+        this.lookup = lookup;
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * Creates a sweep resolving members of a guild using {@link Guild#retrieveMembersByIds(long...)}
+     */
+    public static LeaveSweep forGuild(Guild guild) {
+        return new LeaveSweep((ids) -> {
+            final CompletableFuture<List<Member>> future = new CompletableFuture<>();
+            guild.retrieveMembersByIds(ids).onSuccess(future::complete).onError(future::completeExceptionally);
+            return future;
+        }, MAX_CONCURRENT_BATCHES);
+    }
+
+    /**
+     * Checks which users are no longer a member of the server<br>
+     * Users of failed batches are never reported, so that they don't get unlinked by accident
+     *
+     * @param discordIDs IDs of the users to check
+     * @return Future completing with the IDs of users confirmed to have left
+     */
+    public CompletableFuture<Set<String>> run(Collection<String> discordIDs) {
+        final long[] ids = discordIDs.stream().distinct().mapToLong(LeaveSweep::parseID).filter((id) -> id != 0).toArray();
+        final Set<String> departed = ConcurrentHashMap.newKeySet();
+        if (ids.length == 0) return CompletableFuture.completedFuture(departed);
+        final int batches = (ids.length + BATCH_SIZE - 1) / BATCH_SIZE;
+        final AtomicInteger nextBatch = new AtomicInteger();
+        final AtomicInteger done = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(concurrency, batches)];
+        for (int i = 0; i < workers.length; i++)
+            workers[i] = next(ids, batches, nextBatch, done, failed, departed);
+        return CompletableFuture.allOf(workers).thenApply((v) -> {
+            DiscordIntegration.LOGGER.info("Checked " + ids.length + " linked users, " + departed.size() + " left the server" + (failed.get() > 0 ? ", " + failed.get() + " batches failed" : ""));
+            return departed;
+        });
+    }
+
+    /**
+     * Processes batches one after another until all were taken
+     */
+    private CompletableFuture<Void> next(long[] ids, int batches, AtomicInteger nextBatch, AtomicInteger done, AtomicInteger failed, Set<String> departed) {
+        final int batch = nextBatch.getAndIncrement();
+        if (batch >= batches) return CompletableFuture.completedFuture(null);
+        final long[] batchIDs = Arrays.copyOfRange(ids, batch * BATCH_SIZE, Math.min(ids.length, (batch + 1) * BATCH_SIZE));
+        CompletableFuture<List<Member>> request;
+        try {
+            request = lookup.apply(batchIDs);
+        } catch (RuntimeException e) {
+            request = CompletableFuture.failedFuture(e);
+        }
+        return request.handle((members, error) -> {
+            if (error != null) {
+                failed.incrementAndGet();
+                DiscordIntegration.LOGGER.warn("Failed to check linked users: " + error.getMessage());
+            } else {
+                final HashSet<Long> present = new HashSet<>();
+                for (final Member m : members) present.add(m.getIdLong());
+                for (final long id : batchIDs)
+                    if (!present.contains(id)) departed.add(Long.toUnsignedString(id));
+            }
+            final int finished = done.incrementAndGet();
+            // Report progress about every 10%
+            if (batches >= 10 && finished % (batches / 10) == 0 && finished < batches)
+                DiscordIntegration.LOGGER.info("Checking linked users: " + finished + "/" + batches + " batches");
+            return null;
+        }).thenCompose((v) -> next(ids, batches, nextBatch, done, failed, departed));
+    }
+
+    private static long parseID(String id) {
+        try {
+            return Long.parseUnsignedLong(id);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
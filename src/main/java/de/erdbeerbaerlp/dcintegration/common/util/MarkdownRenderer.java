@@ -0,0 +1,83 @@
+package de.erdbeerbaerlp.dcintegration.common.util;
+
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializer;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Converts discord markdown to {@link Component}s.<br>
+ * Messages without any markdown characters skip the markdown parser, formatted messages are cached by content
+ */
+public class MarkdownRenderer {
+    /**
+     * Maximum amount of cached formatted messages
+     */
+    private static final int CACHE_SIZE = 256;
+
+    private static final Map<String, Component> cache = new LinkedHashMap<String, Component>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Component> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Renders a discord message, converting line breaks to {@link Component#newline()}
+     *
+     * @param content Message content
+     * @return Rendered message
+     */
+    public static Component render(final String content) {
+        if (isPlainText(content)) return renderPlain(content);
+        synchronized (cache) {
+            final Component cached = cache.get(content);
+            if (cached != null) return cached;
+        }
+        @SuppressWarnings("unchecked") final Component out = MinecraftSerializer.INSTANCE.serialize(content.replace("\n", "\\n"), DiscordIntegration.mcSerializerOptions)
+                .replaceText(ComponentUtils.replaceLiteral("\\n", Component.newline()));
+        synchronized (cache) {
+            cache.put(content, out);
+        }
+        return out;
+    }
+
+    /**
+     * @param content Message content
+     * @return true if the content does not contain any character used by discord markdown, mentions or escapes
+     */
+    public static boolean isPlainText(final String content) {
+        for (int i = 0; i < content.length(); i++) {
+            switch (content.charAt(i)) {
+                case '*':
+                case '_':
+                case '~':
+                case '|':
+                case '`':
+                case '>':
+                case '<':
+                case '\\':
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private static Component renderPlain(final String content) {
+        int newline = content.indexOf('\n');
+        if (newline < 0) return Component.text(content);
+        final TextComponent.Builder out = Component.text();
+        int start = 0;
+        while (newline >= 0) {
+            if (newline > start) out.append(Component.text(content.substring(start, newline)));
+            out.append(Component.newline());
+            start = newline + 1;
+            newline = content.indexOf('\n', start);
+        }
+        if (start < content.length()) out.append(Component.text(content.substring(start)));
+        return out.build();
+    }
+}
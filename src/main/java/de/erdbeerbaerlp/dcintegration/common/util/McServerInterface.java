@@ -30,6 +30,16 @@ public interface McServerInterface {
      */
     void sendIngameMessage(Component msg);
 
+    /**
+     * Sends a message to all recipient groups of the broadcast.<br>
+     * Implementations should send {@link IngameBroadcast.Group#getJson()} to every player of a group instead of serializing the message per player
+     *
+     * @param broadcast Message to send
+     */
+    default void broadcastIngameMessage(IngameBroadcast broadcast) {
+        sendIngameMessage(broadcast.getMessage());
+    }
+
     /**
      * Sends a message to that specific player
      *
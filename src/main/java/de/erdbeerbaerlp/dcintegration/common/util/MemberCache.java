@@ -0,0 +1,208 @@
+package de.erdbeerbaerlp.dcintegration.common.util;
+
+import net.dv8tion.jda.api.entities.Member;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Thread safe, size bounded cache of guild members.<br>
+ * Entries expire after a TTL, users who are not a member of the guild are remembered for a shorter TTL.
+ * Entries which are read often get reloaded in the background shortly before they expire.
+ * When the cache is full, the least frequently used entry of a small sample gets evicted
+ */
+public class MemberCache {
+    /**
+     * Amount of entries compared when evicting
+     */
+    private static final int EVICTION_SAMPLES = 8;
+    /**
+     * Minimum amount of reads before an entry gets refreshed ahead of expiry
+     */
+    private static final int REFRESH_AHEAD_HITS = 3;
+    /**
+     * Entries get refreshed ahead once this fraction of their TTL has passed
+     */
+    private static final double REFRESH_AHEAD_FACTOR = 0.8;
+
+    private static final class Entry {
+        /**
+         * Cached member, null if the user is not a member of the guild
+         */
+        final Member member;
+        final long loadedAt;
+        final AtomicInteger hits = new AtomicInteger();
+        volatile boolean refreshing;
+
+        Entry(Member member, long loadedAt) {
+            this.member = member;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, CompletableFuture<Member>> loading = new ConcurrentHashMap<>();
+    private final Function<Long, CompletableFuture<Member>> loader;
+    private final LongSupplier clock;
+    private volatile int capacity;
+    private volatile long ttlMillis, negativeTtlMillis;
+
+    /**
+     * @param loader            Loads a member from discord, completing with null if the user is not a member
+     * @param capacity          Maximum amount of cached entries
+     * @param ttlMillis         Time in milliseconds members are cached
+     * @param negativeTtlMillis Time in milliseconds users who are not a member are cached
+     */
+    public MemberCache(Function<Long, CompletableFuture<Member>> loader, int capacity, long ttlMillis, long negativeTtlMillis) {
+        this(loader, capacity, ttlMillis, negativeTtlMillis, System::currentTimeMillis);
+    }
+
+    public MemberCache(Function<Long, CompletableFuture<Member>> loader, int capacity, long ttlMillis, long negativeTtlMillis, LongSupplier clock) {
+        this.loader = loader;
+        this.clock = clock;
+        setLimits(capacity, ttlMillis, negativeTtlMillis);
+    }
+
+    /**
+     * Changes the limits of this cache, for example after reloading the config
+     */
+    public void setLimits(int capacity, long ttlMillis, long negativeTtlMillis) {
+        this.capacity = Math.max(1, capacity);
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        evictIfFull();
+    }
+
+    /**
+     * Gets a member, loading it if it is not cached
+     *
+     * @param id User ID
+     * @return Future completing with the member, or null if the user is not a member of the guild
+     */
+    public CompletableFuture<Member> get(long id) {
+        final Entry e = getEntry(id);
+        if (e != null) return CompletableFuture.completedFuture(e.member);
+        return load(id);
+    }
+
+    /**
+     * @param id User ID
+     * @return true if there is a valid entry for this user, which might also be a cached absence
+     */
+    public boolean contains(long id) {
+        final Entry e = entries.get(id);
+        return e != null && !isExpired(e, clock.getAsLong());
+    }
+
+    /**
+     * Updates a member, if it is cached
+     *
+     * @param member Updated member
+     */
+    public void update(Member member) {
+        entries.computeIfPresent(member.getIdLong(), (id, old) -> new Entry(member, clock.getAsLong()));
+    }
+
+    /**
+     * Removes a user from the cache
+     *
+     * @param id User ID
+     */
+    public void invalidate(long id) {
+        entries.remove(id);
+    }
+
+    /**
+     * Removes all entries
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return Amount of entries, including expired ones not yet removed
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private Entry getEntry(long id) {
+        final Entry e = entries.get(id);
+        if (e == null) return null;
+        final long now = clock.getAsLong();
+        if (isExpired(e, now)) {
+            entries.remove(id, e);
+            return null;
+        }
+        final int hits = e.hits.incrementAndGet();
+        if (e.member != null && hits >= REFRESH_AHEAD_HITS && !e.refreshing && now - e.loadedAt >= ttlMillis * REFRESH_AHEAD_FACTOR) {
+            e.refreshing = true;
+            load(id);
+        }
+        return e;
+    }
+
+    private boolean isExpired(Entry e, long now) {
+        return now - e.loadedAt >= (e.member == null ? negativeTtlMillis : ttlMillis);
+    }
+
+    private CompletableFuture<Member> load(long id) {
+        final CompletableFuture<Member> existing = loading.get(id);
+        if (existing != null) return existing;
+        final CompletableFuture<Member> future = new CompletableFuture<>();
+        if (loading.putIfAbsent(id, future) != null) return loading.get(id);
+        try {
+            loader.apply(id).whenComplete((member, error) -> {
+                if (error == null) put(id, member);
+                loading.remove(id, future);
+                if (error == null) future.complete(member);
+                else future.completeExceptionally(error);
+            });
+        } catch (RuntimeException ex) {
+            loading.remove(id, future);
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    private void put(long id, Member member) {
+        final Entry entry = new Entry(member, clock.getAsLong());
+        final Entry old = entries.put(id, entry);
+        // Keep some of the frequency of reloaded entries, so that refreshed entries are not evicted right away
+        if (old != null) entry.hits.set(old.hits.get() / 2);
+        evictIfFull();
+    }
+
+    private void evictIfFull() {
+        while (entries.size() > capacity) {
+            final long now = clock.getAsLong();
+            final Iterator<Map.Entry<Long, Entry>> it = entries.entrySet().iterator();
+            // Start sampling at a random position, eviction only happens after loading a member from discord
+            for (int skip = ThreadLocalRandom.current().nextInt(Math.max(1, entries.size() - EVICTION_SAMPLES)); skip > 0 && it.hasNext(); skip--)
+                it.next();
+            Map.Entry<Long, Entry> victim = null;
+            int victimHits = Integer.MAX_VALUE;
+            for (int sampled = 0; sampled < EVICTION_SAMPLES && it.hasNext(); sampled++) {
+                final Map.Entry<Long, Entry> candidate = it.next();
+                if (isExpired(candidate.getValue(), now)) {
+                    victim = candidate;
+                    break;
+                }
+                // Age the sampled frequencies, so that entries which were popular a long time ago can be evicted eventually
+                final int hits = candidate.getValue().hits.getAndUpdate(h -> h >> 1);
+                if (hits < victimHits) {
+                    victim = candidate;
+                    victimHits = hits;
+                }
+            }
+            if (victim == null) return;
+            entries.remove(victim.getKey(), victim.getValue());
+        }
+    }
+}
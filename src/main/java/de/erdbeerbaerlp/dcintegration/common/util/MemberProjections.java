@@ -0,0 +1,218 @@
+package de.erdbeerbaerlp.dcintegration.common.util;
+
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Compact copy of the discord member data used ingame, for members which are not kept in JDA's member cache.<br>
+ * Stores ID, effective name, color and roles of each member in an open addressing table keyed by primitive longs.
+ * Roles are stored as bitsets, members with the same roles share the same bitset
+ */
+public class MemberProjections {
+    /**
+     * Color returned for unknown members, same as {@link Role#DEFAULT_COLOR_RAW}
+     */
+    public static final int NO_COLOR = Role.DEFAULT_COLOR_RAW;
+    private static final long[] NO_ROLES = new long[0];
+
+    private long[] keys = new long[16];
+    private String[] names = new String[16];
+    private int[] colors = new int[16];
+    private long[][] roles = new long[16][];
+    private int size;
+
+    /**
+     * Bit index of each role ID
+     */
+    private final HashMap<Long, Integer> roleBits = new HashMap<>();
+    /**
+     * Deduplicates role bitsets
+     */
+    private final HashMap<RoleSet, long[]> roleSets = new HashMap<>();
+
+    /**
+     * Stores or updates the projection of a member
+     *
+     * @param member Member to store
+     */
+    public void update(Member member) {
+        final List<Role> memberRoles = member.getRoles();
+        final long[] roleIDs = new long[memberRoles.size()];
+        for (int i = 0; i < roleIDs.length; i++) roleIDs[i] = memberRoles.get(i).getIdLong();
+        put(member.getIdLong(), member.getEffectiveName(), member.getColorRaw(), roleIDs);
+    }
+
+    /**
+     * Stores or updates the projection of a member
+     *
+     * @param id      User ID, never 0
+     * @param name    Effective name
+     * @param color   Raw color of the member
+     * @param roleIDs IDs of the member's roles
+     */
+    public synchronized void put(long id, String name, int color, long... roleIDs) {
+        if (id == 0) throw new IllegalArgumentException("ID cannot be 0");
+        if ((size + 1) * 2 > keys.length) resize(keys.length * 2);
+        int slot = slot(id);
+        while (keys[slot] != 0 && keys[slot] != id) slot = (slot + 1) & (keys.length - 1);
+        if (keys[slot] == 0) size++;
+        keys[slot] = id;
+        names[slot] = name;
+        colors[slot] = color;
+        roles[slot] = roleSet(roleIDs);
+    }
+
+    /**
+     * Removes a member
+     *
+     * @param id User ID
+     */
+    public synchronized void remove(long id) {
+        int slot = find(id);
+        if (slot < 0) return;
+        size--;
+        // Shift following entries of the same probe sequence back, so that no tombstones are needed
+        final int mask = keys.length - 1;
+        int next = (slot + 1) & mask;
+        while (keys[next] != 0) {
+            final int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                move(next, slot);
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[slot] = 0;
+        names[slot] = null;
+        roles[slot] = null;
+    }
+
+    /**
+     * @return true if there is a projection of this member
+     */
+    public synchronized boolean contains(long id) {
+        return find(id) >= 0;
+    }
+
+    /**
+     * @return Effective name of the member, or null if unknown
+     */
+    public synchronized String getName(long id) {
+        final int slot = find(id);
+        return slot < 0 ? null : names[slot];
+    }
+
+    /**
+     * @return Raw color of the member, or {@link #NO_COLOR} if unknown
+     */
+    public synchronized int getColor(long id) {
+        final int slot = find(id);
+        return slot < 0 ? NO_COLOR : colors[slot];
+    }
+
+    /**
+     * @return true if the member is known and has the role
+     */
+    public synchronized boolean hasRole(long id, long roleID) {
+        final int slot = find(id);
+        final Integer bit = roleBits.get(roleID);
+        if (slot < 0 || bit == null) return false;
+        final long[] set = roles[slot];
+        return (bit >> 6) < set.length && (set[bit >> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * @return Amount of stored members
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Removes all members
+     */
+    public synchronized void clear() {
+        keys = new long[16];
+        names = new String[16];
+        colors = new int[16];
+        roles = new long[16][];
+        size = 0;
+        roleBits.clear();
+        roleSets.clear();
+    }
+
+    private long[] roleSet(long[] roleIDs) {
+        if (roleIDs.length == 0) return NO_ROLES;
+        long[] set = NO_ROLES;
+        for (final long role : roleIDs) {
+            final int bit = roleBits.computeIfAbsent(role, r -> roleBits.size());
+            if ((bit >> 6) >= set.length) set = Arrays.copyOf(set, (bit >> 6) + 1);
+            set[bit >> 6] |= 1L << bit;
+        }
+        return roleSets.computeIfAbsent(new RoleSet(set), s -> s.bits);
+    }
+
+    private int slot(long id) {
+        final long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (keys.length - 1);
+    }
+
+    private int find(long id) {
+        if (id == 0) return -1;
+        int slot = slot(id);
+        while (keys[slot] != 0) {
+            if (keys[slot] == id) return slot;
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        return -1;
+    }
+
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        names[to] = names[from];
+        colors[to] = colors[from];
+        roles[to] = roles[from];
+    }
+
+    private void resize(int capacity) {
+        final long[] oldKeys = keys;
+        final String[] oldNames = names;
+        final int[] oldColors = colors;
+        final long[][] oldRoles = roles;
+        keys = new long[capacity];
+        names = new String[capacity];
+        colors = new int[capacity];
+        roles = new long[capacity][];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0) continue;
+            int slot = slot(oldKeys[i]);
+            while (keys[slot] != 0) slot = (slot + 1) & (capacity - 1);
+            keys[slot] = oldKeys[i];
+            names[slot] = oldNames[i];
+            colors[slot] = oldColors[i];
+            roles[slot] = oldRoles[i];
+        }
+    }
+
+    private static final class RoleSet {
+        final long[] bits;
+
+        RoleSet(long[] bits) {
+            this.bits = bits;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof RoleSet && Arrays.equals(bits, ((RoleSet) o).bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(bits);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package de.erdbeerbaerlp.dcintegration.common.util;
+
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rewrites user ({@code <@id>}, {@code <@!id>}), role ({@code <@&id>}) and channel ({@code <#id>}) mentions to readable names in a single pass.<br>
+ * Names are only taken from JDA's caches. Users missing from the caches are kept as mention and get resolved in batches in the background,
+ * so that the next message mentioning them can use their name
+ */
+public class MentionRewriter {
+    /**
+     * Maximum amount of members requested at once
+     */
+    private static final int BATCH_SIZE = 100;
+    /**
+     * Time to collect unresolved IDs before requesting them
+     */
+    private static final long BATCH_DELAY_MS = 50;
+    /**
+     * Maximum amount of names resolved in the background which are kept per guild
+     */
+    private static final int RESOLVED_CAPACITY = 1024;
+    /**
+     * Marks IDs which could not be resolved, so that they are not requested again
+     */
+    private static final String UNRESOLVABLE = "";
+
+    /**
+     * IDs waiting to be requested from one guild
+     */
+    private static final class PendingGuild {
+        volatile Guild guild;
+        final Set<Long> ids = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Names resolved in the background by guild ID, as nicknames differ between guilds
+     */
+    private static final Map<Long, Map<Long, String>> resolvedNames = new ConcurrentHashMap<>();
+    private static final Map<Long, PendingGuild> pending = new ConcurrentHashMap<>();
+    private static final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    /**
+     * Translates ID mentions in all text of a component
+     *
+     * @param in    Component that should be formatted
+     * @param guild Target {@link Guild}, where the nicknames should be taken from
+     * @return Formatted {@link Component}, or the input if it did not contain any known mention
+     */
+    public static Component rewrite(final Component in, final Guild guild) {
+        final JDA jda = DiscordIntegration.INSTANCE == null ? null : DiscordIntegration.INSTANCE.getJDA();
+        if (jda == null) return in;
+        return rewrite(in, guild, jda);
+    }
+
+    private static Component rewrite(final Component in, final Guild guild, final JDA jda) {
+        Component out = in;
+        if (in instanceof TextComponent) {
+            final String content = ((TextComponent) in).content();
+            final String rewritten = rewrite(content, guild, jda);
+            if (rewritten != content) out = ((TextComponent) in).content(rewritten);
+        }
+        final List<Component> children = in.children();
+        List<Component> newChildren = null;
+        for (int i = 0; i < children.size(); i++) {
+            final Component child = rewrite(children.get(i), guild, jda);
+            if (child != children.get(i)) {
+                if (newChildren == null) newChildren = new ArrayList<>(children);
+                newChildren.set(i, child);
+            }
+        }
+        return newChildren == null ? out : out.children(newChildren);
+    }
+
+    /**
+     * Translates ID mentions in a string
+     *
+     * @param in    String that should be formatted
+     * @param guild Target {@link Guild}, where the nicknames should be taken from
+     * @return Formatted String, or the input if it did not contain any known mention
+     */
+    public static String rewrite(final String in, final Guild guild) {
+        final JDA jda = DiscordIntegration.INSTANCE == null ? null : DiscordIntegration.INSTANCE.getJDA();
+        if (jda == null) return in;  //Skip this if JDA wasn't initialized
+        return rewrite(in, guild, jda);
+    }
+
+    private static String rewrite(final String in, final Guild guild, final JDA jda) {
+        int i = in.indexOf('<');
+        if (i < 0) return in;
+        StringBuilder out = null;
+        int copied = 0;
+        final int len = in.length();
+        while (i >= 0) {
+            int idStart = i + 1;
+            char type = idStart < len ? in.charAt(idStart) : 0;
+            if (type == '@' && idStart + 1 < len && (in.charAt(idStart + 1) == '!' || in.charAt(idStart + 1) == '&')) {
+                if (in.charAt(idStart + 1) == '&') type = '&';
+                idStart++;
+            }
+            String name = null;
+            int end = -1;
+            if (type == '@' || type == '&' || type == '#') {
+                idStart++;
+                int j = idStart;
+                while (j < len && j - idStart < 20 && in.charAt(j) >= '0' && in.charAt(j) <= '9') j++;
+                if (j - idStart >= 17 && j < len && in.charAt(j) == '>') {
+                    // Snowflakes are unsigned, 20 digit IDs don't fit into a signed long
+                    final long id = parseID(in.substring(idStart, j));
+                    if (id != 0) {
+                        end = j + 1;
+                        name = lookup(type, id, guild, jda);
+                    }
+                }
+            }
+            if (name != null) {
+                if (out == null) out = new StringBuilder(len);
+                out.append(in, copied, i).append(type == '#' ? '#' : '@').append(name);
+                copied = end;
+                i = in.indexOf('<', end);
+            } else {
+                i = in.indexOf('<', i + 1);
+            }
+        }
+        if (out == null) return in;
+        return out.append(in, copied, len).toString();
+    }
+
+    private static long parseID(final String id) {
+        try {
+            return Long.parseUnsignedLong(id);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String lookup(final char type, final long id, final Guild guild, final JDA jda) {
+        switch (type) {
+            case '&': {
+                final Role role = guild.getRoleById(id);
+                return role == null ? null : role.getName();
+            }
+            case '#': {
+                final TextChannel channel = guild.getTextChannelById(id);
+                return channel == null ? null : channel.getName();
+            }
+            default: {
+                final Member member = guild.getMemberById(id);
+                if (member != null) return member.getEffectiveName();
+                final String projected = DiscordIntegration.INSTANCE.getMemberProjections().getName(id);
+                if (projected != null) return projected;
+                final User user = jda.getUserById(id);
+                if (user != null) return user.getName();
+                final Map<Long, String> names = resolvedNames.get(guild.getIdLong());
+                final String resolved = names == null ? null : names.get(id);
+                if (resolved != null) return resolved.isEmpty() ? null : resolved;
+                queueResolve(guild, id);
+                return null;
+            }
+        }
+    }
+
+    private static void queueResolve(final Guild guild, final long id) {
+        final PendingGuild p = pending.computeIfAbsent(guild.getIdLong(), (g) -> new PendingGuild());
+        p.guild = guild;
+        if (!p.ids.add(id)) return;
+        if (flushScheduled.compareAndSet(false, true))
+            CompletableFuture.delayedExecutor(BATCH_DELAY_MS, TimeUnit.MILLISECONDS).execute(MentionRewriter::flush);
+    }
+
+    private static void flush() {
+        flushScheduled.set(false);
+        // Members can only be requested from the guild they were mentioned in
+        pending.forEach((guildID, p) -> {
+            final List<Long> batch = new ArrayList<>(BATCH_SIZE);
+            final Iterator<Long> it = p.ids.iterator();
+            while (it.hasNext()) {
+                batch.add(it.next());
+                it.remove();
+                if (batch.size() == BATCH_SIZE || !it.hasNext()) {
+                    request(p.guild, new ArrayList<>(batch));
+                    batch.clear();
+                }
+            }
+        });
+    }
+
+    private static void request(final Guild guild, final List<Long> ids) {
+        final long[] idArray = new long[ids.size()];
+        for (int i = 0; i < idArray.length; i++) idArray[i] = ids.get(i);
+        try {
+            guild.retrieveMembersByIds(idArray).onSuccess((members) -> {
+                final Map<Long, String> names = resolvedNames.computeIfAbsent(guild.getIdLong(), (g) -> new ConcurrentHashMap<>());
+                if (names.size() + ids.size() > RESOLVED_CAPACITY) names.clear();
+                for (final Long id : ids) names.put(id, UNRESOLVABLE);
+                for (final Member m : members) names.put(m.getIdLong(), m.getEffectiveName());
+            }).onError((e) -> DiscordIntegration.LOGGER.debug("Failed to resolve mentioned members", e));
+        } catch (RuntimeException e) {
+            // Keep going with the batches of other guilds
+            DiscordIntegration.LOGGER.debug("Failed to resolve mentioned members", e);
+        }
+    }
+
+    /**
+     * Forgets a name resolved in the background, for example after the member changed their nickname
+     *
+     * @param id User ID
+     */
+    public static void invalidate(final long id) {
+        for (final Map<Long, String> names : resolvedNames.values()) names.remove(id);
+    }
+}
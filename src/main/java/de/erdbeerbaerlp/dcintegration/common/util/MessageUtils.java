@@ -1,23 +1,15 @@
 package de.erdbeerbaerlp.dcintegration.common.util;
 
 import com.google.gson.JsonArray;
-import com.vdurmont.emoji.EmojiParser;
 import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
 import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
 import de.erdbeerbaerlp.dcintegration.common.storage.Localization;
 import de.erdbeerbaerlp.dcintegration.common.storage.linking.LinkManager;
 import de.erdbeerbaerlp.dcintegration.common.storage.linking.PlayerLink;
 import dev.vankka.mcdiscordreserializer.discord.DiscordSerializer;
-import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Guild;
-import net.dv8tion.jda.api.entities.Member;
-import net.dv8tion.jda.api.entities.Role;
-import net.dv8tion.jda.api.entities.User;
-import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import net.dv8tion.jda.api.entities.emoji.CustomEmoji;
-import net.dv8tion.jda.api.entities.emoji.Emoji;
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.TextReplacementConfig;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.jetbrains.annotations.NotNull;
@@ -34,32 +26,10 @@ import java.util.regex.Pattern;
 public class MessageUtils {
 
 
-    @SuppressWarnings({"RegExpRedundantEscape", "RegExpUnnecessaryNonCapturingGroup", "RegExpSimplifiable"})
-    static final Pattern URL_PATTERN = Pattern.compile(
-            //              schema                          ipv4            OR        namespace                 port     path         ends
-            //        |-----------------|        |-------------------------|  |-------------------------|    |---------| |--|   |---------------|
-            "((?:[a-z0-9]{2,}:\\/\\/)?(?:(?:[0-9]{1,3}\\.){3}[0-9]{1,3}|(?:[-\\w_]{1,}\\.[a-z]{2,}?))(?::[0-9]{1,5})?.*?(?=[!\"\u00A7 \n]|$))",
-            Pattern.CASE_INSENSITIVE);
     /**
      * Regex matching formatting codes like thos: §4
      */
     private static final Pattern FORMATTING_CODE_PATTERN = Pattern.compile("(?i)\u00a7[0-9A-FK-OR]");
-    /**
-     * This regex will match all user mentions (<@userid>)
-     */
-    private static final Pattern USER_PING_REGEX = Pattern.compile("(<@!?([0-9]{17,18})>)");
-    /**
-     * This regex will match all role mentions (<@&roleid>)
-     */
-    private static final Pattern ROLE_PING_REGEX = Pattern.compile("(<@&([0-9]{17,20})>)");
-    /**
-     * This regex will match all channel mentions (<#channelid>)
-     */
-    private static final Pattern CHANNEL_REGEX = Pattern.compile("(<#([0-9]{17,20})>)");
-    /**
-     * This regex will match ANY type of mention
-     */
-    private static final Pattern ANYPING_REGEX = Pattern.compile("(<..?([0-9]{17,20})>)");
 
     public static String[] makeStringArray(final JsonArray channelID) {
         final String[] out = new String[channelID.size()];
@@ -161,11 +131,7 @@ public class MessageUtils {
      */
 
     public static Component mentionsToNames(Component in, final Guild targetGuild) {
-        in = in.replaceText(TextReplacementConfig.builder().match(ANYPING_REGEX).replacement((result, builder) -> {
-            builder.content(mentionsToNames(builder.content(), targetGuild));
-            return builder;
-        }).build());
-        return in;
+        return MentionRewriter.rewrite(in, targetGuild);
     }
 
     /**
@@ -177,41 +143,7 @@ public class MessageUtils {
      */
 
     public static String mentionsToNames(String in, final Guild targetGuild) {
-        final JDA jda = DiscordIntegration.INSTANCE.getJDA();
-        if (jda == null) return in;  //Skip this if JDA wasn't initialized
-        final Matcher userMatcher = USER_PING_REGEX.matcher(in);
-        final Matcher roleMatcher = ROLE_PING_REGEX.matcher(in);
-        final Matcher channelMatcher = CHANNEL_REGEX.matcher(in);
-        while (userMatcher.find()) {
-            final String str = userMatcher.group(1);
-            final String id = userMatcher.group(2);
-            String name;
-            final User u = jda.getUserById(id);
-            if (u != null) {
-                final Member m = DiscordIntegration.INSTANCE.getMemberById(u.getIdLong());
-                if (m != null)
-                    name = m.getEffectiveName();
-                else
-                    name = u.getName();
-                in = in.replace(str, "@" + name);
-            }
-
-        }
-        while (roleMatcher.find()) {
-            final String str = roleMatcher.group(1);
-            final String id = roleMatcher.group(2);
-            final Role role = targetGuild.getRoleById(id);
-            if (role == null) continue;
-            in = in.replace(str, "@" + role.getName());
-        }
-        while (channelMatcher.find()) {
-            final String str = channelMatcher.group(1);
-            final String id = channelMatcher.group(2);
-            final TextChannel channel = targetGuild.getTextChannelById(id);
-            if (channel == null) continue;
-            in = in.replace(str, "#" + channel.getName());
-        }
-        return in;
+        return MentionRewriter.rewrite(in, targetGuild);
     }
 
     /**
@@ -223,11 +155,7 @@ public class MessageUtils {
      */
 
     public static String formatEmoteMessage(List<CustomEmoji> emotes, String msg) {
-        msg = EmojiParser.parseToAliases(msg);
-        for (final Emoji e : emotes) {
-            msg = msg.replace(e.toString(), ":" + e.getName() + ":");
-        }
-        return msg;
+        return EmojiConverter.toAliases(msg, emotes);
     }
 
     /**
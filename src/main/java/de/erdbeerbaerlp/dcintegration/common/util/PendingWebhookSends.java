@@ -0,0 +1,121 @@
+package de.erdbeerbaerlp.dcintegration.common.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * Registry of webhook messages which were sent, but not yet acknowledged by discord.<br>
+ * Allows recognizing our own webhook echoes on the gateway before the send request returns their message ID.
+ */
+public class PendingWebhookSends {
+    /**
+     * Time after which a pending send is dropped, even if it never completed
+     */
+    private static final long EXPIRY_MS = 60000;
+
+    private final HashMap<Long, ArrayDeque<Pending>> pending = new HashMap<>();
+    private long nextNonce = 1;
+
+    private static class Pending {
+        final long nonce;
+        final long hash;
+        final long expiresAt;
+
+        Pending(long nonce, long hash, long expiresAt) {
+            this.nonce = nonce;
+            this.hash = hash;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Records a webhook message before sending it
+     *
+     * @param webhookID ID of the webhook used to send the message
+     * @param username  Username the message is sent with
+     * @param content   Message content
+     * @return Nonce to pass to {@link #complete(long, long)} once the send finished
+     */
+    public synchronized long register(long webhookID, @Nullable String username, @Nullable String content) {
+        final long nonce = nextNonce++;
+        pending.computeIfAbsent(webhookID, id -> new ArrayDeque<>()).addLast(new Pending(nonce, hash(username, content), System.currentTimeMillis() + EXPIRY_MS));
+        return nonce;
+    }
+
+    /**
+     * Removes a pending send after discord acknowledged (or rejected) it
+     *
+     * @param webhookID ID of the webhook used to send the message
+     * @param nonce     Nonce returned by {@link #register(long, String, String)}
+     */
+    public synchronized void complete(long webhookID, long nonce) {
+        final ArrayDeque<Pending> queue = pending.get(webhookID);
+        if (queue == null) return;
+        queue.removeIf(p -> p.nonce == nonce);
+        if (queue.isEmpty()) pending.remove(webhookID);
+    }
+
+    /**
+     * Checks if a received webhook message is the echo of a pending send, consuming the pending entry if it is
+     *
+     * @param webhookID ID of the webhook which sent the message
+     * @param username  Username of the received message
+     * @param content   Content of the received message
+     * @return true if the message is our own echo
+     */
+    public synchronized boolean consumeEcho(long webhookID, @Nullable String username, @Nullable String content) {
+        final ArrayDeque<Pending> queue = getQueue(webhookID);
+        if (queue == null) return false;
+        final long hash = hash(username, content);
+        final Iterator<Pending> it = queue.iterator();
+        while (it.hasNext()) {
+            if (it.next().hash == hash) {
+                it.remove();
+                if (queue.isEmpty()) pending.remove(webhookID);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param webhookID ID of the webhook
+     * @return true if there are sends through this webhook which were not yet acknowledged
+     */
+    public synchronized boolean hasPending(long webhookID) {
+        return getQueue(webhookID) != null;
+    }
+
+    private ArrayDeque<Pending> getQueue(long webhookID) {
+        final ArrayDeque<Pending> queue = pending.get(webhookID);
+        if (queue == null) return null;
+        final long now = System.currentTimeMillis();
+        while (!queue.isEmpty() && queue.peekFirst().expiresAt < now) queue.pollFirst();
+        if (queue.isEmpty()) {
+            pending.remove(webhookID);
+            return null;
+        }
+        return queue;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of username and trimmed content, as discord trims message content
+     */
+    private static long hash(@Nullable String username, @Nullable String content) {
+        long h = 0xcbf29ce484222325L;
+        h = hash(h, username == null ? "" : username);
+        h = (h ^ 0xFFFF) * 0x100000001b3L;
+        return hash(h, content == null ? "" : content.trim());
+    }
+
+    private static long hash(long h, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
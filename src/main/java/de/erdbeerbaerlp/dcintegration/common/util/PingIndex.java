@@ -0,0 +1,391 @@
+package de.erdbeerbaerlp.dcintegration.common.util;
+
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import de.erdbeerbaerlp.dcintegration.common.storage.linking.LinkManager;
+import de.erdbeerbaerlp.dcintegration.common.storage.linking.PlayerLink;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.UserSnowflake;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.format.TextDecoration;
+import org.apache.commons.collections4.keyvalue.DefaultMapEntry;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Index of the pingable names ({@code @name}) of all online players, using their minecraft name and, if linked, their discord name.<br>
+ * All names are matched in a single pass using an Aho-Corasick automaton, which is recompiled on the next lookup after players joined, left or got renamed.<br>
+ * Discord names are taken from the member cache or retrieved asynchronously, lookups never block on REST requests
+ */
+public class PingIndex {
+
+    private static final class Player {
+        String mcName;
+        long discordID;
+        String discordName;
+    }
+
+    private final HashMap<UUID, Player> players = new HashMap<>();
+    /**
+     * Compiled automaton, or null after the players changed
+     */
+    private Automaton automaton;
+    private volatile Scan lastScan;
+
+    /**
+     * Adds a player who joined the server, or updates the name and link of an online player
+     *
+     * @param uuid   Player {@link UUID}
+     * @param mcName Player name
+     */
+    public void playerJoined(UUID uuid, String mcName) {
+        final long discordID;
+        synchronized (this) {
+            final Player p = players.computeIfAbsent(uuid, u -> new Player());
+            if (!mcName.equals(p.mcName)) {
+                p.mcName = mcName;
+                automaton = null;
+            }
+            // Without a running integration the link is unknown, keep what was set
+            if (DiscordIntegration.INSTANCE == null) return;
+            final PlayerLink link = LinkManager.isPlayerLinked(uuid) ? LinkManager.getLink(null, uuid) : null;
+            discordID = link == null ? 0 : parseID(link.discordID);
+            if (discordID == p.discordID) return;
+            p.discordID = discordID;
+            if (p.discordName != null) automaton = null;
+            p.discordName = null;
+        }
+        if (discordID != 0) resolveDiscordName(uuid, discordID);
+    }
+
+    /**
+     * Rechecks the link of a player after linking or unlinking, if the player is online
+     *
+     * @param uuid Player {@link UUID}
+     */
+    public void linkChanged(UUID uuid) {
+        final String name;
+        synchronized (this) {
+            final Player p = players.get(uuid);
+            if (p == null) return;
+            name = p.mcName;
+        }
+        playerJoined(uuid, name);
+    }
+
+    /**
+     * Updates the minecraft name of a player
+     *
+     * @param uuid   Player {@link UUID}
+     * @param mcName New player name
+     */
+    public void playerRenamed(UUID uuid, String mcName) {
+        playerJoined(uuid, mcName);
+    }
+
+    /**
+     * Removes a player who left the server
+     *
+     * @param uuid Player {@link UUID}
+     */
+    public synchronized void playerLeft(UUID uuid) {
+        if (players.remove(uuid) != null) automaton = null;
+    }
+
+    /**
+     * Updates the discord name of all online players linked to this discord account
+     *
+     * @param discordID   Discord user ID
+     * @param discordName New effective name
+     */
+    public synchronized void discordNameChanged(long discordID, String discordName) {
+        for (final Player p : players.values()) {
+            if (p.discordID == discordID && !discordName.equals(p.discordName)) {
+                p.discordName = discordName;
+                automaton = null;
+            }
+        }
+    }
+
+    /**
+     * @return true if the player is part of this index
+     */
+    public synchronized boolean contains(UUID uuid) {
+        return players.containsKey(uuid);
+    }
+
+    /**
+     * Sets the discord account of an online player, for example after linking
+     *
+     * @param uuid        Player {@link UUID}
+     * @param discordID   Discord user ID
+     * @param discordName Effective name of the discord user
+     */
+    public synchronized void setDiscordName(UUID uuid, long discordID, String discordName) {
+        final Player p = players.get(uuid);
+        if (p == null || (p.discordID == discordID && discordName.equals(p.discordName))) return;
+        p.discordID = discordID;
+        p.discordName = discordName;
+        automaton = null;
+    }
+
+    private void resolveDiscordName(UUID uuid, long discordID) {
+        final DiscordIntegration dc = DiscordIntegration.INSTANCE;
+        if (dc == null || dc.getJDA() == null) return;
+        final GuildMessageChannel channel = dc.getChannel();
+        if (channel == null) return;
+        final Guild guild = channel.getGuild();
+        final Member member = guild.getMemberById(discordID);
+        final String projected = dc.getMemberProjections().getName(discordID);
+        if (member != null) nameResolved(uuid, discordID, member.getEffectiveName());
+        else if (projected != null) nameResolved(uuid, discordID, projected);
+        else
+            guild.retrieveMember(UserSnowflake.fromId(discordID)).queue(m -> nameResolved(uuid, discordID, m.getEffectiveName()), e -> {
+            });
+    }
+
+    private synchronized void nameResolved(UUID uuid, long discordID, String discordName) {
+        final Player p = players.get(uuid);
+        if (p != null && p.discordID == discordID) setDiscordName(uuid, discordID, discordName);
+    }
+
+    private static long parseID(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Highlights pings of one player in a message.<br>
+     * Scanning the message is shared between all recipients of the same {@link Component} instance
+     *
+     * @param msg  Message to search
+     * @param uuid {@link UUID} of the receiving player
+     * @param name Name of the receiving player
+     * @return {@link Map.Entry} containing a boolean, which is true, when there was a mention found, as key and the formatted {@link Component} as value
+     */
+    public Map.Entry<Boolean, Component> parsePing(Component msg, UUID uuid, String name) {
+        if (!contains(uuid)) addOnlinePlayers();
+        playerJoined(uuid, name);
+        final Automaton a = getAutomaton();
+        Scan scan = lastScan;
+        if (scan == null || scan.msg != msg || scan.automaton != a) lastScan = scan = new Scan(msg, a);
+        final HashMap<Integer, int[]> spans = scan.spansFor(uuid);
+        if (spans.isEmpty()) return new DefaultMapEntry<>(false, msg);
+        return new DefaultMapEntry<>(true, highlight(msg, spans, new int[1]));
+    }
+
+    /**
+     * Adds all players currently online, so that the automaton only gets compiled once after startup
+     */
+    private void addOnlinePlayers() {
+        final DiscordIntegration dc = DiscordIntegration.INSTANCE;
+        if (dc == null || dc.getServerInterface() == null) return;
+        final HashMap<UUID, String> online = dc.getServerInterface().getPlayers();
+        if (online != null) online.forEach(this::playerJoined);
+    }
+
+    private synchronized Automaton getAutomaton() {
+        if (automaton == null) {
+            final ArrayList<String> patterns = new ArrayList<>();
+            final ArrayList<UUID> owners = new ArrayList<>();
+            final ArrayList<Boolean> discord = new ArrayList<>();
+            players.forEach((uuid, p) -> {
+                if (p.mcName != null && !p.mcName.isEmpty()) {
+                    patterns.add("@" + p.mcName);
+                    owners.add(uuid);
+                    discord.add(false);
+                }
+                if (p.discordName != null && !p.discordName.isEmpty()) {
+                    patterns.add("@" + p.discordName);
+                    owners.add(uuid);
+                    discord.add(true);
+                }
+            });
+            automaton = new Automaton(patterns, owners, discord);
+        }
+        return automaton;
+    }
+
+    private static final Style PING_STYLE = Style.style(TextColors.PING).decorate(TextDecoration.BOLD);
+
+    /**
+     * Rebuilds the component, highlighting the spans of each text node (numbered in pre-order).<br>
+     * Subtrees without any highlighted span are reused
+     */
+    private static Component highlight(Component in, HashMap<Integer, int[]> spans, int[] ordinal) {
+        final int[] own = in instanceof TextComponent ? spans.get(ordinal[0]++) : null;
+        final List<Component> children = in.children();
+        final ArrayList<Component> newChildren = new ArrayList<>(children.size() + (own == null ? 0 : own.length));
+        String content = null;
+        if (own != null) {
+            final String text = ((TextComponent) in).content();
+            content = text.substring(0, own[0]);
+            for (int i = 0; i < own.length; i += 2) {
+                newChildren.add(Component.text(text.substring(own[i], own[i + 1])).style(PING_STYLE));
+                final int next = i + 2 < own.length ? own[i + 2] : text.length();
+                if (next > own[i + 1]) newChildren.add(Component.text(text.substring(own[i + 1], next)));
+            }
+        }
+        boolean changed = own != null;
+        for (final Component child : children) {
+            final Component newChild = highlight(child, spans, ordinal);
+            changed |= newChild != child;
+            newChildren.add(newChild);
+        }
+        if (!changed) return in;
+        final Component out = in.children(newChildren);
+        return content == null ? out : ((TextComponent) out).content(content);
+    }
+
+    /**
+     * Aho-Corasick automaton over the pingable names
+     */
+    private static final class Automaton {
+        private final UUID[] owners;
+        private final boolean[] discord;
+        private final int[] lengths;
+        private final Node root = new Node();
+
+        Automaton(List<String> patterns, List<UUID> owners, List<Boolean> discord) {
+            this.owners = owners.toArray(new UUID[0]);
+            this.discord = new boolean[discord.size()];
+            for (int i = 0; i < discord.size(); i++) this.discord[i] = discord.get(i);
+            this.lengths = new int[patterns.size()];
+            for (int p = 0; p < patterns.size(); p++) {
+                Node n = root;
+                final String s = patterns.get(p);
+                for (int i = 0; i < s.length(); i++) n = n.getOrAdd(s.charAt(i));
+                n.outputs = append(n.outputs, p);
+                lengths[p] = s.length();
+            }
+            // Breadth-first computation of failure links, inheriting the outputs of the failure target
+            final ArrayDeque<Node> queue = new ArrayDeque<>();
+            root.fail = root;
+            for (final Node child : root.children) {
+                child.fail = root;
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                final Node n = queue.poll();
+                for (int i = 0; i < n.keys.length; i++) {
+                    final Node child = n.children[i];
+                    Node f = n.fail;
+                    Node target;
+                    while ((target = f.child(n.keys[i])) == null && f != root) f = f.fail;
+                    child.fail = target == null || target == child ? root : target;
+                    for (final int p : child.fail.outputs) child.outputs = append(child.outputs, p);
+                    queue.add(child);
+                }
+            }
+        }
+
+        private static int[] append(int[] arr, int value) {
+            final int[] out = Arrays.copyOf(arr, arr.length + 1);
+            out[arr.length] = value;
+            return out;
+        }
+    }
+
+    private static final class Node {
+        private static final int[] NONE = new int[0];
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        Node fail;
+        int[] outputs = NONE;
+
+        Node child(char c) {
+            final int idx = Arrays.binarySearch(keys, c);
+            return idx < 0 ? null : children[idx];
+        }
+
+        Node getOrAdd(char c) {
+            int idx = Arrays.binarySearch(keys, c);
+            if (idx >= 0) return children[idx];
+            idx = -idx - 1;
+            final char[] newKeys = new char[keys.length + 1];
+            final Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, idx);
+            System.arraycopy(children, 0, newChildren, 0, idx);
+            newKeys[idx] = c;
+            newChildren[idx] = new Node();
+            System.arraycopy(keys, idx, newKeys, idx + 1, keys.length - idx);
+            System.arraycopy(children, idx, newChildren, idx + 1, children.length - idx);
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[idx];
+        }
+    }
+
+    /**
+     * All matches of one message, per text node
+     */
+    private static final class Scan {
+        final Component msg;
+        final Automaton automaton;
+        /**
+         * Text node ordinal, start, end and pattern of each match
+         */
+        private final ArrayList<int[]> matches = new ArrayList<>();
+
+        Scan(Component msg, Automaton automaton) {
+            this.msg = msg;
+            this.automaton = automaton;
+            scan(msg, new int[1]);
+        }
+
+        private void scan(Component c, int[] ordinal) {
+            if (c instanceof TextComponent) {
+                final int node = ordinal[0]++;
+                final String text = ((TextComponent) c).content();
+                Node state = automaton.root;
+                for (int i = 0; i < text.length(); i++) {
+                    final char ch = text.charAt(i);
+                    Node next;
+                    while ((next = state.child(ch)) == null && state != automaton.root) state = state.fail;
+                    state = next == null ? automaton.root : next;
+                    for (final int p : state.outputs)
+                        matches.add(new int[]{node, i + 1 - automaton.lengths[p], i + 1, p});
+                }
+            }
+            for (final Component child : c.children())
+                scan(child, ordinal);
+        }
+
+        /**
+         * @return Non-overlapping spans per text node of this player's minecraft name, or discord name if the minecraft name was not mentioned
+         */
+        HashMap<Integer, int[]> spansFor(UUID uuid) {
+            boolean mcMentioned = false;
+            for (final int[] m : matches)
+                if (uuid.equals(automaton.owners[m[3]]) && !automaton.discord[m[3]]) {
+                    mcMentioned = true;
+                    break;
+                }
+            final HashMap<Integer, int[]> out = new HashMap<>();
+            final HashMap<Integer, Integer> lastEnd = new HashMap<>();
+            for (final int[] m : matches) {
+                if (!uuid.equals(automaton.owners[m[3]]) || automaton.discord[m[3]] == mcMentioned) continue;
+                if (m[1] < lastEnd.getOrDefault(m[0], 0)) continue;
+                lastEnd.put(m[0], m[2]);
+                final int[] spans = out.get(m[0]);
+                final int[] newSpans = spans == null ? new int[2] : Arrays.copyOf(spans, spans.length + 2);
+                newSpans[newSpans.length - 2] = m[1];
+                newSpans[newSpans.length - 1] = m[2];
+                out.put(m[0], newSpans);
+            }
+            return out;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package de.erdbeerbaerlp.dcintegration.common.util;
+
+import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
+import net.dv8tion.jda.api.entities.Activity;
+
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Keeps the bot status up to date with the player count.<br>
+ * The activity is only rebuilt when the online or maximum player count changed and only sent when it differs from the last sent one
+ */
+public class PresenceUpdater {
+    /**
+     * Delay after a join or leave before the status gets updated, so that bursts of joins only cause one update
+     */
+    public static final long DEBOUNCE_MILLIS = 2000;
+
+    /**
+     * Status message compiled into literal parts and %online% / %max% slots
+     */
+    public static final class Format {
+        private static final int ONLINE = 0, MAX = 1;
+        /**
+         * Literal text of each segment, or null for slots
+         */
+        private final String[] literals;
+        /**
+         * Slot of each segment, or -1 for literals
+         */
+        private final int[] slots;
+
+        private Format(String[] literals, int[] slots) {
+            this.literals = literals;
+            this.slots = slots;
+        }
+
+        /**
+         * @param format Status message containing %online% and %max% placeholders
+         * @return Compiled format
+         */
+        public static Format compile(String format) {
+            final ArrayList<String> literals = new ArrayList<>();
+            final ArrayList<Integer> slots = new ArrayList<>();
+            int start = 0;
+            for (int i = format.indexOf('%'); i >= 0; i = format.indexOf('%', i + 1)) {
+                final int slot;
+                final int end;
+                if (format.startsWith("%online%", i)) {
+                    slot = ONLINE;
+                    end = i + 8;
+                } else if (format.startsWith("%max%", i)) {
+                    slot = MAX;
+                    end = i + 5;
+                } else continue;
+                if (i > start) {
+                    literals.add(format.substring(start, i));
+                    slots.add(-1);
+                }
+                literals.add(null);
+                slots.add(slot);
+                start = end;
+                i = end - 1;
+            }
+            if (start < format.length()) {
+                literals.add(format.substring(start));
+                slots.add(-1);
+            }
+            final int[] slotArray = new int[slots.size()];
+            for (int i = 0; i < slotArray.length; i++) slotArray[i] = slots.get(i);
+            return new Format(literals.toArray(new String[0]), slotArray);
+        }
+
+        /**
+         * @return The status message with the placeholders filled in
+         */
+        public String render(int online, int max) {
+            if (slots.length == 1 && slots[0] == -1) return literals[0];
+            final StringBuilder sb = new StringBuilder(32);
+            for (int i = 0; i < slots.length; i++) {
+                switch (slots[i]) {
+                    case ONLINE:
+                        sb.append(online);
+                        break;
+                    case MAX:
+                        sb.append(max);
+                        break;
+                    default:
+                        sb.append(literals[i]);
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    private final IntSupplier onlinePlayers, maxPlayers;
+    private final Predicate<Activity> apply;
+    private final Executor debounce;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private volatile Format format = Format.compile(""), singular, empty;
+    private volatile GameType type = GameType.DISABLED;
+    private volatile String streamingURL;
+
+    /**
+     * Player counts the current status was built for, -1 forcing a rebuild
+     */
+    private int lastOnline = -1, lastMax = -1;
+    private Activity lastSent;
+
+    /**
+     * @param onlinePlayers Returns the amount of online players
+     * @param maxPlayers    Returns the maximum amount of players
+     * @param apply         Sets the activity of the bot, returning false if it is not connected yet
+     * @param debounce      Runs debounced updates after {@link #DEBOUNCE_MILLIS}
+     */
+    public PresenceUpdater(IntSupplier onlinePlayers, IntSupplier maxPlayers, Predicate<Activity> apply, Executor debounce) {
+        this.onlinePlayers = onlinePlayers;
+        this.maxPlayers = maxPlayers;
+        this.apply = apply;
+        this.debounce = debounce;
+    }
+
+    /**
+     * Compiles the status messages from the config, for example after reloading it
+     */
+    public synchronized void reload() {
+        final Configuration.General general = Configuration.instance().general;
+        format = Format.compile(general.botStatusName);
+        singular = general.botStatusNameSingular.isEmpty() ? null : Format.compile(general.botStatusNameSingular);
+        empty = general.botStatusNameEmpty.isEmpty() ? null : Format.compile(general.botStatusNameEmpty);
+        type = general.botStatusType;
+        streamingURL = general.streamingURL;
+        lastOnline = lastMax = -1;
+    }
+
+    /**
+     * Schedules a debounced update, to be called after a player joined or left
+     */
+    public void playerCountChanged() {
+        if (!scheduled.compareAndSet(false, true)) return;
+        debounce.execute(() -> {
+            scheduled.set(false);
+            update();
+        });
+    }
+
+    /**
+     * Sends a new activity if the player counts changed since the last update.<br>
+     * Cheap enough to be polled, to catch changes of the maximum player count
+     */
+    public synchronized void update() {
+        final int online = onlinePlayers.getAsInt(), max = maxPlayers.getAsInt();
+        if (online == lastOnline && max == lastMax) return;
+        final Activity activity = build(online, max);
+        if (activity == null || !equal(activity, lastSent)) {
+            if (activity != null && !apply.test(activity)) return; // Not connected yet, try again on the next update
+            lastSent = activity;
+        }
+        lastOnline = online;
+        lastMax = max;
+    }
+
+    /**
+     * @return The activity for the given player counts, or null if the status is disabled
+     */
+    public Activity build(int online, int max) {
+        final Format f;
+        if (online == 1 && singular != null) f = singular;
+        else if (online == 0 && empty != null) f = empty;
+        else f = format;
+        final String game = f.render(online, max);
+        switch (type) {
+            case LISTENING:
+                return Activity.listening(game);
+            case PLAYING:
+                return Activity.playing(game);
+            case WATCHING:
+                return Activity.watching(game);
+            case COMPETING:
+                return Activity.competing(game);
+            case STREAMING:
+                return Activity.streaming(game, streamingURL); //URL is required to show up as "Streaming"
+            case CUSTOM:
+                return Activity.customStatus(game);
+            default:
+                return null;
+        }
+    }
+
+    private static boolean equal(Activity a, Activity b) {
+        return b != null && a.getType() == b.getType() && a.getName().equals(b.getName())
+                && Objects.equals(a.getState(), b.getState()) && Objects.equals(a.getUrl(), b.getUrl());
+    }
+}
@@ -0,0 +1,163 @@
+package de.erdbeerbaerlp.dcintegration.common.util;
+
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * Fixed-capacity, thread-safe index of recently sent message IDs and their sender {@link UUID}s.<br>
+ * Message IDs are kept in a ring buffer to evict the oldest entry, lookups go through an open-addressing table of primitive longs.
+ * Inserts, evictions and lookups are O(1) and do not allocate.
+ */
+public class RecentMessageIndex {
+    private static final long EMPTY = 0L; // Discord snowflakes are never 0
+
+    private long[] ring;
+    private int head = 0;
+    private int size = 0;
+
+    private long[] keys;
+    private long[] msb;
+    private long[] lsb;
+    private int mask;
+
+    /**
+     * @param capacity Maximum amount of remembered messages
+     */
+    public RecentMessageIndex(int capacity) {
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive");
+        ring = new long[capacity];
+        // Keep the load factor at or below 0.5
+        final int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+        keys = new long[tableSize];
+        msb = new long[tableSize];
+        lsb = new long[tableSize];
+        mask = tableSize - 1;
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Changes the capacity, keeping the most recent entries
+     *
+     * @param capacity New maximum amount of remembered messages
+     */
+    public synchronized void setCapacity(int capacity) {
+        if (capacity == ring.length) return;
+        final long[] oldRing = ring;
+        final int oldHead = head, oldSize = size;
+        final long[] oldKeys = keys, oldMsb = msb, oldLsb = lsb;
+        final int oldMask = mask;
+        allocate(capacity);
+        for (int n = Math.max(0, oldSize - capacity); n < oldSize; n++) {
+            final long id = oldRing[(oldHead + n) % oldRing.length];
+            final int slot = find(oldKeys, oldMask, id);
+            put0(id, oldMsb[slot], oldLsb[slot]);
+        }
+        DiscordIntegration.LOGGER.debug("Recent message index resized to {}", capacity);
+    }
+
+    /**
+     * Remembers a message, evicting the oldest one when full
+     *
+     * @param messageID Message ID
+     * @param sender    Sender {@link UUID}, or null for server messages
+     */
+    public synchronized void put(long messageID, @Nullable UUID sender) {
+        if (messageID == EMPTY) return;
+        final long m = sender == null ? 0 : sender.getMostSignificantBits();
+        final long l = sender == null ? 0 : sender.getLeastSignificantBits();
+        final int slot = find(keys, mask, messageID);
+        if (slot >= 0) {
+            msb[slot] = m;
+            lsb[slot] = l;
+            return;
+        }
+        put0(messageID, m, l);
+    }
+
+    private void put0(long messageID, long m, long l) {
+        if (size == ring.length) {
+            remove(ring[head]);
+            head = (head + 1) % ring.length;
+            size--;
+        }
+        ring[(head + size) % ring.length] = messageID;
+        size++;
+        int i = hash(messageID) & mask;
+        while (keys[i] != EMPTY) i = (i + 1) & mask;
+        keys[i] = messageID;
+        msb[i] = m;
+        lsb[i] = l;
+    }
+
+    /**
+     * @param messageID Message ID
+     * @return true if the message was recently sent
+     */
+    public synchronized boolean contains(long messageID) {
+        return messageID != EMPTY && find(keys, mask, messageID) >= 0;
+    }
+
+    /**
+     * @param messageID Message ID
+     * @param def       Value returned for unknown messages
+     * @return The sender's {@link UUID}, {@linkplain DiscordIntegration#dummyUUID} for server messages, or def
+     */
+    public synchronized UUID getOrDefault(long messageID, UUID def) {
+        if (messageID == EMPTY) return def;
+        final int slot = find(keys, mask, messageID);
+        if (slot < 0) return def;
+        if (msb[slot] == 0 && lsb[slot] == 0) return DiscordIntegration.dummyUUID;
+        return new UUID(msb[slot], lsb[slot]);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized int capacity() {
+        return ring.length;
+    }
+
+    private static int find(long[] keys, int mask, long messageID) {
+        int i = hash(messageID) & mask;
+        long k;
+        while ((k = keys[i]) != EMPTY) {
+            if (k == messageID) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Removes a key using backward-shift deletion, so no tombstones are needed
+     */
+    private void remove(long messageID) {
+        int i = find(keys, mask, messageID);
+        if (i < 0) return;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (keys[j] == EMPTY) break;
+            final int k = hash(keys[j]) & mask;
+            // Move the entry at j into the gap, unless its home slot lies cyclically within (i, j]
+            if (i <= j ? (i < k && k <= j) : (i < k || k <= j)) continue;
+            keys[i] = keys[j];
+            msb[i] = msb[j];
+            lsb[i] = lsb[j];
+            i = j;
+        }
+        keys[i] = EMPTY;
+    }
+
+    private static int hash(long id) {
+        final long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
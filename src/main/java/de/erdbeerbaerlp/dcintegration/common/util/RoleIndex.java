@@ -0,0 +1,165 @@
+package de.erdbeerbaerlp.dcintegration.common.util;
+
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps the role IDs used in permission checks to bit positions, so that checking the roles of a member is a single AND.<br>
+ * The masks of members are cached, kept up to date using role add/remove and member update events and bounded to {@link #MAX_CACHED_MEMBERS} entries.
+ * A member's roles are only read when its mask is not cached
+ */
+public class RoleIndex {
+    /**
+     * Maximum amount of cached member masks
+     */
+    static final int MAX_CACHED_MEMBERS = 10_000;
+
+    /**
+     * Bit positions of the configured roles, replaced as a whole on rebuild
+     */
+    private volatile Map<Long, Long> bits = Map.of();
+    private volatile long adminMask, requiredMask;
+    private final ConcurrentHashMap<Long, Long> memberMasks = new ConcurrentHashMap<>();
+
+    /**
+     * Assigns bit positions to the configured roles, for example after loading the config
+     *
+     * @param adminRoleIDs    IDs of roles allowed to run admin commands
+     * @param requiredRoleIDs IDs of roles of which members need at least one to link or join
+     */
+    public synchronized void rebuild(String[] adminRoleIDs, String[] requiredRoleIDs) {
+        final HashMap<Long, Long> newBits = new HashMap<>();
+        final long admin = assign(adminRoleIDs, newBits);
+        final long required = assign(requiredRoleIDs, newBits);
+        bits = newBits;
+        adminMask = admin;
+        requiredMask = required;
+        memberMasks.clear();
+    }
+
+    private static long assign(String[] roleIDs, HashMap<Long, Long> bits) {
+        long mask = 0;
+        if (roleIDs == null) return mask;
+        for (final String id : roleIDs) {
+            final long roleID;
+            try {
+                roleID = Long.parseUnsignedLong(id.trim());
+            } catch (NumberFormatException e) {
+                continue; // Reported by the config validator
+            }
+            Long bit = bits.get(roleID);
+            if (bit == null) {
+                if (bits.size() == Long.SIZE) {
+                    DiscordIntegration.LOGGER.warn("More than " + Long.SIZE + " roles configured for permission checks, ignoring role " + id);
+                    continue;
+                }
+                bit = 1L << bits.size();
+                bits.put(roleID, bit);
+            }
+            mask |= bit;
+        }
+        return mask;
+    }
+
+    /**
+     * @param roles Roles to build the mask of
+     * @return Bits of all configured roles in the list
+     */
+    public long mask(List<Role> roles) {
+        final Map<Long, Long> bits = this.bits;
+        long mask = 0;
+        for (final Role role : roles) {
+            final Long bit = bits.get(role.getIdLong());
+            if (bit != null) mask |= bit;
+        }
+        return mask;
+    }
+
+    /**
+     * @param member Member to get the mask of
+     * @return Cached bits of all configured roles the member has, computed from its roles if not cached yet
+     */
+    public long mask(Member member) {
+        final Long cached = memberMasks.get(member.getIdLong());
+        if (cached != null) return cached;
+        final long computed = mask(member.getRoles());
+        cache(member.getIdLong(), computed);
+        return computed;
+    }
+
+    /**
+     * @param memberID ID of the member
+     * @return Cached bits of the configured roles of the member, or null if unknown
+     */
+    public Long cachedMask(long memberID) {
+        return memberMasks.get(memberID);
+    }
+
+    private void cache(long memberID, long mask) {
+        if (memberMasks.put(memberID, mask) != null) return;
+        // The cache only saves recomputing masks, so dropping arbitrary entries is fine
+        final Iterator<Long> it = memberMasks.keySet().iterator();
+        while (memberMasks.size() > MAX_CACHED_MEMBERS && it.hasNext()) {
+            final Long id = it.next();
+            if (id != memberID) it.remove();
+        }
+    }
+
+    /**
+     * Updates the cached mask of a member after roles were added
+     */
+    public void rolesAdded(long memberID, List<Role> roles) {
+        final long added = mask(roles);
+        memberMasks.computeIfPresent(memberID, (id, mask) -> mask | added);
+    }
+
+    /**
+     * Updates the cached mask of a member after roles were removed
+     */
+    public void rolesRemoved(long memberID, List<Role> roles) {
+        final long removed = mask(roles);
+        memberMasks.computeIfPresent(memberID, (id, mask) -> mask & ~removed);
+    }
+
+    /**
+     * Recomputes the cached mask of a member, for example after loading it from discord
+     */
+    public void update(Member member) {
+        cache(member.getIdLong(), mask(member.getRoles()));
+    }
+
+    /**
+     * Removes the cached mask of a member, for example when leaving the server
+     */
+    public void invalidate(long memberID) {
+        memberMasks.remove(memberID);
+    }
+
+    /**
+     * @return true if the roles contain at least one admin role
+     */
+    public boolean hasAdminRole(List<Role> roles) {
+        return (mask(roles) & adminMask) != 0;
+    }
+
+    /**
+     * @return true if the member has at least one admin role
+     */
+    public boolean hasAdminRole(Member member) {
+        return (mask(member) & adminMask) != 0;
+    }
+
+    /**
+     * @return true if the member has at least one of the required roles
+     */
+    public boolean hasRequiredRole(Member member) {
+        return (mask(member) & requiredMask) != 0;
+    }
+}
@@ -0,0 +1,122 @@
+package de.erdbeerbaerlp.dcintegration.common.util;
+
+import java.util.Arrays;
+
+/**
+ * Single-pass scanner finding URLs in chat messages.<br>
+ * A URL is the rest of a word (up to a space, line break, {@code !}, {@code "} or {@code §}) starting at an optional scheme like
+ * {@code https://}, followed by either an IPv4 address or a name containing a dot and at least two letters, like {@code example.com}
+ */
+public class UrlTokenizer {
+    /**
+     * URLs longer than this are not detected
+     */
+    public static final int MAX_URL_LENGTH = 2048;
+
+    private static final int[] NONE = new int[0];
+
+    /**
+     * Finds all URLs in a text
+     *
+     * @param text Text to scan
+     * @return Start (inclusive) and end (exclusive) index of each URL, as consecutive pairs
+     */
+    public static int[] findUrls(final CharSequence text) {
+        int[] out = NONE;
+        int count = 0;
+        final int len = text.length();
+        int wordStart = 0;
+        while (wordStart < len) {
+            int wordEnd = wordStart;
+            while (wordEnd < len && !isTerminator(text.charAt(wordEnd))) wordEnd++;
+            if (wordEnd > wordStart) {
+                final int start = findStart(text, wordStart, wordEnd);
+                if (start >= 0 && wordEnd - start <= MAX_URL_LENGTH) {
+                    if (count + 2 > out.length) out = Arrays.copyOf(out, Math.max(4, out.length * 2));
+                    out[count++] = start;
+                    out[count++] = wordEnd;
+                }
+            }
+            wordStart = wordEnd + 1;
+        }
+        return count == out.length ? out : Arrays.copyOf(out, count);
+    }
+
+    /**
+     * @return Index of the leftmost position a URL starts at in this word, or -1
+     */
+    private static int findStart(final CharSequence text, final int from, final int to) {
+        int i = from;
+        while (i < to) {
+            if (!isNameChar(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            // Every start inside of the same run of name characters ends at the same character,
+            // so each run only has to be checked once
+            final int runStart = i;
+            while (i < to && isNameChar(text.charAt(i))) i++;
+            final int runEnd = i;
+            if (startsWith(text, runEnd, to, "://")) {
+                int schemeStart = runEnd;
+                while (schemeStart > runStart && isAlphaNumeric(text.charAt(schemeStart - 1))) schemeStart--;
+                if (runEnd - schemeStart >= 2 && matchesHost(text, runEnd + 3, to)) return schemeStart;
+                i = runEnd + 3;
+                continue;
+            }
+            if (runEnd + 2 < to && text.charAt(runEnd) == '.' && isLetter(text.charAt(runEnd + 1)) && isLetter(text.charAt(runEnd + 2)))
+                return runStart;
+            for (int s = Math.max(runStart, runEnd - 3); s < runEnd; s++) {
+                if (matchesIPv4(text, s, to)) return s;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matchesHost(final CharSequence text, final int from, final int to) {
+        if (matchesIPv4(text, from, to)) return true;
+        int i = from;
+        while (i < to && isNameChar(text.charAt(i))) i++;
+        return i > from && i + 2 < to && text.charAt(i) == '.' && isLetter(text.charAt(i + 1)) && isLetter(text.charAt(i + 2));
+    }
+
+    private static boolean matchesIPv4(final CharSequence text, int i, final int to) {
+        for (int part = 0; part < 4; part++) {
+            final int partStart = i;
+            while (i < to && i - partStart < 3 && isDigit(text.charAt(i))) i++;
+            if (i == partStart) return false;
+            if (part < 3) {
+                if (i >= to || text.charAt(i) != '.') return false;
+                i++;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWith(final CharSequence text, final int from, final int to, final String prefix) {
+        if (to - from < prefix.length()) return false;
+        for (int i = 0; i < prefix.length(); i++)
+            if (text.charAt(from + i) != prefix.charAt(i)) return false;
+        return true;
+    }
+
+    private static boolean isTerminator(final char c) {
+        return c == ' ' || c == '\n' || c == '!' || c == '"' || c == '\u00a7';
+    }
+
+    private static boolean isNameChar(final char c) {
+        return isAlphaNumeric(c) || c == '_' || c == '-';
+    }
+
+    private static boolean isAlphaNumeric(final char c) {
+        return isLetter(c) || isDigit(c);
+    }
+
+    private static boolean isLetter(final char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+}
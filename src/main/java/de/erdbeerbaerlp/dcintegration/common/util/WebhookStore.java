@@ -0,0 +1,186 @@
+package de.erdbeerbaerlp.dcintegration.common.util;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import net.dv8tion.jda.api.requests.ErrorResponse;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * Remembers the webhooks used for each channel across restarts, so that no webhooks need to be looked up before the first messages.<br>
+ * Entries are only validated when sending fails or by a background refresh.
+ * The file contains webhook tokens, so it is only readable by its owner where the file system supports it
+ */
+public class WebhookStore {
+    /**
+     * ID, token and name of a webhook
+     */
+    public static final class Handle {
+        public final long id;
+        public final String token;
+        public final String name;
+
+        public Handle(long id, String token, String name) {
+            this.id = id;
+            this.token = token;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Handle)) return false;
+            final Handle h = (Handle) o;
+            return id == h.id && token.equals(h.token) && name.equals(h.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(id) * 31 + token.hashCode();
+        }
+    }
+
+    private final File file;
+    /**
+     * Webhooks by ID of the channel they belong to
+     */
+    private final HashMap<Long, Handle> handles = new HashMap<>();
+
+    public WebhookStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the stored webhooks, ignoring invalid entries
+     */
+    public synchronized void load() {
+        handles.clear();
+        if (!file.exists()) return;
+        try (Reader r = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            final JsonObject json = JsonParser.parseReader(r).getAsJsonObject();
+            for (final Map.Entry<String, JsonElement> e : json.entrySet()) {
+                try {
+                    final JsonObject o = e.getValue().getAsJsonObject();
+                    handles.put(Long.parseLong(e.getKey()), new Handle(o.get("id").getAsLong(), o.get("token").getAsString(), o.get("name").getAsString()));
+                } catch (RuntimeException ex) {
+                    DiscordIntegration.LOGGER.warn("Ignoring invalid webhook cache entry for channel " + e.getKey());
+                }
+            }
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            DiscordIntegration.LOGGER.warn("Failed to load webhook cache, webhooks will be looked up again: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param channelID ID of the channel, not the thread
+     * @return The stored webhook, or null
+     */
+    public synchronized Handle get(long channelID) {
+        return handles.get(channelID);
+    }
+
+    /**
+     * Stores the webhook of a channel, saving the file if it changed
+     */
+    public synchronized void put(long channelID, Handle handle) {
+        if (handle.equals(handles.put(channelID, handle))) return;
+        save();
+    }
+
+    /**
+     * Removes a webhook from all channels using it, for example after it got deleted
+     *
+     * @param webhookID ID of the webhook
+     */
+    public synchronized void removeWebhook(long webhookID) {
+        if (handles.values().removeIf((h) -> h.id == webhookID)) save();
+    }
+
+    /**
+     * Removes the webhooks of channels which no longer exist
+     *
+     * @param exists Returns true if the channel with this ID still exists
+     * @return Amount of removed entries
+     */
+    public synchronized int retainChannels(LongPredicate exists) {
+        final int before = handles.size();
+        handles.keySet().removeIf((channelID) -> !exists.test(channelID));
+        final int removed = before - handles.size();
+        if (removed > 0) save();
+        return removed;
+    }
+
+    /**
+     * Checks the body of a failed webhook request for the discord error code of deleted webhooks.<br>
+     * Other 404 responses, for example of deleted or archived threads, don't mean that the webhook is gone
+     *
+     * @param body Response body
+     * @return true if discord reported the webhook as unknown
+     */
+    public static boolean isUnknownWebhook(String body) {
+        if (body == null || body.isEmpty()) return false;
+        try {
+            final JsonElement json = JsonParser.parseString(body);
+            return json.isJsonObject() && json.getAsJsonObject().has("code") && json.getAsJsonObject().get("code").getAsInt() == ErrorResponse.UNKNOWN_WEBHOOK.getCode();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return Copy of all stored webhooks by channel ID
+     */
+    public synchronized Map<Long, Handle> getAll() {
+        return new HashMap<>(handles);
+    }
+
+    private void save() {
+        final JsonObject json = new JsonObject();
+        handles.forEach((channel, h) -> {
+            final JsonObject o = new JsonObject();
+            o.addProperty("id", h.id);
+            o.addProperty("token", h.token);
+            o.addProperty("name", h.name);
+            json.add(Long.toString(channel), o);
+        });
+        try {
+            final File parent = file.getAbsoluteFile().getParentFile();
+            if (!parent.exists()) parent.mkdirs();
+            // Write to a temporary file first, so that a crash can't leave a truncated file behind
+            final File tmp = new File(parent, file.getName() + ".tmp");
+            createPrivate(tmp);
+            try (Writer w = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+                DiscordIntegration.gson.toJson(json, w);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            DiscordIntegration.LOGGER.error("Failed to save webhook cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Creates an empty file only its owner can read and write, moving it keeps the permissions
+     */
+    private static void createPrivate(File f) throws IOException {
+        Files.deleteIfExists(f.toPath());
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(f.toPath(), PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            return;
+        }
+        Files.createFile(f.toPath());
+        f.setReadable(false, false);
+        f.setReadable(true, true);
+        f.setWritable(false, false);
+        f.setWritable(true, true);
+    }
+}
@@ -0,0 +1,280 @@
+package de.erdbeerbaerlp.dcintegration.common.util;
+
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import de.erdbeerbaerlp.dcintegration.common.storage.linking.PlayerLink;
+import net.dv8tion.jda.api.entities.Member;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Set of player UUIDs allowed to join in whitelist mode, so that logins only need a set lookup.<br>
+ * Maintained from link, role and member events, a full {@link #reconcile()} fixes missed events.
+ * Links whose member could not be looked up keep their current state
+ */
+public class WhitelistIndex {
+    private final Set<UUID> eligible = ConcurrentHashMap.newKeySet();
+    private final Supplier<Collection<PlayerLink>> links;
+    private final Function<String, PlayerLink> linkByDiscordID;
+    private final Function<Long, CompletableFuture<Member>> members;
+    private final Function<long[], CompletableFuture<List<Member>>> memberBatch;
+    private final Predicate<Member> hasRequiredRole;
+    private final BooleanSupplier rolesRequired;
+    private volatile boolean ready, started;
+    private CompletableFuture<Void> reconciling;
+
+    /**
+     * @param links           All player links
+     * @param members         Loads a guild member, completing with null if the user is not a member
+     * @param hasRequiredRole Checks if a member has one of the required roles
+     * @param rolesRequired   Returns true if required roles are configured
+     */
+    public WhitelistIndex(Supplier<Collection<PlayerLink>> links, Function<Long, CompletableFuture<Member>> members, Predicate<Member> hasRequiredRole, BooleanSupplier rolesRequired) {
+        this(links, (id) -> {
+            for (final PlayerLink link : links.get())
+                if (id.equals(link.discordID)) return link;
+            return null;
+        }, members, hasRequiredRole, rolesRequired);
+    }
+
+    /**
+     * @param links           All player links
+     * @param linkByDiscordID Looks up the link of a discord user, returning null if there is none
+     * @param members         Loads a guild member, completing with null if the user is not a member
+     * @param hasRequiredRole Checks if a member has one of the required roles
+     * @param rolesRequired   Returns true if required roles are configured
+     */
+    public WhitelistIndex(Supplier<Collection<PlayerLink>> links, Function<String, PlayerLink> linkByDiscordID, Function<Long, CompletableFuture<Member>> members, Predicate<Member> hasRequiredRole, BooleanSupplier rolesRequired) {
+        this(links, linkByDiscordID, members, null, hasRequiredRole, rolesRequired);
+    }
+
+    /**
+     * @param links           All player links
+     * @param linkByDiscordID Looks up the link of a discord user, returning null if there is none
+     * @param members         Loads a guild member, completing with null if the user is not a member
+     * @param memberBatch     Loads up to {@link LeaveSweep#BATCH_SIZE} members for {@link #reconcile()}, users who are not a member are missing from the result.
+     *                        If null, members are loaded one by one
+     * @param hasRequiredRole Checks if a member has one of the required roles
+     * @param rolesRequired   Returns true if required roles are configured
+     */
+    public WhitelistIndex(Supplier<Collection<PlayerLink>> links, Function<String, PlayerLink> linkByDiscordID, Function<Long, CompletableFuture<Member>> members,
+                          Function<long[], CompletableFuture<List<Member>>> memberBatch, Predicate<Member> hasRequiredRole, BooleanSupplier rolesRequired) {
+        this.links = links;
+        this.linkByDiscordID = linkByDiscordID;
+        this.members = members;
+        this.memberBatch = memberBatch;
+        this.hasRequiredRole = hasRequiredRole;
+        this.rolesRequired = rolesRequired;
+    }
+
+    /**
+     * @return true after the first {@link #reconcile()} completed without failed member lookups
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return true once {@link #reconcile()} was called, which happens after the links were loaded
+     */
+    public boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * @param uuid Java or bedrock UUID of the player
+     * @return true if the player is linked and has one of the required roles
+     */
+    public boolean isEligible(UUID uuid) {
+        return eligible.contains(uuid);
+    }
+
+    /**
+     * Rebuilds the set from all links, replacing it once all members were checked
+     *
+     * @return Future completing when the set got replaced
+     */
+    public synchronized CompletableFuture<Void> reconcile() {
+        if (reconciling != null && !reconciling.isDone()) return reconciling;
+        started = true;
+        final Set<UUID> rebuilt = ConcurrentHashMap.newKeySet();
+        final AtomicInteger failed = new AtomicInteger();
+        final CompletableFuture<Void> checked;
+        try {
+            checked = checkAll(new ArrayList<>(links.get()), rebuilt, failed);
+        } catch (RuntimeException e) {
+            DiscordIntegration.LOGGER.warn("Failed to reconcile whitelist: " + e.getMessage());
+            return reconciling = CompletableFuture.completedFuture(null);
+        }
+        reconciling = checked.thenRun(() -> {
+            int changed = 0;
+            for (final UUID uuid : rebuilt)
+                if (eligible.add(uuid)) changed++;
+            for (final Iterator<UUID> it = eligible.iterator(); it.hasNext(); ) {
+                if (!rebuilt.contains(it.next())) {
+                    it.remove();
+                    changed++;
+                }
+            }
+            if (ready && changed > 0)
+                DiscordIntegration.LOGGER.debug("Whitelist reconciliation fixed " + changed + " entries");
+            if (failed.get() > 0)
+                DiscordIntegration.LOGGER.warn("Failed to check " + failed.get() + " linked users while reconciling the whitelist, keeping their current state");
+            else ready = true;
+        });
+        return reconciling;
+    }
+
+    /**
+     * Adds the UUIDs of all eligible links to the rebuilt set
+     */
+    private CompletableFuture<Void> checkAll(List<PlayerLink> all, Set<UUID> rebuilt, AtomicInteger failed) {
+        final List<CompletableFuture<?>> checks = new ArrayList<>();
+        if (!rolesRequired.getAsBoolean()) {
+            for (final PlayerLink link : all) addUUIDs(link, rebuilt);
+            return CompletableFuture.completedFuture(null);
+        }
+        if (memberBatch == null) {
+            for (final PlayerLink link : all)
+                checks.add(check(link).handle((ok, error) -> {
+                    apply(link, ok, error, rebuilt, failed);
+                    return null;
+                }));
+        } else {
+            final LinkedHashMap<Long, PlayerLink> byID = new LinkedHashMap<>();
+            for (final PlayerLink link : all) {
+                final long id = parseID(link.discordID);
+                if (id != 0) byID.put(id, link);
+            }
+            final long[] ids = byID.keySet().stream().mapToLong(Long::longValue).toArray();
+            // Batches run one after another, like the leave sweep
+            CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+            for (int start = 0; start < ids.length; start += LeaveSweep.BATCH_SIZE) {
+                final long[] batch = Arrays.copyOfRange(ids, start, Math.min(ids.length, start + LeaveSweep.BATCH_SIZE));
+                chain = chain.thenCompose((v) -> checkBatch(batch, byID, rebuilt, failed));
+            }
+            checks.add(chain);
+        }
+        return CompletableFuture.allOf(checks.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private CompletableFuture<Void> checkBatch(long[] batch, Map<Long, PlayerLink> byID, Set<UUID> rebuilt, AtomicInteger failed) {
+        CompletableFuture<List<Member>> request;
+        try {
+            request = memberBatch.apply(batch);
+        } catch (RuntimeException e) {
+            request = CompletableFuture.failedFuture(e);
+        }
+        return request.handle((found, error) -> {
+            final HashMap<Long, Member> present = new HashMap<>();
+            if (found != null) for (final Member m : found) present.put(m.getIdLong(), m);
+            for (final long id : batch) {
+                final Member m = present.get(id);
+                apply(byID.get(id), error == null ? m != null && hasRequiredRole.test(m) : null, error, rebuilt, failed);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Adds the link to the rebuilt set if eligible, or keeps its current state if the lookup failed
+     */
+    private void apply(PlayerLink link, Boolean ok, Throwable error, Set<UUID> rebuilt, AtomicInteger failed) {
+        if (error != null) {
+            failed.incrementAndGet();
+            DiscordIntegration.LOGGER.debug("Failed to check whitelist eligibility of " + link.discordID + ": " + error.getMessage());
+            final UUID java = parse(link.mcPlayerUUID), bedrock = parse(link.floodgateUUID);
+            if (java != null && eligible.contains(java)) rebuilt.add(java);
+            if (bedrock != null && eligible.contains(bedrock)) rebuilt.add(bedrock);
+        } else if (ok) addUUIDs(link, rebuilt);
+    }
+
+    /**
+     * Adds the players of a new or changed link, if the member has a required role
+     *
+     * @return Future completing once the link was checked
+     */
+    public CompletableFuture<Void> linked(PlayerLink link) {
+        if (!rolesRequired.getAsBoolean()) {
+            addUUIDs(link, eligible);
+            return CompletableFuture.completedFuture(null);
+        }
+        return check(link).thenAccept((ok) -> {
+            if (ok) addUUIDs(link, eligible);
+            else removeUUIDs(link);
+        });
+    }
+
+    /**
+     * Removes the players of a removed link
+     */
+    public void unlinked(PlayerLink link) {
+        removeUUIDs(link);
+    }
+
+    /**
+     * Updates the players linked to a member, after its roles changed
+     *
+     * @param member Updated member
+     */
+    public void memberChanged(Member member) {
+        final PlayerLink link = linkByDiscordID.apply(member.getId());
+        if (link == null) return;
+        if (!rolesRequired.getAsBoolean() || hasRequiredRole.test(member)) addUUIDs(link, eligible);
+        else removeUUIDs(link);
+    }
+
+    /**
+     * Removes the players linked to a user who left the server
+     */
+    public void memberLeft(long discordID) {
+        if (!rolesRequired.getAsBoolean()) return;
+        final PlayerLink link = linkByDiscordID.apply(Long.toUnsignedString(discordID));
+        if (link != null) removeUUIDs(link);
+    }
+
+    private CompletableFuture<Boolean> check(PlayerLink link) {
+        final long id = parseID(link.discordID);
+        if (id == 0) return CompletableFuture.completedFuture(false);
+        try {
+            return members.apply(id).thenApply((m) -> m != null && hasRequiredRole.test(m));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static long parseID(String id) {
+        try {
+            return Long.parseUnsignedLong(id);
+        } catch (NumberFormatException | NullPointerException e) {
+            return 0;
+        }
+    }
+
+    private static void addUUIDs(PlayerLink link, Set<UUID> target) {
+        final UUID java = parse(link.mcPlayerUUID), bedrock = parse(link.floodgateUUID);
+        if (java != null) target.add(java);
+        if (bedrock != null) target.add(bedrock);
+    }
+
+    private void removeUUIDs(PlayerLink link) {
+        final UUID java = parse(link.mcPlayerUUID), bedrock = parse(link.floodgateUUID);
+        if (java != null) eligible.remove(java);
+        if (bedrock != null) eligible.remove(bedrock);
+    }
+
+    private static UUID parse(String uuid) {
+        if (uuid == null || uuid.isEmpty()) return null;
+        try {
+            return UUID.fromString(uuid);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
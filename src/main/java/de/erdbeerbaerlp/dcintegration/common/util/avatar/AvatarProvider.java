@@ -0,0 +1,137 @@
+package de.erdbeerbaerlp.dcintegration.common.util.avatar;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Health state of a single avatar provider.
+ * Tracks an exponentially weighted moving average of the probe latency, errors and a circuit breaker.
+ */
+public class AvatarProvider {
+    /**
+     * Circuit breaker states
+     */
+    public enum State {
+        /** Provider is usable */
+        CLOSED,
+        /** Provider failed too often and is skipped until the cooldown expires */
+        OPEN,
+        /** Cooldown expired, the next probe decides whether the provider is usable again */
+        HALF_OPEN
+    }
+
+    private static final double EWMA_ALPHA = 0.3; // Weight of the newest latency sample
+    private static final long MAX_OPEN_MS = 600000; // Max 10 minute cooldown
+
+    private final String urlTemplate;
+    private final AtomicBoolean probing = new AtomicBoolean(false);
+
+    private double latencyEwma = -1;
+    private int consecutiveErrors = 0;
+    private long totalProbes = 0;
+    private long totalErrors = 0;
+    private int trips = 0;
+    private long openUntil = 0;
+
+    public AvatarProvider(@NotNull String urlTemplate) {
+        this.urlTemplate = urlTemplate;
+    }
+
+    /**
+     * @return The configured URL, including placeholders
+     */
+    @NotNull
+    public String getUrlTemplate() {
+        return urlTemplate;
+    }
+
+    /**
+     * Records a successful probe, closing the circuit breaker
+     *
+     * @param latencyMs Time the probe took in milliseconds
+     */
+    public synchronized void recordSuccess(long latencyMs) {
+        totalProbes++;
+        consecutiveErrors = 0;
+        trips = 0;
+        openUntil = 0;
+        latencyEwma = latencyEwma < 0 ? latencyMs : EWMA_ALPHA * latencyMs + (1 - EWMA_ALPHA) * latencyEwma;
+    }
+
+    /**
+     * Records a failed probe, opening the circuit breaker after too many consecutive failures
+     *
+     * @param failureThreshold Consecutive failures required to open the circuit breaker
+     * @param openMs           Base cooldown in milliseconds, doubled every time the breaker opens again without recovering
+     */
+    public synchronized void recordFailure(int failureThreshold, long openMs) {
+        totalProbes++;
+        totalErrors++;
+        consecutiveErrors++;
+        if (consecutiveErrors >= failureThreshold || getState() == State.HALF_OPEN) {
+            final long cooldown = Math.min(openMs << Math.min(trips, 16), MAX_OPEN_MS);
+            openUntil = System.currentTimeMillis() + cooldown;
+            trips++;
+        }
+    }
+
+    /**
+     * @return Current circuit breaker state
+     */
+    @NotNull
+    public synchronized State getState() {
+        if (openUntil == 0) return State.CLOSED;
+        return System.currentTimeMillis() < openUntil ? State.OPEN : State.HALF_OPEN;
+    }
+
+    /**
+     * @return true if the provider is closed and its last probe did not fail
+     */
+    public synchronized boolean isHealthy() {
+        return getState() == State.CLOSED && consecutiveErrors == 0;
+    }
+
+    /**
+     * @return Latency average in milliseconds, or -1 if never probed successfully
+     */
+    public synchronized double getLatencyEwma() {
+        return latencyEwma;
+    }
+
+    public synchronized int getConsecutiveErrors() {
+        return consecutiveErrors;
+    }
+
+    public synchronized long getTotalProbes() {
+        return totalProbes;
+    }
+
+    public synchronized long getTotalErrors() {
+        return totalErrors;
+    }
+
+    /**
+     * Marks this provider as being probed
+     *
+     * @return false if a probe is already running
+     */
+    boolean tryStartProbe() {
+        return probing.compareAndSet(false, true);
+    }
+
+    void finishProbe() {
+        probing.set(false);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AvatarProvider{" +
+                "url='" + urlTemplate + '\'' +
+                ", state=" + getState() +
+                ", latencyEwma=" + latencyEwma +
+                ", consecutiveErrors=" + consecutiveErrors +
+                ", totalErrors=" + totalErrors +
+                '}';
+    }
+}
@@ -0,0 +1,164 @@
+package de.erdbeerbaerlp.dcintegration.common.util.avatar;
+
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Probes a list of avatar providers concurrently and selects the fastest healthy one.
+ * Probes use HEAD requests with strict timeouts on a dedicated thread pool, so a hanging provider never blocks the caller.
+ */
+public class AvatarProviderMonitor {
+    private static final int MAX_PROBE_THREADS = 4;
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    // == Values used for testing the URL
+    private static final UUID testUUID = UUID.fromString("210f7275-c79f-44f8-a7a0-7da71c751bb9");
+    private static final String testName = "ErdbeerbaerLP";
+    // ==
+
+    private final int timeoutMs;
+    private final int failureThreshold;
+    private final long openMs;
+    private final ExecutorService executor = Executors.newFixedThreadPool(MAX_PROBE_THREADS, r -> {
+        final Thread t = new Thread(r, "DiscordIntegration Avatar Probe #" + threadCounter.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile List<AvatarProvider> providers = Collections.emptyList();
+
+    /**
+     * @param timeoutMs        Connect and read timeout of a single probe in milliseconds
+     * @param failureThreshold Consecutive failures required to open a provider's circuit breaker
+     * @param openMs           Base cooldown of an opened circuit breaker in milliseconds
+     */
+    public AvatarProviderMonitor(int timeoutMs, int failureThreshold, long openMs) {
+        this.timeoutMs = timeoutMs;
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+    }
+
+    /**
+     * Replaces the provider list, keeping the statistics of providers which are still configured
+     *
+     * @param urlTemplates Avatar URLs in order of preference
+     */
+    public synchronized void setProviders(@NotNull List<String> urlTemplates) {
+        final Map<String, AvatarProvider> old = new LinkedHashMap<>();
+        for (final AvatarProvider p : providers) old.put(p.getUrlTemplate(), p);
+        final Map<String, AvatarProvider> updated = new LinkedHashMap<>();
+        for (final String url : urlTemplates) {
+            if (url == null || url.isEmpty()) continue;
+            updated.computeIfAbsent(url, u -> old.getOrDefault(u, new AvatarProvider(u)));
+        }
+        providers = Collections.unmodifiableList(new ArrayList<>(updated.values()));
+    }
+
+    /**
+     * @return All currently known providers in order of preference
+     */
+    @NotNull
+    public List<AvatarProvider> getProviders() {
+        return providers;
+    }
+
+    /**
+     * Probes all providers which are not in cooldown
+     *
+     * @return Future completing once every probe finished or timed out
+     */
+    @NotNull
+    public CompletableFuture<Void> probeAll() {
+        final List<CompletableFuture<Void>> probes = new ArrayList<>();
+        for (final AvatarProvider p : providers) {
+            if (p.getState() == AvatarProvider.State.OPEN) continue;
+            if (!p.tryStartProbe()) continue;
+            probes.add(CompletableFuture.runAsync(() -> {
+                try {
+                    probe(p);
+                } finally {
+                    p.finishProbe();
+                }
+            }, executor));
+        }
+        return CompletableFuture.allOf(probes.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private void probe(final AvatarProvider p) {
+        final long start = System.nanoTime();
+        try {
+            int code = request(p, "HEAD");
+            if (code == HttpURLConnection.HTTP_BAD_METHOD || code == HttpURLConnection.HTTP_NOT_IMPLEMENTED)
+                code = request(p, "GET");
+            if (code >= 200 && code < 300) {
+                p.recordSuccess((System.nanoTime() - start) / 1000000);
+                return;
+            }
+            DiscordIntegration.LOGGER.debug("Avatar provider {} returned {}", p.getUrlTemplate(), code);
+        } catch (IOException | IllegalArgumentException e) {
+            DiscordIntegration.LOGGER.debug("Avatar provider {} unreachable: {}", p.getUrlTemplate(), e.getMessage());
+        }
+        p.recordFailure(failureThreshold, openMs);
+        if (p.getState() == AvatarProvider.State.OPEN)
+            DiscordIntegration.LOGGER.warn("Avatar provider {} is not reachable, skipping it for now", p.getUrlTemplate());
+    }
+
+    private int request(final AvatarProvider p, final String method) throws IOException {
+        final HttpURLConnection c = (HttpURLConnection) new URL(formatTestURL(p.getUrlTemplate())).openConnection();
+        try {
+            c.setRequestMethod(method);
+            c.setConnectTimeout(timeoutMs);
+            c.setReadTimeout(timeoutMs);
+            c.setUseCaches(false);
+            return c.getResponseCode();
+        } finally {
+            c.disconnect();
+        }
+    }
+
+    /**
+     * Selects the healthy provider with the lowest average latency.
+     * Providers which were not probed yet are only used when no probed provider is healthy, in order of preference.
+     *
+     * @return The best provider, or null if none is healthy
+     */
+    @Nullable
+    public AvatarProvider getBestProvider() {
+        AvatarProvider best = null;
+        for (final AvatarProvider p : providers) {
+            if (!p.isHealthy()) continue;
+            if (best == null) {
+                best = p;
+                continue;
+            }
+            final double lat = p.getLatencyEwma(), bestLat = best.getLatencyEwma();
+            if (lat >= 0 && (bestLat < 0 || lat < bestLat)) best = p;
+        }
+        return best;
+    }
+
+    /**
+     * Stops the probe threads
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static String formatTestURL(final String template) {
+        return template.replace("%uuid%", testUUID.toString()).replace("%uuid_dashless%", testUUID.toString().replace("-", "")).replace("%name%", testName).replace("%randomUUID%", UUID.randomUUID().toString());
+    }
+}
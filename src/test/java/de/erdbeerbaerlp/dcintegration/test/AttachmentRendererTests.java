@@ -0,0 +1,94 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
+import de.erdbeerbaerlp.dcintegration.common.util.AttachmentRenderer;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.sticker.StickerItem;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for rendering attachments and embeds ingame
+ */
+public class AttachmentRendererTests {
+
+    @AfterEach
+    public void resetLimits() {
+        final Configuration.Messages defaults = new Configuration.Messages();
+        Configuration.instance().messages.maxIngameAttachments = defaults.maxIngameAttachments;
+        Configuration.instance().messages.maxIngameEmbeds = defaults.maxIngameEmbeds;
+        Configuration.instance().messages.maxEmbedDescriptionLength = defaults.maxEmbedDescriptionLength;
+    }
+
+    private static Message.Attachment attachment(String name) {
+        final Message.Attachment a = Mockito.mock(Message.Attachment.class);
+        Mockito.when(a.getFileName()).thenReturn(name);
+        Mockito.when(a.getUrl()).thenReturn("https://cdn.example.com/" + name);
+        return a;
+    }
+
+    private static String plain(Component c) {
+        return LegacyComponentSerializer.legacySection().serialize(c).replaceAll("§.", "");
+    }
+
+    @Test
+    public void testNothingAttached() {
+        Assertions.assertEquals(Component.empty(), AttachmentRenderer.render(Collections.emptyList(), Collections.emptyList(), Collections.emptyList()));
+    }
+
+    @Test
+    public void testAttachmentsAndStickers() {
+        final StickerItem sticker = Mockito.mock(StickerItem.class);
+        Mockito.when(sticker.getName()).thenReturn("wave");
+        final Component out = AttachmentRenderer.render(List.of(attachment("a.png"), attachment("b.txt")), Collections.emptyList(), List.of(sticker));
+        Assertions.assertEquals("\nAttachment:\na.png\nb.txt\nSticker: wave", plain(out));
+        final TextComponent link = (TextComponent) out.children().get(3);
+        Assertions.assertEquals("https://cdn.example.com/a.png", link.clickEvent().value());
+    }
+
+    @Test
+    public void testLimits() {
+        Configuration.instance().messages.maxIngameAttachments = 2;
+        Configuration.instance().messages.maxIngameEmbeds = 3;
+        Configuration.instance().messages.maxEmbedDescriptionLength = 100;
+        final List<Message.Attachment> attachments = new ArrayList<>();
+        for (int i = 0; i < 5; i++) attachments.add(attachment(i + ".png"));
+        final List<MessageEmbed> embeds = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            embeds.add(new EmbedBuilder().setTitle("Title " + i).setDescription("x".repeat(MessageEmbed.DESCRIPTION_MAX_LENGTH)).build());
+
+        final String out = plain(AttachmentRenderer.render(attachments, embeds, Collections.emptyList()));
+        Assertions.assertTrue(out.contains("1.png"));
+        Assertions.assertFalse(out.contains("2.png"));
+        Assertions.assertTrue(out.contains("... and 3 more"));
+        Assertions.assertTrue(out.contains("Title 2"));
+        Assertions.assertFalse(out.contains("Title 3"));
+        Assertions.assertTrue(out.contains("... and 7 more"));
+        Assertions.assertTrue(out.contains("x".repeat(100) + "..."));
+        Assertions.assertFalse(out.contains("x".repeat(101)));
+        Assertions.assertTrue(out.length() < 1000, "Rendered " + out.length() + " characters");
+    }
+
+    @Test
+    public void testTruncationKeepsSurrogatePairs() {
+        Configuration.instance().messages.maxEmbedDescriptionLength = 4;
+        final MessageEmbed embed = new EmbedBuilder().setDescription("ab\uD83D\uDE00\uD83D\uDE00").build();
+        final String out = plain(AttachmentRenderer.render(Collections.emptyList(), List.of(embed), Collections.emptyList()));
+        Assertions.assertTrue(out.contains("ab\uD83D\uDE00...\n"));
+        // The limit ends between the two chars of the first emoji
+        Configuration.instance().messages.maxEmbedDescriptionLength = 3;
+        final String cut = plain(AttachmentRenderer.render(Collections.emptyList(), List.of(embed), Collections.emptyList()));
+        Assertions.assertTrue(cut.contains("ab...\n"));
+    }
+}
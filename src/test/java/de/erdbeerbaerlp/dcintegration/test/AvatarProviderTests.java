@@ -0,0 +1,143 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import com.sun.net.httpserver.HttpServer;
+import de.erdbeerbaerlp.dcintegration.common.util.avatar.AvatarProvider;
+import de.erdbeerbaerlp.dcintegration.common.util.avatar.AvatarProviderMonitor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the avatar provider health monitor, using a local HTTP stub
+ */
+public class AvatarProviderTests {
+    private HttpServer server;
+    private String base;
+    private AvatarProviderMonitor monitor;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/fast", ex -> {
+            ex.sendResponseHeaders(200, -1);
+            ex.close();
+        });
+        server.createContext("/slow", ex -> {
+            sleep(300);
+            ex.sendResponseHeaders(200, -1);
+            ex.close();
+        });
+        server.createContext("/down", ex -> {
+            ex.sendResponseHeaders(500, -1);
+            ex.close();
+        });
+        server.createContext("/hang", ex -> {
+            sleep(5000);
+            ex.sendResponseHeaders(200, -1);
+            ex.close();
+        });
+        server.createContext("/nohead", ex -> {
+            ex.sendResponseHeaders(ex.getRequestMethod().equals("HEAD") ? 405 : 200, -1);
+            ex.close();
+        });
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+        monitor = new AvatarProviderMonitor(500, 2, 60000);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        monitor.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    public void testSelectsFastestProvider() throws Exception {
+        monitor.setProviders(List.of(base + "/slow/%uuid%", base + "/fast/%name%"));
+        monitor.probeAll().get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(base + "/fast/%name%", monitor.getBestProvider().getUrlTemplate());
+    }
+
+    @Test
+    public void testUnprobedProvidersUseConfiguredOrder() {
+        monitor.setProviders(List.of(base + "/slow", base + "/fast"));
+        Assertions.assertEquals(base + "/slow", monitor.getBestProvider().getUrlTemplate());
+    }
+
+    @Test
+    public void testHangingProviderTimesOut() throws Exception {
+        monitor.setProviders(List.of(base + "/hang", base + "/fast"));
+        final long start = System.currentTimeMillis();
+        monitor.probeAll().get(5, TimeUnit.SECONDS);
+        Assertions.assertTrue(System.currentTimeMillis() - start < 3000, "Probe did not respect the timeout");
+        final AvatarProvider hang = monitor.getProviders().get(0);
+        Assertions.assertEquals(1, hang.getConsecutiveErrors());
+        Assertions.assertFalse(hang.isHealthy());
+        Assertions.assertEquals(base + "/fast", monitor.getBestProvider().getUrlTemplate());
+    }
+
+    @Test
+    public void testCircuitBreakerOpens() throws Exception {
+        monitor.setProviders(List.of(base + "/down"));
+        monitor.probeAll().get(5, TimeUnit.SECONDS);
+        final AvatarProvider down = monitor.getProviders().get(0);
+        Assertions.assertEquals(AvatarProvider.State.CLOSED, down.getState());
+        monitor.probeAll().get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(AvatarProvider.State.OPEN, down.getState());
+        Assertions.assertNull(monitor.getBestProvider());
+
+        // Open providers are not probed again until the cooldown expires
+        monitor.probeAll().get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(2, down.getTotalProbes());
+    }
+
+    @Test
+    public void testCircuitBreakerRecovers() throws Exception {
+        final AvatarProviderMonitor shortCooldown = new AvatarProviderMonitor(500, 1, 50);
+        try {
+            shortCooldown.setProviders(List.of(base + "/down"));
+            shortCooldown.probeAll().get(5, TimeUnit.SECONDS);
+            final AvatarProvider p = shortCooldown.getProviders().get(0);
+            Assertions.assertEquals(AvatarProvider.State.OPEN, p.getState());
+            Thread.sleep(100);
+            Assertions.assertEquals(AvatarProvider.State.HALF_OPEN, p.getState());
+            p.recordSuccess(10);
+            Assertions.assertEquals(AvatarProvider.State.CLOSED, p.getState());
+            Assertions.assertTrue(p.isHealthy());
+        } finally {
+            shortCooldown.shutdown();
+        }
+    }
+
+    @Test
+    public void testFallsBackToGetWhenHeadUnsupported() throws Exception {
+        monitor.setProviders(List.of(base + "/nohead"));
+        monitor.probeAll().get(5, TimeUnit.SECONDS);
+        Assertions.assertTrue(monitor.getProviders().get(0).isHealthy());
+    }
+
+    @Test
+    public void testStatisticsSurviveProviderReload() throws Exception {
+        monitor.setProviders(List.of(base + "/fast"));
+        monitor.probeAll().get(5, TimeUnit.SECONDS);
+        final AvatarProvider before = monitor.getProviders().get(0);
+        monitor.setProviders(List.of(base + "/fast", base + "/slow"));
+        Assertions.assertSame(before, monitor.getProviders().get(0));
+        Assertions.assertEquals(2, monitor.getProviders().size());
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException ignored) {
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.util.ChannelIndex;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.entities.channel.concrete.ThreadChannel;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+/**
+ * Tests for the channel index used when sending messages
+ */
+public class ChannelIndexTests {
+    private static final long DEFAULT = 200000000000000001L, DEATHS = 200000000000000002L, THREAD = 200000000000000003L, NEW = 200000000000000004L;
+
+    private final JDA jda = Mockito.mock(JDA.class);
+
+    private <T extends GuildChannel> T channel(Class<T> type, long id, boolean text) {
+        final T channel = Mockito.mock(type);
+        Mockito.when(channel.getIdLong()).thenReturn(id);
+        if (text) Mockito.when(jda.getTextChannelById(id)).thenReturn((TextChannel) channel);
+        else Mockito.when(jda.getChannelById(GuildChannel.class, id)).thenReturn(channel);
+        return channel;
+    }
+
+    @Test
+    public void testAliasesResolvedOnce() {
+        final TextChannel def = channel(TextChannel.class, DEFAULT, true);
+        final TextChannel deaths = channel(TextChannel.class, DEATHS, true);
+        final ChannelIndex index = new ChannelIndex();
+        index.setAliases(jda, String.valueOf(DEFAULT), "default", String.valueOf(DEATHS), "invalid");
+        Mockito.clearInvocations(jda);
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertSame(def, index.getAlias("default"));
+            Assertions.assertSame(def, index.getAlias(String.valueOf(DEFAULT)));
+            Assertions.assertSame(deaths, index.getAlias(String.valueOf(DEATHS)));
+        }
+        Assertions.assertNull(index.getAlias("invalid"));
+        Mockito.verifyNoInteractions(jda);
+    }
+
+    @Test
+    public void testThreadsAndMissingChannels() {
+        final ThreadChannel thread = channel(ThreadChannel.class, THREAD, false);
+        final ChannelIndex index = new ChannelIndex();
+        index.setAliases(jda, String.valueOf(DEFAULT));
+        Assertions.assertSame(thread, index.get(THREAD));
+
+        // Unknown channels are only looked up once, until they get created
+        Assertions.assertNull(index.get(NEW));
+        Assertions.assertNull(index.get(NEW));
+        Mockito.verify(jda, Mockito.times(1)).getTextChannelById(NEW);
+        final TextChannel created = channel(TextChannel.class, NEW, true);
+        index.channelCreated(created);
+        Assertions.assertSame(created, index.get(NEW));
+    }
+
+    @Test
+    public void testDeletedAliasIsDropped() {
+        final TextChannel deaths = channel(TextChannel.class, DEATHS, true);
+        final ChannelIndex index = new ChannelIndex();
+        index.setAliases(jda, String.valueOf(DEFAULT), String.valueOf(DEATHS));
+        Assertions.assertSame(deaths, index.getAlias(String.valueOf(DEATHS)));
+        Mockito.when(jda.getTextChannelById(DEATHS)).thenReturn(null);
+        index.channelRemoved(deaths);
+        Assertions.assertNull(index.getAlias(String.valueOf(DEATHS)));
+        Assertions.assertNull(index.get(DEATHS));
+        index.channelCreated(deaths);
+        Assertions.assertSame(deaths, index.getAlias(String.valueOf(DEATHS)));
+    }
+
+    @Test
+    public void testShardManager() {
+        // Channels of all shards are looked up through the shard manager
+        final ShardManager shards = Mockito.mock(ShardManager.class);
+        final TextChannel channel = Mockito.mock(TextChannel.class);
+        Mockito.when(channel.getIdLong()).thenReturn(DEATHS);
+        Mockito.when(shards.getTextChannelById(DEATHS)).thenReturn(channel);
+        final ChannelIndex index = new ChannelIndex();
+        index.setAliases(shards, String.valueOf(DEFAULT), String.valueOf(DEATHS));
+        Assertions.assertSame(channel, index.getAlias(String.valueOf(DEATHS)));
+        Assertions.assertSame(channel, index.get(DEATHS));
+    }
+}
@@ -0,0 +1,97 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.util.ComponentTemplate;
+import de.erdbeerbaerlp.dcintegration.common.util.ComponentUtils;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for precompiled ingame chat templates
+ */
+public class ComponentTemplateTests {
+    private static final String[] PLACEHOLDERS = {"%user%", "%id%", "%msg%", "%ruser%", "%rmsg%"};
+    private static final String MESSAGE_FORMAT = "§6[§9DISCORD§6]§r <%user%> %msg%";
+    private static final String REPLY_FORMAT = "§6[§9DISCORD§6]§r §a%user%§r in reply to §3%ruser%§r: %msg%";
+
+    private static final Component USER = Component.text("Steve").style(Style.style(NamedTextColor.RED).hoverEvent(HoverEvent.showText(Component.text("Hover"))));
+    private static final Component ID = Component.text("123456789");
+    private static final Component MSG = Component.text("Hello ").append(Component.text("world").color(NamedTextColor.AQUA));
+    private static final Component RUSER = Component.text("Alex");
+
+    private static Component renderOld(String format, boolean reply) {
+        Component out = LegacyComponentSerializer.legacySection().deserialize(format);
+        out = out.replaceText(ComponentUtils.replaceLiteral("%user%", USER)).replaceText(ComponentUtils.replaceLiteral("%id%", ID)).replaceText(ComponentUtils.replaceLiteral("%msg%", MSG));
+        if (reply)
+            out = out.replaceText(ComponentUtils.replaceLiteral("%ruser%", RUSER)).replaceText(ComponentUtils.replaceLiteral("%rmsg%", MSG));
+        return out;
+    }
+
+    private static String legacy(Component c) {
+        return LegacyComponentSerializer.legacySection().serialize(c);
+    }
+
+    @Test
+    public void testMatchesReplaceTextOutput() {
+        final ComponentTemplate message = ComponentTemplate.compile(MESSAGE_FORMAT, PLACEHOLDERS);
+        Assertions.assertEquals(legacy(renderOld(MESSAGE_FORMAT, false)), legacy(message.render(USER, ID, MSG, null, null)));
+        final ComponentTemplate reply = ComponentTemplate.compile(REPLY_FORMAT, PLACEHOLDERS);
+        Assertions.assertEquals(legacy(renderOld(REPLY_FORMAT, true)), legacy(reply.render(USER, ID, MSG, RUSER, MSG)));
+    }
+
+    @Test
+    public void testSlotsInheritFormatStyle() {
+        final ComponentTemplate template = ComponentTemplate.compile("§a%user%", PLACEHOLDERS);
+        final String json = GsonComponentSerializer.gson().serialize(template.render(Component.text("Steve")));
+        Assertions.assertTrue(json.contains("\"color\":\"green\""), json);
+        Assertions.assertEquals("§aSteve", legacy(template.render(Component.text("Steve"))));
+    }
+
+    @Test
+    public void testMissingValuesKeepPlaceholder() {
+        final ComponentTemplate template = ComponentTemplate.compile("%user%: %ruser% %unknown%", PLACEHOLDERS);
+        Assertions.assertEquals("Steve: %ruser% %unknown%", legacy(template.render(Component.text("Steve"))));
+    }
+
+    @Test
+    public void testRepeatedAndAdjacentSlots() {
+        final ComponentTemplate template = ComponentTemplate.compile("%user%%id%-%user%", PLACEHOLDERS);
+        Assertions.assertEquals("Steve1-Steve", legacy(template.render(Component.text("Steve"), Component.text("1"))));
+    }
+
+    @Test
+    public void testValuesAreNotReparsed() {
+        // Placeholders inside of user content must not be replaced
+        final ComponentTemplate template = ComponentTemplate.compile("<%user%> %msg%", PLACEHOLDERS);
+        Assertions.assertEquals("<%msg%> hi", legacy(template.render(Component.text("%msg%"), null, Component.text("hi"))));
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void benchmarkAgainstReplaceText() {
+        final ComponentTemplate reply = ComponentTemplate.compile(REPLY_FORMAT, PLACEHOLDERS);
+        // Both paths must produce the same component, including styles and hover events
+        Assertions.assertEquals(renderOld(REPLY_FORMAT, true).compact(), reply.render(USER, ID, MSG, RUSER, MSG).compact());
+        final int iterations = 20000;
+        // Warm up both paths
+        for (int i = 0; i < iterations; i++) {
+            renderOld(REPLY_FORMAT, true);
+            reply.render(USER, ID, MSG, RUSER, MSG);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+            renderOld(REPLY_FORMAT, true);
+        final long oldNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+            reply.render(USER, ID, MSG, RUSER, MSG);
+        final long templateNanos = System.nanoTime() - start;
+        System.out.printf("Chat render: replaceText %.2f us/op, template %.2f us/op%n", oldNanos / 1000d / iterations, templateNanos / 1000d / iterations);
+    }
+}
@@ -0,0 +1,91 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import com.vdurmont.emoji.Emoji;
+import com.vdurmont.emoji.EmojiManager;
+import com.vdurmont.emoji.EmojiParser;
+import de.erdbeerbaerlp.dcintegration.common.util.EmojiConverter;
+import net.dv8tion.jda.api.entities.emoji.CustomEmoji;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for the precompiled emoji alias conversion
+ */
+public class EmojiConverterTests {
+
+    @Test
+    public void testMatchesEmojiParser() {
+        final String[] samples = {"Hello world", "I ❤ this 😀😀", "👍🏽 nice", "👋🏿👋🏻", "1️⃣ 🇩🇪 flag", "© and ®", "", "plain ascii: <>#*"};
+        for (String s : samples)
+            Assertions.assertEquals(EmojiParser.parseToAliases(s), EmojiConverter.toAliases(s, Collections.emptyList()), s);
+    }
+
+    @Test
+    public void testRandomEmojiTextMatchesEmojiParser() {
+        final List<Emoji> all = new ArrayList<>(EmojiManager.getAll());
+        final Random random = new Random(1337);
+        for (int n = 0; n < 2000; n++) {
+            final StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                if (random.nextBoolean()) sb.append(all.get(random.nextInt(all.size())).getUnicode());
+                else sb.append(" text ");
+            }
+            final String s = sb.toString();
+            Assertions.assertEquals(EmojiParser.parseToAliases(s), EmojiConverter.toAliases(s, Collections.emptyList()), s);
+        }
+    }
+
+    @Test
+    public void testUnchangedMessageIsReturnedAsIs() {
+        final String msg = "Nothing to convert here";
+        Assertions.assertSame(msg, EmojiConverter.toAliases(msg, Collections.emptyList()));
+    }
+
+    @Test
+    public void testZeroWidthJoinedEmojis() {
+        // Joined emojis which are not known as a single sequence are converted without leaving the joiner behind
+        Assertions.assertEquals("a :grinning::+1|type_4: b", EmojiConverter.toAliases("a 😀‍👍🏽 b", Collections.emptyList()));
+        // A trailing joiner without a following emoji stays
+        Assertions.assertEquals(":grinning:‍x", EmojiConverter.toAliases("😀‍x", Collections.emptyList()));
+    }
+
+    @Test
+    public void testDanglingVariationSelectorIsDropped() {
+        Assertions.assertEquals("I :heart: this", EmojiConverter.toAliases("I ❤️ this", Collections.emptyList()));
+    }
+
+    @Test
+    public void testCustomEmojis() {
+        final CustomEmoji emoji = Mockito.mock(CustomEmoji.class);
+        Mockito.when(emoji.getIdLong()).thenReturn(123456789012345678L);
+        Assertions.assertEquals("hi :pepe: and :pepe: 😀 <:other:1>", EmojiConverter.toAliases("hi <:pepe:123456789012345678> and <a:pepe:123456789012345678> 😀 <:other:1>", List.of(emoji))
+                .replace(":grinning:", "😀"));
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void benchmarkAgainstEmojiParser() {
+        final String msg = "gg 😀😀😀 that was 🔥🔥 👍🏽👍🏽 lol 😂😂😂😂 ❤️ see you tomorrow 🎉🎉";
+        final int iterations = 20000;
+        for (int i = 0; i < iterations; i++) {
+            EmojiParser.parseToAliases(msg);
+            EmojiConverter.toAliases(msg, Collections.emptyList());
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+            EmojiParser.parseToAliases(msg);
+        final long parserNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+            EmojiConverter.toAliases(msg, Collections.emptyList());
+        final long converterNanos = System.nanoTime() - start;
+        System.out.printf("Emoji conversion: EmojiParser %.2f us/op, EmojiConverter %.2f us/op%n", parserNanos / 1000d / iterations, converterNanos / 1000d / iterations);
+    }
+}
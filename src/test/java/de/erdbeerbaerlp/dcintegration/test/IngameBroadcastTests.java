@@ -0,0 +1,64 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.util.IngameBroadcast;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Tests for recipient grouping and payload serialization of ingame broadcasts
+ */
+public class IngameBroadcastTests extends IntegrationTestBase {
+
+    @Test
+    public void testDiscordChatGroups() {
+        final UUID alice = UUID.randomUUID();
+        final UUID bob = UUID.randomUUID();
+        final UUID carol = UUID.randomUUID();
+        mockMC.addPlayer(alice, "Alice");
+        mockMC.addPlayer(bob, "Bob");
+        mockMC.addPlayer(carol, "Carol");
+        discordIntegration.ignoringPlayers.add(bob);
+
+        final Component msg = Component.text("hello @Alice and @Bob");
+        final List<IngameBroadcast.Group> groups = IngameBroadcast.discordChat(msg).getGroups();
+        Assertions.assertEquals(2, groups.size());
+        final IngameBroadcast.Group base = groups.get(0);
+        Assertions.assertFalse(base.isPing());
+        Assertions.assertSame(msg, base.getMessage());
+        Assertions.assertTrue(base.getRecipients().contains(carol));
+        Assertions.assertFalse(base.getRecipients().contains(alice));
+        Assertions.assertFalse(base.getRecipients().contains(bob));
+
+        final IngameBroadcast.Group ping = groups.get(1);
+        Assertions.assertTrue(ping.isPing());
+        Assertions.assertEquals(Set.of(alice), ping.getRecipients());
+        Assertions.assertNotEquals(base.getJson(), ping.getJson());
+    }
+
+    @Test
+    public void testEveryoneAndSerializeOnce() {
+        final UUID bob = UUID.randomUUID();
+        mockMC.addPlayer(bob, "Bob");
+        discordIntegration.ignoringPlayers.add(bob);
+        final IngameBroadcast broadcast = IngameBroadcast.toEveryone(Component.text("@Bob the server restarts"));
+        final List<IngameBroadcast.Group> groups = broadcast.getGroups();
+        Assertions.assertSame(groups, broadcast.getGroups());
+        Assertions.assertEquals(1, groups.size());
+        Assertions.assertTrue(groups.get(0).getRecipients().contains(bob));
+        final String json = groups.get(0).getJson();
+        Assertions.assertSame(json, groups.get(0).getJson());
+        Assertions.assertEquals(broadcast.getMessage(), GsonComponentSerializer.gson().deserialize(json));
+    }
+
+    @Test
+    public void testDefaultImplementationSendsMessage() {
+        mockMC.broadcastIngameMessage(IngameBroadcast.discordChat(Component.text("Hello from Discord!")));
+        mockMC.assertMessageContains("Hello from Discord!");
+    }
+}
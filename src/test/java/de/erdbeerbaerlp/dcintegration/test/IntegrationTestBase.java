@@ -83,35 +83,12 @@ public abstract class IntegrationTestBase {
         // Wait a bit for initialization
         Thread.sleep(100);
         
-        // Manually populate the channel cache to ensure getChannel() works
-        // This bypasses retrieveChannel() which might not work correctly with mocks
-        // We need to populate both the direct ID and "default" since getChannel() converts "default" to botChannel
-        try {
-            java.lang.reflect.Field cacheField = DiscordIntegration.class.getDeclaredField("channelCache");
-            cacheField.setAccessible(true);
-            @SuppressWarnings("unchecked")
-            java.util.HashMap<String, net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel> cache = 
-                (java.util.HashMap<String, net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel>) cacheField.get(discordIntegration);
-            
-            // Populate cache with the channel ID
-            cache.put(defaultChannelID, mockChannel);
-            
-            // Also populate with "default" key since getChannel("default") converts to botChannel
-            // But getChannel() already does this conversion, so we just need the botChannel ID
-            
-            // Verify it works - getChannel() may convert the ID, so check what's actually in cache
-            var retrievedChannel = discordIntegration.getChannel(defaultChannelID);
-            if (retrievedChannel == null) {
-                // Debug: check what's in the cache
-                System.err.println("Cache contents: " + cache.keySet());
-                System.err.println("Looking for channel ID: " + defaultChannelID);
-                System.err.println("Bot channel config: " + Configuration.instance().general.botChannel);
-                throw new RuntimeException("Failed to retrieve mock channel even after cache injection. Channel ID: " + defaultChannelID);
-            }
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to set up mock channel cache", e);
-        }
-        
+        // Index the mock channel, the aliases were not resolved because JDA got injected after startup
+        discordIntegration.getChannelIndex().setAliases(mockJDA, defaultChannelID);
+        discordIntegration.getChannelIndex().put(mockChannel);
+        if (discordIntegration.getChannel(defaultChannelID) == null)
+            throw new RuntimeException("Failed to retrieve mock channel after indexing it. Channel ID: " + defaultChannelID);
+
         // Create event simulators
         mcEventSimulator = new MinecraftEventSimulator(discordIntegration);
         discordEventSimulator = new DiscordEventSimulator(discordIntegration, mockJDA);
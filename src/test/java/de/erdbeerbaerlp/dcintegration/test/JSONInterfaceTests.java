@@ -0,0 +1,119 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
+import de.erdbeerbaerlp.dcintegration.common.storage.linking.PlayerLink;
+import de.erdbeerbaerlp.dcintegration.common.storage.linking.PlayerSettings;
+import de.erdbeerbaerlp.dcintegration.common.storage.linking.database.JSONInterface;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tests for the write-behind JSON link database
+ */
+public class JSONInterfaceTests {
+    @TempDir
+    File dir;
+    private File file;
+    private int previousDelay;
+
+    @BeforeEach
+    public void setUp() {
+        file = new File(dir, "LinkedPlayers.json");
+        previousDelay = Configuration.instance().linking.linkSaveDelay;
+        Configuration.instance().linking.linkSaveDelay = 200;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Configuration.instance().linking.linkSaveDelay = previousDelay;
+    }
+
+    private static PlayerLink link(String discordID, String java) {
+        return new PlayerLink(discordID, java, "", new PlayerSettings());
+    }
+
+    private static void awaitClean(JSONInterface db) throws InterruptedException {
+        for (int i = 0; i < 100 && db.isDirty(); i++) Thread.sleep(50);
+        Assertions.assertFalse(db.isDirty());
+    }
+
+    @Test
+    public void testChangesAreCoalesced() throws Exception {
+        final JSONInterface db = new JSONInterface(file);
+        db.initialize();
+        for (int i = 0; i < 100; i++) db.addLink(link(Integer.toString(i), UUID.randomUUID().toString()));
+        db.removeLinks(List.of("0", "1"));
+        Assertions.assertTrue(db.isDirty());
+        Assertions.assertEquals(101, db.getChangeCount());
+        awaitClean(db);
+        Assertions.assertEquals(1, db.getWriteCount());
+        Assertions.assertEquals(98, new JSONInterface(file).getAllLinks().length);
+        Assertions.assertFalse(new File(dir, "LinkedPlayers.json.tmp").exists());
+    }
+
+    @Test
+    public void testFlush() {
+        Configuration.instance().linking.linkSaveDelay = 60_000;
+        final JSONInterface db = new JSONInterface(file);
+        db.initialize();
+        final String uuid = UUID.randomUUID().toString();
+        db.addLink(link("1", uuid));
+        Assertions.assertEquals(0, new JSONInterface(file).getAllLinks().length);
+        db.flush();
+        Assertions.assertFalse(db.isDirty());
+        final PlayerLink[] links = new JSONInterface(file).getAllLinks();
+        Assertions.assertEquals(1, links.length);
+        Assertions.assertEquals(uuid, links[0].mcPlayerUUID);
+        // Nothing to write
+        db.flush();
+        Assertions.assertEquals(1, db.getWriteCount());
+    }
+
+    @Test
+    public void testReplacesConflictingLinks() {
+        final JSONInterface db = new JSONInterface(file);
+        final String a = UUID.randomUUID().toString(), b = UUID.randomUUID().toString();
+        db.addLink(link("1", a));
+        db.addLink(link("2", b));
+        db.addLink(link("3", a));
+        db.addLink(link("2", UUID.randomUUID().toString()));
+        final PlayerLink[] links = db.getAllLinks();
+        Assertions.assertEquals(2, links.length);
+        Assertions.assertEquals("3", links[0].discordID);
+        Assertions.assertEquals("2", links[1].discordID);
+        db.removeLink("3");
+        Assertions.assertEquals(1, db.getAllLinks().length);
+        // The UUID of the removed link is free again
+        db.addLink(link("4", a));
+        Assertions.assertEquals(2, db.getAllLinks().length);
+    }
+
+    @Test
+    public void testUnchangedLinksAreNotWritten() {
+        final JSONInterface db = new JSONInterface(file);
+        final PlayerLink l = link("1", UUID.randomUUID().toString());
+        db.addLink(l);
+        db.flush();
+        db.addLink(l);
+        db.removeLink("2");
+        Assertions.assertFalse(db.isDirty());
+        Assertions.assertEquals(1, db.getChangeCount());
+    }
+
+    @Test
+    public void testBrokenFileIsKept() throws Exception {
+        Files.write(file.toPath(), "[{\"discordID\": ".getBytes(StandardCharsets.UTF_8));
+        final JSONInterface db = new JSONInterface(file);
+        Assertions.assertEquals(0, db.getAllLinks().length);
+        Assertions.assertTrue(new File(dir, "LinkedPlayers.json.broken").exists());
+    }
+}
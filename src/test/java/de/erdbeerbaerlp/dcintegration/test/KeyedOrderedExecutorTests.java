@@ -0,0 +1,83 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.util.KeyedOrderedExecutor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the per-channel ordered inbound executor
+ */
+public class KeyedOrderedExecutorTests {
+
+    @Test
+    public void testOrderPerKey() throws InterruptedException {
+        final KeyedOrderedExecutor executor = new KeyedOrderedExecutor("Test", 4);
+        final List<Integer> first = Collections.synchronizedList(new ArrayList<>());
+        final List<Integer> second = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch done = new CountDownLatch(2000);
+        for (int i = 0; i < 1000; i++) {
+            final int n = i;
+            executor.execute(1L, () -> {
+                first.add(n);
+                done.countDown();
+            });
+            executor.execute(2L, () -> {
+                second.add(n);
+                done.countDown();
+            });
+        }
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertEquals(i, first.get(i));
+            Assertions.assertEquals(i, second.get(i));
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void testSlowKeyDoesNotBlockOthers() throws InterruptedException {
+        final KeyedOrderedExecutor executor = new KeyedOrderedExecutor("Test", 2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch fastDone = new CountDownLatch(1);
+        executor.execute(1L, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        executor.execute(2L, fastDone::countDown);
+        Assertions.assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testExceptionDoesNotStopQueue() throws InterruptedException {
+        final KeyedOrderedExecutor executor = new KeyedOrderedExecutor("Test", 1);
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.execute(1L, () -> {
+            throw new IllegalStateException("Expected");
+        });
+        executor.execute(1L, done::countDown);
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testErrorDoesNotStopQueue() throws InterruptedException {
+        final KeyedOrderedExecutor executor = new KeyedOrderedExecutor("Test", 1);
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.execute(1L, () -> {
+            throw new AssertionError("Expected");
+        });
+        executor.execute(1L, done::countDown);
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,71 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.util.LeaveSweep;
+import net.dv8tion.jda.api.entities.Member;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for the batched check for linked users who left the server
+ */
+public class LeaveSweepTests {
+    private static final long BASE_ID = 400000000000000000L;
+
+    private static Member member(long id) {
+        final Member m = Mockito.mock(Member.class);
+        Mockito.when(m.getIdLong()).thenReturn(id);
+        return m;
+    }
+
+    private static List<String> ids(int count) {
+        final List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) ids.add(String.valueOf(BASE_ID + i));
+        return ids;
+    }
+
+    @Test
+    public void testBatchesAndConcurrency() {
+        final AtomicInteger requests = new AtomicInteger(), inFlight = new AtomicInteger(), maxInFlight = new AtomicInteger();
+        final LeaveSweep sweep = new LeaveSweep((batch) -> {
+            Assertions.assertTrue(batch.length <= LeaveSweep.BATCH_SIZE);
+            requests.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return CompletableFuture.supplyAsync(() -> {
+                final List<Member> members = new ArrayList<>();
+                // Every even user is still a member
+                for (final long id : batch) if (id % 2 == 0) members.add(member(id));
+                inFlight.decrementAndGet();
+                return members;
+            });
+        }, 2);
+        final Set<String> departed = sweep.run(ids(1050)).join();
+        Assertions.assertEquals(11, requests.get());
+        Assertions.assertTrue(maxInFlight.get() <= 2);
+        Assertions.assertEquals(525, departed.size());
+        Assertions.assertTrue(departed.contains(String.valueOf(BASE_ID + 1)));
+        Assertions.assertFalse(departed.contains(String.valueOf(BASE_ID)));
+    }
+
+    @Test
+    public void testFailedBatchIsNotUnlinked() {
+        final AtomicInteger requests = new AtomicInteger();
+        final LeaveSweep sweep = new LeaveSweep((batch) -> {
+            if (requests.getAndIncrement() == 0) return CompletableFuture.failedFuture(new RuntimeException("Timed out"));
+            return CompletableFuture.completedFuture(List.of());
+        }, 1);
+        final List<String> ids = ids(150);
+        ids.add("not an id");
+        final Set<String> departed = sweep.run(ids).join();
+        Assertions.assertEquals(2, requests.get());
+        Assertions.assertEquals(50, departed.size());
+        Assertions.assertFalse(departed.contains(String.valueOf(BASE_ID)));
+        Assertions.assertTrue(departed.contains(String.valueOf(BASE_ID + 149)));
+    }
+}
@@ -0,0 +1,124 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.storage.linking.LinkIndex;
+import de.erdbeerbaerlp.dcintegration.common.storage.linking.PlayerLink;
+import de.erdbeerbaerlp.dcintegration.common.storage.linking.PlayerSettings;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Tests for the primitive link index, comparing it with the linear scan over all links it replaced
+ */
+public class LinkIndexTests {
+    private static final long BASE_ID = 300000000000000000L;
+
+    private static List<PlayerLink> generate(int count, long seed) {
+        final Random random = new Random(seed);
+        // Shared, as only the keys are compared
+        final PlayerSettings settings = new PlayerSettings();
+        final List<PlayerLink> links = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final String bedrock = i % 4 == 0 ? new UUID(0, random.nextLong()).toString() : "";
+            links.add(new PlayerLink(Long.toString(BASE_ID + i * 7L), new UUID(random.nextLong(), random.nextLong()).toString(), bedrock, settings));
+        }
+        return links;
+    }
+
+    /**
+     * The lookup LinkManager used before, scanning all links
+     */
+    private static PlayerLink scanJava(List<PlayerLink> links, UUID uuid) {
+        for (final PlayerLink l : links)
+            if (l.mcPlayerUUID.equals(uuid.toString())) return l;
+        return null;
+    }
+
+    @Test
+    public void testLookups() {
+        final List<PlayerLink> links = generate(5000, 1);
+        links.add(new PlayerLink("not a number", "not a uuid", "", new PlayerSettings()));
+        final LinkIndex index = new LinkIndex(links);
+        Assertions.assertEquals(2, index.getSkipped());
+        for (int i = 0; i < 5000; i++) {
+            final PlayerLink link = links.get(i);
+            Assertions.assertEquals(i, index.findDiscord(link.discordID));
+            Assertions.assertEquals(i, index.findJava(UUID.fromString(link.mcPlayerUUID)));
+            if (!link.floodgateUUID.isEmpty())
+                Assertions.assertEquals(i, index.findBedrock(UUID.fromString(link.floodgateUUID)));
+        }
+        Assertions.assertEquals(LinkIndex.NOT_FOUND, index.findDiscord(BASE_ID + 1));
+        Assertions.assertEquals(LinkIndex.NOT_FOUND, index.findDiscord("not a number"));
+        Assertions.assertEquals(LinkIndex.NOT_FOUND, index.findJava(UUID.randomUUID()));
+        Assertions.assertEquals(LinkIndex.NOT_FOUND, index.findBedrock(UUID.fromString(links.get(1).mcPlayerUUID)));
+    }
+
+    @Test
+    public void testEmpty() {
+        final LinkIndex index = new LinkIndex(List.of());
+        Assertions.assertEquals(LinkIndex.NOT_FOUND, index.findDiscord(BASE_ID));
+        Assertions.assertEquals(LinkIndex.NOT_FOUND, index.findJava(UUID.randomUUID()));
+        Assertions.assertEquals(LinkIndex.NOT_FOUND, index.findBedrock(UUID.randomUUID()));
+    }
+
+    @Test
+    public void testLaterLinksReplaceEarlier() {
+        final UUID uuid = UUID.randomUUID();
+        final LinkIndex index = new LinkIndex(List.of(new PlayerLink("1", uuid.toString(), "", new PlayerSettings()),
+                new PlayerLink("1", uuid.toString(), "", new PlayerSettings())));
+        Assertions.assertEquals(1, index.findDiscord(1));
+        Assertions.assertEquals(1, index.findJava(uuid));
+    }
+
+    private static long usedMemory() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void compareWithLinearScan() {
+        final int count = 1_000_000;
+        long before = usedMemory();
+        final List<PlayerLink> links = generate(count, 2);
+        final long linkBytes = usedMemory() - before;
+
+        before = usedMemory();
+        final LinkIndex index = new LinkIndex(links);
+        final long indexBytes = usedMemory() - before;
+
+        final Random random = new Random(3);
+        final int scans = 50, lookups = 1_000_000;
+        final UUID[] scanKeys = new UUID[scans];
+        for (int i = 0; i < scans; i++) scanKeys[i] = UUID.fromString(links.get(random.nextInt(count)).mcPlayerUUID);
+        final UUID[] lookupKeys = new UUID[lookups];
+        for (int i = 0; i < lookups; i++) lookupKeys[i] = UUID.fromString(links.get(random.nextInt(count)).mcPlayerUUID);
+
+        long start = System.nanoTime();
+        int found = 0;
+        for (final UUID key : scanKeys)
+            if (scanJava(links, key) != null) found++;
+        final long scanNanos = (System.nanoTime() - start) / scans;
+        Assertions.assertEquals(scans, found);
+
+        // Warm up, so that the comparison is not dominated by the interpreter
+        for (int i = 0; i < lookups; i++) found += index.findJava(lookupKeys[i]);
+        start = System.nanoTime();
+        found = 0;
+        for (final UUID key : lookupKeys)
+            if (index.findJava(key) != LinkIndex.NOT_FOUND) found++;
+        final long lookupNanos = (System.nanoTime() - start) / lookups;
+        Assertions.assertEquals(lookups, found);
+
+        System.out.printf("%d links: %.1f MB as PlayerLinks (%d bytes/link), index %.1f MB (%d bytes/link); java UUID lookup: scan %d ns, index %d ns%n",
+                count, linkBytes / 1e6, linkBytes / count, indexBytes / 1e6, indexBytes / count, scanNanos, lookupNanos);
+        Assertions.assertTrue(indexBytes < linkBytes);
+        Assertions.assertTrue(lookupNanos < scanNanos);
+    }
+}
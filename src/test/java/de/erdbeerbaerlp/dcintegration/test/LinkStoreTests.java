@@ -0,0 +1,95 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.storage.linking.LinkStore;
+import de.erdbeerbaerlp.dcintegration.common.storage.linking.PlayerLink;
+import de.erdbeerbaerlp.dcintegration.common.storage.linking.PlayerSettings;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Tests for the indexed in-memory link storage
+ */
+public class LinkStoreTests {
+    private static final String JAVA_A = UUID.randomUUID().toString(), JAVA_B = UUID.randomUUID().toString();
+    private static final String BEDROCK_A = new UUID(0, 1).toString();
+
+    private static PlayerLink link(String discordID, String java, String bedrock) {
+        return new PlayerLink(discordID, java, bedrock, new PlayerSettings());
+    }
+
+    @Test
+    public void testLookups() {
+        final LinkStore store = new LinkStore();
+        final PlayerLink a = link("1", JAVA_A, BEDROCK_A);
+        final PlayerLink b = link("2", JAVA_B, "");
+        store.put(a);
+        store.put(b);
+        Assertions.assertSame(a, store.getByDiscordID("1"));
+        Assertions.assertSame(a, store.getByJavaUUID(UUID.fromString(JAVA_A)));
+        Assertions.assertSame(a, store.getByBedrockUUID(UUID.fromString(BEDROCK_A)));
+        Assertions.assertSame(b, store.getByJavaUUID(UUID.fromString(JAVA_B)));
+        Assertions.assertNull(store.getByBedrockUUID(UUID.randomUUID()));
+        Assertions.assertNull(store.getByDiscordID("3"));
+        Assertions.assertNull(store.getByDiscordID(null));
+        Assertions.assertEquals(2, store.size());
+    }
+
+    @Test
+    public void testPutReplacesConflicts() {
+        final LinkStore store = new LinkStore();
+        final PlayerLink a = link("1", JAVA_A, "");
+        final PlayerLink b = link("2", JAVA_B, "");
+        store.put(a);
+        store.put(b);
+        // Shares the discord ID of a and the UUID of b
+        final PlayerLink c = link("1", JAVA_B, "");
+        final List<PlayerLink> replaced = store.put(c);
+        Assertions.assertEquals(2, replaced.size());
+        Assertions.assertTrue(replaced.contains(a) && replaced.contains(b));
+        Assertions.assertEquals(List.of(c), store.getAll());
+        Assertions.assertNull(store.getByJavaUUID(UUID.fromString(JAVA_A)));
+        Assertions.assertNull(store.getByDiscordID("2"));
+    }
+
+    @Test
+    public void testPutModifiedLink() {
+        final LinkStore store = new LinkStore();
+        final PlayerLink a = link("1", JAVA_A, "");
+        store.put(a);
+        a.floodgateUUID = BEDROCK_A;
+        Assertions.assertEquals(List.of(a), store.put(a));
+        Assertions.assertSame(a, store.getByBedrockUUID(UUID.fromString(BEDROCK_A)));
+        Assertions.assertEquals(1, store.size());
+    }
+
+    @Test
+    public void testSnapshots() {
+        final LinkStore store = new LinkStore();
+        store.put(link("1", JAVA_A, ""));
+        final List<PlayerLink> snapshot = store.getAll();
+        store.put(link("2", JAVA_B, ""));
+        Assertions.assertEquals(1, snapshot.size());
+        Assertions.assertEquals(2, store.getAll().size());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> snapshot.add(link("3", "", "")));
+    }
+
+    @Test
+    public void testReplaceAllAndRemove() {
+        final LinkStore store = new LinkStore();
+        final PlayerLink a = link("1", JAVA_A, "");
+        final PlayerLink duplicate = link("2", JAVA_A, "");
+        final PlayerLink b = link("3", JAVA_B, BEDROCK_A);
+        store.replaceAll(List.of(a, duplicate, b));
+        Assertions.assertEquals(List.of(a, b), store.getAll());
+        Assertions.assertSame(a, store.getByJavaUUID(UUID.fromString(JAVA_A)));
+
+        Assertions.assertEquals(List.of(b), store.removeByDiscordIDs(Set.of("3", "4")));
+        Assertions.assertNull(store.getByBedrockUUID(UUID.fromString(BEDROCK_A)));
+        Assertions.assertTrue(store.removeByDiscordIDs(Set.of("4")).isEmpty());
+        Assertions.assertEquals(List.of(a), store.getAll());
+    }
+}
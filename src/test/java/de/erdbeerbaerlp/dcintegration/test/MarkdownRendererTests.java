@@ -0,0 +1,60 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import de.erdbeerbaerlp.dcintegration.common.util.ComponentUtils;
+import de.erdbeerbaerlp.dcintegration.common.util.MarkdownRenderer;
+import dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializer;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the markdown fast path and cache
+ */
+public class MarkdownRendererTests {
+
+    @SuppressWarnings("unchecked")
+    private static String legacyOld(String msg) {
+        final Component c = MinecraftSerializer.INSTANCE.serialize(msg.replace("\n", "\\n"), DiscordIntegration.mcSerializerOptions);
+        return LegacyComponentSerializer.legacySection().serialize(c.replaceText(ComponentUtils.replaceLiteral("\\n", Component.newline())));
+    }
+
+    private static String legacyNew(String msg) {
+        return LegacyComponentSerializer.legacySection().serialize(MarkdownRenderer.render(msg));
+    }
+
+    @Test
+    public void testPlainTextDetection() {
+        Assertions.assertTrue(MarkdownRenderer.isPlainText("Hello world! How are you? :) https://example.com/a"));
+        Assertions.assertFalse(MarkdownRenderer.isPlainText("**bold**"));
+        Assertions.assertFalse(MarkdownRenderer.isPlainText("snake_case"));
+        Assertions.assertFalse(MarkdownRenderer.isPlainText("> quote"));
+        Assertions.assertFalse(MarkdownRenderer.isPlainText("<@123>"));
+        Assertions.assertFalse(MarkdownRenderer.isPlainText("escaped \\n"));
+    }
+
+    @Test
+    public void testFastPathMatchesSerializer() {
+        for (String msg : new String[]{"Hello world", "line one\nline two", "\n\nstart and end\n", "ümlauts und emojis 😀", "a:b c:d", "", "12:30 pm"}) {
+            Assertions.assertTrue(MarkdownRenderer.isPlainText(msg));
+            Assertions.assertEquals(legacyOld(msg), legacyNew(msg), msg);
+        }
+    }
+
+    @Test
+    public void testFormattedMatchesSerializer() {
+        for (String msg : new String[]{"**bold** and *italic*", "~~strike~~\n__underline__", "`code` ||spoiler||", "> quoted"}) {
+            Assertions.assertEquals(legacyOld(msg), legacyNew(msg), msg);
+        }
+    }
+
+    @Test
+    public void testFormattedMessagesAreCached() {
+        final Component first = MarkdownRenderer.render("**cached**");
+        Assertions.assertSame(first, MarkdownRenderer.render("**cached**"));
+        for (int i = 0; i < 1000; i++)
+            MarkdownRenderer.render("**filler " + i + "**");
+        Assertions.assertNotSame(first, MarkdownRenderer.render("**cached**"));
+    }
+}
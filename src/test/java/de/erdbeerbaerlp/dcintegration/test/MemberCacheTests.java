@@ -0,0 +1,126 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.util.MemberCache;
+import net.dv8tion.jda.api.entities.Member;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for the bounded discord member cache
+ */
+public class MemberCacheTests {
+    private final AtomicLong now = new AtomicLong(0);
+    private final Map<Long, Integer> loads = new HashMap<>();
+    private final Map<Long, Member> members = new HashMap<>();
+
+    private CompletableFuture<Member> load(long id) {
+        loads.merge(id, 1, Integer::sum);
+        return CompletableFuture.completedFuture(members.get(id));
+    }
+
+    private static Member member(long id) {
+        final Member m = Mockito.mock(Member.class);
+        Mockito.when(m.getIdLong()).thenReturn(id);
+        return m;
+    }
+
+    private MemberCache createCache(int capacity) {
+        return new MemberCache(this::load, capacity, 1000, 100, now::get);
+    }
+
+    @Test
+    public void testCachesAndExpires() {
+        final MemberCache cache = createCache(10);
+        members.put(1L, member(1));
+        Assertions.assertSame(members.get(1L), cache.get(1).join());
+        Assertions.assertSame(members.get(1L), cache.get(1).join());
+        Assertions.assertEquals(1, loads.get(1L));
+        now.set(1000);
+        cache.get(1).join();
+        Assertions.assertEquals(2, loads.get(1L));
+    }
+
+    @Test
+    public void testNegativeCaching() {
+        final MemberCache cache = createCache(10);
+        Assertions.assertNull(cache.get(2).join());
+        Assertions.assertNull(cache.get(2).join());
+        Assertions.assertEquals(1, loads.get(2L));
+        Assertions.assertTrue(cache.contains(2));
+        // Absent members expire sooner, for example when the user joins the server
+        now.set(100);
+        members.put(2L, member(2));
+        Assertions.assertSame(members.get(2L), cache.get(2).join());
+        Assertions.assertEquals(2, loads.get(2L));
+    }
+
+    @Test
+    public void testInvalidateAndUpdate() {
+        final MemberCache cache = createCache(10);
+        members.put(3L, member(3));
+        cache.get(3).join();
+        final Member updated = member(3);
+        cache.update(updated);
+        Assertions.assertSame(updated, cache.get(3).join());
+        cache.update(member(4));
+        Assertions.assertFalse(cache.contains(4));
+        cache.invalidate(3);
+        Assertions.assertFalse(cache.contains(3));
+        Assertions.assertSame(members.get(3L), cache.get(3).join());
+    }
+
+    @Test
+    public void testRefreshAhead() {
+        final MemberCache cache = createCache(10);
+        members.put(5L, member(5));
+        for (int i = 0; i < 5; i++) cache.get(5).join();
+        Assertions.assertEquals(1, loads.get(5L));
+        now.set(900);
+        cache.get(5).join();
+        cache.get(5).join();
+        Assertions.assertEquals(2, loads.get(5L));
+        // The refreshed entry is valid for another TTL
+        now.set(1500);
+        cache.get(5).join();
+        Assertions.assertEquals(2, loads.get(5L));
+    }
+
+    @Test
+    public void testBoundedAndFrequencyAware() {
+        final MemberCache cache = createCache(50);
+        members.put(0L, member(0));
+        for (int i = 0; i < 20; i++) cache.get(0).join();
+        for (long id = 1; id <= 1000; id++) {
+            members.put(id, member(id));
+            cache.get(id).join();
+            Assertions.assertTrue(cache.size() <= 50);
+            cache.get(0).join();
+        }
+        Assertions.assertTrue(cache.contains(0));
+        Assertions.assertEquals(1, loads.get(0L));
+    }
+
+    @Test
+    public void testConcurrentLoadsAreShared() {
+        final CompletableFuture<Member> pending = new CompletableFuture<>();
+        final int[] calls = {0};
+        final MemberCache cache = new MemberCache((id) -> {
+            calls[0]++;
+            return pending;
+        }, 10, 1000, 100, now::get);
+        final CompletableFuture<Member> a = cache.get(6);
+        final CompletableFuture<Member> b = cache.get(6);
+        Assertions.assertFalse(a.isDone());
+        final Member m = member(6);
+        pending.complete(m);
+        Assertions.assertSame(m, a.join());
+        Assertions.assertSame(m, b.join());
+        Assertions.assertEquals(1, calls[0]);
+    }
+}
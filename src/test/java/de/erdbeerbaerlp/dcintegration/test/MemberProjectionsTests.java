@@ -0,0 +1,112 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.util.MemberProjections;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.internal.JDAImpl;
+import net.dv8tion.jda.internal.entities.GuildImpl;
+import net.dv8tion.jda.internal.entities.MemberImpl;
+import net.dv8tion.jda.internal.entities.UserImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests for the compact member storage used by the lean member cache mode
+ */
+public class MemberProjectionsTests {
+    private static final long BASE_ID = 300000000000000000L;
+
+    @Test
+    public void testPutGetRemove() {
+        final MemberProjections projections = new MemberProjections();
+        projections.put(BASE_ID + 1, "Steve", 0xFF0000, 11L, 12L);
+        projections.put(BASE_ID + 2, "Alex", MemberProjections.NO_COLOR);
+        Assertions.assertEquals("Steve", projections.getName(BASE_ID + 1));
+        Assertions.assertEquals(0xFF0000, projections.getColor(BASE_ID + 1));
+        Assertions.assertTrue(projections.hasRole(BASE_ID + 1, 12L));
+        Assertions.assertFalse(projections.hasRole(BASE_ID + 2, 12L));
+        Assertions.assertFalse(projections.hasRole(BASE_ID + 1, 13L));
+        projections.put(BASE_ID + 1, "Steve2", 0, 13L);
+        Assertions.assertEquals("Steve2", projections.getName(BASE_ID + 1));
+        Assertions.assertFalse(projections.hasRole(BASE_ID + 1, 12L));
+        Assertions.assertTrue(projections.hasRole(BASE_ID + 1, 13L));
+        Assertions.assertEquals(2, projections.size());
+        projections.remove(BASE_ID + 1);
+        Assertions.assertNull(projections.getName(BASE_ID + 1));
+        Assertions.assertEquals(MemberProjections.NO_COLOR, projections.getColor(BASE_ID + 1));
+        Assertions.assertEquals("Alex", projections.getName(BASE_ID + 2));
+        Assertions.assertEquals(1, projections.size());
+    }
+
+    @Test
+    public void testMatchesHashMap() {
+        final MemberProjections projections = new MemberProjections();
+        final Map<Long, String> expected = new HashMap<>();
+        final Random random = new Random(7);
+        for (int i = 0; i < 200000; i++) {
+            // Small ID range, so that there are lots of collisions, updates and removals
+            final long id = BASE_ID + random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                projections.remove(id);
+                expected.remove(id);
+            } else {
+                projections.put(id, "n" + i, i);
+                expected.put(id, "n" + i);
+            }
+        }
+        Assertions.assertEquals(expected.size(), projections.size());
+        for (int i = 0; i < 5000; i++)
+            Assertions.assertEquals(expected.get(BASE_ID + i), projections.getName(BASE_ID + i));
+    }
+
+    private static long usedMemory() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void compareMemoryWithJDAMembers() {
+        final int members = 100_000;
+        final Role[] roles = new Role[20];
+        final long[] roleIDs = new long[roles.length];
+        for (int i = 0; i < roles.length; i++) {
+            roleIDs[i] = BASE_ID - i - 1;
+            roles[i] = Mockito.mock(Role.class);
+        }
+        final JDAImpl api = Mockito.mock(JDAImpl.class);
+        final GuildImpl guild = Mockito.mock(GuildImpl.class);
+        Mockito.when(guild.getJDA()).thenReturn(api);
+
+        long before = usedMemory();
+        // Only the member objects are counted, not the map JDA keeps them in
+        final Member[] jdaCache = new Member[members];
+        for (int i = 0; i < members; i++) {
+            final UserImpl user = new UserImpl(BASE_ID + i, api).setName("user" + i);
+            final MemberImpl member = new MemberImpl(guild, user).setNickname("Nickname " + i);
+            member.getRoleSet().add(roles[i % roles.length]);
+            member.getRoleSet().add(roles[(i / 7) % roles.length]);
+            jdaCache[i] = member;
+        }
+        final long jdaBytes = usedMemory() - before;
+
+        before = usedMemory();
+        final MemberProjections projections = new MemberProjections();
+        for (int i = 0; i < members; i++)
+            projections.put(BASE_ID + i, "Nickname " + i, i, roleIDs[i % roles.length], roleIDs[(i / 7) % roles.length]);
+        final long projectionBytes = usedMemory() - before;
+
+        System.out.printf("Memory for %d members: JDA cache %.1f MB (%d bytes/member), projections %.1f MB (%d bytes/member)%n",
+                members, jdaBytes / 1e6, jdaBytes / members, projectionBytes / 1e6, projectionBytes / members);
+        Assertions.assertNotNull(jdaCache[members - 1]);
+        Assertions.assertEquals(members, projections.size());
+        Assertions.assertTrue(projectionBytes < jdaBytes);
+    }
+}
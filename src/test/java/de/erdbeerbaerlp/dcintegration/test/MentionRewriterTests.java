@@ -0,0 +1,143 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.util.MessageUtils;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.utils.concurrent.Task;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for translating discord mentions to names
+ */
+public class MentionRewriterTests extends IntegrationTestBase {
+    private static final long USER = 100000000000000001L;
+    private static final long ROLE = 200000000000000002L;
+    private static final long CHANNEL = 300000000000000003L;
+    private static final long UNKNOWN = 400000000000000004L;
+
+    private static Guild createGuild() {
+        final Guild guild = mock(Guild.class);
+        final Member member = mock(Member.class);
+        when(member.getEffectiveName()).thenReturn("Steve");
+        when(guild.getMemberById(USER)).thenReturn(member);
+        final Role role = mock(Role.class);
+        when(role.getName()).thenReturn("Admins");
+        when(guild.getRoleById(ROLE)).thenReturn(role);
+        final TextChannel channel = mock(TextChannel.class);
+        when(channel.getName()).thenReturn("general");
+        when(guild.getTextChannelById(CHANNEL)).thenReturn(channel);
+        return guild;
+    }
+
+    @Test
+    public void testRewritesAllMentionTypes() {
+        final Guild guild = createGuild();
+        Assertions.assertEquals("hi @Steve and @Steve, @Admins see #general <#1>",
+                MessageUtils.mentionsToNames("hi <@" + USER + "> and <@!" + USER + ">, <@&" + ROLE + "> see <#" + CHANNEL + "> <#1>", guild));
+        Assertions.assertEquals("<@&" + UNKNOWN + "> <@" + USER, MessageUtils.mentionsToNames("<@&" + UNKNOWN + "> <@" + USER, guild));
+        final String plain = "no mentions here <3";
+        Assertions.assertSame(plain, MessageUtils.mentionsToNames(plain, guild));
+    }
+
+    @Test
+    public void testRewritesComponents() {
+        final Guild guild = createGuild();
+        final Component unchanged = Component.text("a");
+        final Component in = Component.text("to ").append(unchanged).append(Component.text("<@" + USER + ">!"));
+        final Component out = MessageUtils.mentionsToNames(in, guild);
+        Assertions.assertSame(unchanged, out.children().get(0));
+        Assertions.assertEquals("@Steve!", ((TextComponent) out.children().get(1)).content());
+        Assertions.assertSame(unchanged, MessageUtils.mentionsToNames(unchanged, guild));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testResolvesUnknownUsersInBackground() throws InterruptedException {
+        final Guild guild = createGuild();
+        final Member member = mock(Member.class);
+        when(member.getIdLong()).thenReturn(UNKNOWN);
+        when(member.getEffectiveName()).thenReturn("Alex");
+        final Task<List<Member>> task = mock(Task.class);
+        when(task.onSuccess(any())).thenAnswer(invocation -> {
+            ((Consumer<List<Member>>) invocation.getArgument(0)).accept(List.of(member));
+            return task;
+        });
+        when(task.onError(any())).thenReturn(task);
+        when(guild.retrieveMembersByIds(Mockito.<long[]>any())).thenReturn(task);
+
+        final String msg = "<@" + UNKNOWN + "> <@" + UNKNOWN + ">";
+        Assertions.assertEquals(msg, MessageUtils.mentionsToNames(msg, guild));
+        Assertions.assertEquals(msg, MessageUtils.mentionsToNames(msg, guild));
+        for (int i = 0; i < 50 && MessageUtils.mentionsToNames(msg, guild).equals(msg); i++) Thread.sleep(20);
+        Assertions.assertEquals("@Alex @Alex", MessageUtils.mentionsToNames(msg, guild));
+        Mockito.verify(guild, Mockito.times(1)).retrieveMembersByIds(Mockito.<long[]>any());
+        Mockito.verify(guild, Mockito.never()).retrieveMember(any());
+        Mockito.verify(guild, Mockito.never()).retrieveMemberById(anyLong());
+    }
+
+    @Test
+    public void testTwentyDigitIDs() {
+        final Guild guild = createGuild();
+        final long id = Long.parseUnsignedLong("12345678901234567890");
+        final Member member = mock(Member.class);
+        when(member.getEffectiveName()).thenReturn("Alex");
+        when(guild.getMemberById(id)).thenReturn(member);
+        Assertions.assertEquals("hi @Alex", MessageUtils.mentionsToNames("hi <@12345678901234567890>", guild));
+        // Larger than an unsigned long
+        final String tooLarge = "hi <@99999999999999999999>";
+        Assertions.assertSame(tooLarge, MessageUtils.mentionsToNames(tooLarge, guild));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Guild resolvingGuild(long guildID, long memberID, String name, List<long[]> requests) {
+        final Guild guild = createGuild();
+        when(guild.getIdLong()).thenReturn(guildID);
+        final Member member = mock(Member.class);
+        when(member.getIdLong()).thenReturn(memberID);
+        when(member.getEffectiveName()).thenReturn(name);
+        final Task<List<Member>> task = mock(Task.class);
+        when(task.onSuccess(any())).thenAnswer(invocation -> {
+            ((Consumer<List<Member>>) invocation.getArgument(0)).accept(List.of(member));
+            return task;
+        });
+        when(task.onError(any())).thenReturn(task);
+        when(guild.retrieveMembersByIds(Mockito.<long[]>any())).thenAnswer(invocation -> {
+            requests.add((long[]) invocation.getRawArguments()[0]);
+            return task;
+        });
+        return guild;
+    }
+
+    @Test
+    public void testResolvesPerGuild() throws InterruptedException {
+        final long a = 500000000000000005L, b = 600000000000000006L;
+        final List<long[]> requestsA = new CopyOnWriteArrayList<>(), requestsB = new CopyOnWriteArrayList<>();
+        final Guild guildA = resolvingGuild(11, a, "Alex", requestsA);
+        final Guild guildB = resolvingGuild(12, b, "Bob", requestsB);
+        final String msgA = "<@" + a + ">", msgB = "<@" + b + ">";
+        MessageUtils.mentionsToNames(msgA, guildA);
+        MessageUtils.mentionsToNames(msgB, guildB);
+        for (int i = 0; i < 50 && MessageUtils.mentionsToNames(msgB, guildB).equals(msgB); i++) Thread.sleep(20);
+        Assertions.assertEquals("@Alex", MessageUtils.mentionsToNames(msgA, guildA));
+        Assertions.assertEquals("@Bob", MessageUtils.mentionsToNames(msgB, guildB));
+        Assertions.assertArrayEquals(new long[]{a}, requestsA.get(0));
+        Assertions.assertArrayEquals(new long[]{b}, requestsB.get(0));
+        // Names resolved in one guild are not used for another
+        Assertions.assertEquals(msgA, MessageUtils.mentionsToNames(msgA, guildB));
+    }
+}
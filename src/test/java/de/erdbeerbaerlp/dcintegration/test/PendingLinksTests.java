@@ -0,0 +1,110 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.storage.linking.PendingLinks;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for the expiring store of pending link codes
+ */
+public class PendingLinksTests {
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final PendingLinks links = new PendingLinks(Duration.ofMinutes(10), Duration.ofSeconds(10), now::get);
+
+    private void advance(Duration d) {
+        now.addAndGet(d.toNanos());
+    }
+
+    @Test
+    public void testGenerateAndLookup() {
+        final UUID a = UUID.randomUUID(), b = UUID.randomUUID();
+        final int codeA = links.generate(a);
+        final int codeB = links.generate(b);
+        Assertions.assertNotEquals(codeA, codeB);
+        Assertions.assertTrue(codeA >= 0 && codeA < 99999);
+        Assertions.assertEquals(codeA, links.generate(a));
+        Assertions.assertEquals(a, links.getPlayer(codeA));
+        Assertions.assertEquals(b, links.getPlayer(codeB));
+        Assertions.assertEquals(a, links.remove(codeA));
+        Assertions.assertFalse(links.contains(codeA));
+        Assertions.assertEquals(1, links.size());
+        // A used code is not handed out again
+        Assertions.assertEquals(a, links.getPlayer(links.generate(a)));
+    }
+
+    @Test
+    public void testExpiry() {
+        final UUID a = UUID.randomUUID();
+        final int code = links.generate(a);
+        advance(Duration.ofMinutes(5));
+        final UUID b = UUID.randomUUID();
+        final int codeB = links.generate(b);
+        links.expire();
+        Assertions.assertEquals(2, links.size());
+
+        advance(Duration.ofMinutes(5));
+        // Expired codes are never returned, even before they were removed
+        Assertions.assertNull(links.getPlayer(code));
+        links.expire();
+        Assertions.assertEquals(1, links.size());
+        Assertions.assertEquals(b, links.getPlayer(codeB));
+
+        advance(Duration.ofMinutes(5).plusSeconds(10));
+        links.expire();
+        Assertions.assertTrue(links.isEmpty());
+    }
+
+    @Test
+    public void testExpiredCodeIsRegenerated() {
+        final UUID a = UUID.randomUUID();
+        links.generate(a);
+        advance(Duration.ofMinutes(11));
+        final int code = links.generate(a);
+        Assertions.assertEquals(a, links.getPlayer(code));
+        Assertions.assertEquals(1, links.size());
+        links.expire();
+        Assertions.assertEquals(a, links.getPlayer(code));
+    }
+
+    @Test
+    public void testLongPause() {
+        for (int i = 0; i < 100; i++) links.generate(UUID.randomUUID());
+        advance(Duration.ofHours(3));
+        links.expire();
+        Assertions.assertTrue(links.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentGenerate() throws Exception {
+        final PendingLinks links = new PendingLinks();
+        final List<UUID> players = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) players.add(UUID.randomUUID());
+        final Map<UUID, Integer> codes = new ConcurrentHashMap<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            tasks.add(executor.submit(() -> {
+                for (final UUID player : players) {
+                    final int code = links.generate(player);
+                    final Integer previous = codes.putIfAbsent(player, code);
+                    if (previous != null) Assertions.assertEquals(previous, code);
+                }
+            }));
+        }
+        executor.shutdown();
+        // Rethrows assertion failures of the worker threads
+        for (final Future<?> task : tasks) task.get(30, TimeUnit.SECONDS);
+        Assertions.assertEquals(players.size(), links.size());
+        Assertions.assertEquals(players.size(), new HashSet<>(codes.values()).size());
+        codes.forEach((player, code) -> Assertions.assertEquals(player, links.getPlayer(code)));
+    }
+}
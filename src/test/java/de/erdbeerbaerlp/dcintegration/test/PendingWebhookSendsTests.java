@@ -0,0 +1,55 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.util.PendingWebhookSends;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for webhook echo detection
+ */
+public class PendingWebhookSendsTests {
+    private static final long WEBHOOK = 1100000000000000001L;
+    private static final long OTHER_WEBHOOK = 1100000000000000002L;
+
+    @Test
+    public void testEchoIsConsumedOnce() {
+        final PendingWebhookSends sends = new PendingWebhookSends();
+        sends.register(WEBHOOK, "Steve", "Hello world ");
+        Assertions.assertTrue(sends.hasPending(WEBHOOK));
+        Assertions.assertTrue(sends.consumeEcho(WEBHOOK, "Steve", "Hello world"));
+        Assertions.assertFalse(sends.consumeEcho(WEBHOOK, "Steve", "Hello world"));
+        Assertions.assertFalse(sends.hasPending(WEBHOOK));
+    }
+
+    @Test
+    public void testForeignMessagesAreNotEchoes() {
+        final PendingWebhookSends sends = new PendingWebhookSends();
+        sends.register(WEBHOOK, "Steve", "Hello");
+        Assertions.assertFalse(sends.consumeEcho(WEBHOOK, "Alex", "Hello"));
+        Assertions.assertFalse(sends.consumeEcho(WEBHOOK, "Steve", "Hello there"));
+        Assertions.assertFalse(sends.consumeEcho(OTHER_WEBHOOK, "Steve", "Hello"));
+        Assertions.assertFalse(sends.hasPending(OTHER_WEBHOOK));
+        Assertions.assertTrue(sends.hasPending(WEBHOOK));
+    }
+
+    @Test
+    public void testCompleteRemovesOnlyOwnEntry() {
+        final PendingWebhookSends sends = new PendingWebhookSends();
+        final long first = sends.register(WEBHOOK, "Steve", "Same");
+        sends.register(WEBHOOK, "Steve", "Same");
+        sends.complete(WEBHOOK, first);
+        Assertions.assertTrue(sends.hasPending(WEBHOOK));
+        Assertions.assertTrue(sends.consumeEcho(WEBHOOK, "Steve", "Same"));
+        Assertions.assertFalse(sends.hasPending(WEBHOOK));
+        // Completing after the echo was consumed must be harmless
+        sends.complete(WEBHOOK, first);
+        Assertions.assertFalse(sends.hasPending(WEBHOOK));
+    }
+
+    @Test
+    public void testNullContent() {
+        final PendingWebhookSends sends = new PendingWebhookSends();
+        sends.register(WEBHOOK, "Server", null);
+        Assertions.assertTrue(sends.consumeEcho(WEBHOOK, "Server", ""));
+    }
+}
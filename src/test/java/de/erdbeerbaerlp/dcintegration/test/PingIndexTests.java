@@ -0,0 +1,137 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.util.PingIndex;
+import de.erdbeerbaerlp.dcintegration.common.util.TextColors;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.TextDecoration;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Tests for the multi-player ping detection
+ */
+public class PingIndexTests {
+    private static final UUID ALICE = UUID.randomUUID();
+    private static final UUID BOB = UUID.randomUUID();
+    private static final UUID CAROL = UUID.randomUUID();
+
+    private static PingIndex createIndex() {
+        final PingIndex index = new PingIndex();
+        index.playerJoined(ALICE, "Alice");
+        index.playerJoined(BOB, "Bob");
+        index.playerJoined(CAROL, "Carol");
+        return index;
+    }
+
+    private static String plainText(Component c) {
+        return LegacyComponentSerializer.legacySection().serialize(c).replaceAll("§.", "");
+    }
+
+    @Test
+    public void testPingsPerRecipient() {
+        final PingIndex index = createIndex();
+        final Component msg = Component.text("hey @Alice and @Bob", NamedTextColor.GRAY);
+        final Map.Entry<Boolean, Component> alice = index.parsePing(msg, ALICE, "Alice");
+        final Map.Entry<Boolean, Component> bob = index.parsePing(msg, BOB, "Bob");
+        final Map.Entry<Boolean, Component> carol = index.parsePing(msg, CAROL, "Carol");
+        Assertions.assertTrue(alice.getKey());
+        Assertions.assertTrue(bob.getKey());
+        Assertions.assertFalse(carol.getKey());
+        Assertions.assertSame(msg, carol.getValue());
+        Assertions.assertEquals(plainText(msg), plainText(alice.getValue()));
+
+        final TextComponent ping = (TextComponent) alice.getValue().children().get(0);
+        Assertions.assertEquals("@Alice", ping.content());
+        Assertions.assertEquals(TextColors.PING, ping.color());
+        Assertions.assertTrue(ping.hasDecoration(TextDecoration.BOLD));
+        Assertions.assertEquals("hey @Alice and ", ((TextComponent) bob.getValue()).content());
+        Assertions.assertEquals("@Bob", ((TextComponent) bob.getValue().children().get(0)).content());
+    }
+
+    @Test
+    public void testNestedComponentsAndMultipleMentions() {
+        final PingIndex index = createIndex();
+        final Component msg = Component.text("<Dave> ").append(Component.text("@Bob @Bob!")).append(Component.text("@Bo"));
+        final Map.Entry<Boolean, Component> bob = index.parsePing(msg, BOB, "Bob");
+        Assertions.assertTrue(bob.getKey());
+        Assertions.assertEquals(plainText(msg), plainText(bob.getValue()));
+        final Component changed = bob.getValue().children().get(0);
+        Assertions.assertEquals("", ((TextComponent) changed).content());
+        Assertions.assertEquals(4, changed.children().size());
+        Assertions.assertEquals("@Bob", ((TextComponent) changed.children().get(2)).content());
+        Assertions.assertSame(msg.children().get(1), bob.getValue().children().get(1));
+    }
+
+    @Test
+    public void testDiscordNameFallback() {
+        final PingIndex index = createIndex();
+        index.setDiscordName(CAROL, 1234L, "carol_dc");
+        Assertions.assertTrue(index.parsePing(Component.text("ping @carol_dc"), CAROL, "Carol").getKey());
+        // The minecraft name takes precedence, the discord name is not highlighted then
+        final Map.Entry<Boolean, Component> both = index.parsePing(Component.text("@Carol @carol_dc"), CAROL, "Carol");
+        Assertions.assertEquals(2, both.getValue().children().size());
+
+        index.discordNameChanged(1234L, "renamed");
+        Assertions.assertFalse(index.parsePing(Component.text("ping @carol_dc"), CAROL, "Carol").getKey());
+        Assertions.assertTrue(index.parsePing(Component.text("ping @renamed"), CAROL, "Carol").getKey());
+    }
+
+    @Test
+    public void testJoinLeaveAndRename() {
+        final PingIndex index = createIndex();
+        index.playerLeft(BOB);
+        Assertions.assertFalse(index.contains(BOB));
+        index.playerRenamed(ALICE, "Alicia");
+        final Component msg = Component.text("@Alice @Alicia");
+        final Map.Entry<Boolean, Component> alice = index.parsePing(msg, ALICE, "Alicia");
+        Assertions.assertEquals("@Alicia", ((TextComponent) alice.getValue().children().get(0)).content());
+        // Unknown recipients are added on first use
+        final UUID dave = UUID.randomUUID();
+        Assertions.assertTrue(index.parsePing(Component.text("@Dave"), dave, "Dave").getKey());
+        Assertions.assertTrue(index.contains(dave));
+    }
+
+    @Test
+    public void testNamePrefixes() {
+        final PingIndex index = new PingIndex();
+        final UUID[] uuids = new UUID[200];
+        for (int i = 0; i < uuids.length; i++) {
+            uuids[i] = UUID.randomUUID();
+            index.playerJoined(uuids[i], "Player" + i);
+        }
+        final Component msg = Component.text("<Someone> hello @Player7 and @Player150, how are you all doing today?");
+        int pinged = 0;
+        for (int i = 0; i < uuids.length; i++)
+            if (index.parsePing(msg, uuids[i], "Player" + i).getKey()) pinged++;
+        // Like the literal replacement before, names also match as prefix of longer names (Player1 and Player15 in @Player150)
+        Assertions.assertEquals(4, pinged);
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void benchmarkBroadcast() {
+        final PingIndex index = new PingIndex();
+        final UUID[] uuids = new UUID[200];
+        for (int i = 0; i < uuids.length; i++) {
+            uuids[i] = UUID.randomUUID();
+            index.playerJoined(uuids[i], "Player" + i);
+        }
+        final Component msg = Component.text("<Someone> hello @Player7 and @Player150, how are you all doing today?");
+        for (int warmup = 0; warmup < 50; warmup++)
+            for (int i = 0; i < uuids.length; i++) index.parsePing(msg, uuids[i], "Player" + i);
+        final long start = System.nanoTime();
+        int pinged = 0;
+        for (int i = 0; i < uuids.length; i++)
+            if (index.parsePing(msg, uuids[i], "Player" + i).getKey()) pinged++;
+        System.out.printf("Ping detection for %d recipients: %.3f ms%n", uuids.length, (System.nanoTime() - start) / 1e6);
+        // Like the literal replacement before, names also match as prefix of longer names (Player1 and Player15 in @Player150)
+        Assertions.assertEquals(4, pinged);
+    }
+}
@@ -0,0 +1,122 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.storage.Configuration;
+import de.erdbeerbaerlp.dcintegration.common.util.GameType;
+import de.erdbeerbaerlp.dcintegration.common.util.PresenceUpdater;
+import net.dv8tion.jda.api.entities.Activity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for the change driven bot status updates
+ */
+public class PresenceUpdaterTests {
+    private final AtomicInteger online = new AtomicInteger(), max = new AtomicInteger(20);
+    private final AtomicBoolean connected = new AtomicBoolean(true);
+    private final List<Activity> sent = new ArrayList<>();
+    private final List<Runnable> debounced = new ArrayList<>();
+    private PresenceUpdater updater;
+    private String previousName, previousNameSingular, previousNameEmpty;
+    private GameType previousType;
+
+    @BeforeEach
+    public void setUp() {
+        final Configuration.General general = Configuration.instance().general;
+        previousName = general.botStatusName;
+        previousNameSingular = general.botStatusNameSingular;
+        previousNameEmpty = general.botStatusNameEmpty;
+        previousType = general.botStatusType;
+        general.botStatusName = "%online%/%max% players online";
+        general.botStatusNameSingular = "%online% player online";
+        general.botStatusNameEmpty = "No-one is online";
+        general.botStatusType = GameType.PLAYING;
+        sent.clear();
+        debounced.clear();
+        updater = new PresenceUpdater(online::get, max::get, (a) -> connected.get() && sent.add(a), debounced::add);
+        updater.reload();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        final Configuration.General general = Configuration.instance().general;
+        general.botStatusName = previousName;
+        general.botStatusNameSingular = previousNameSingular;
+        general.botStatusNameEmpty = previousNameEmpty;
+        general.botStatusType = previousType;
+    }
+
+    @Test
+    public void testFormat() {
+        Assertions.assertEquals("3/20 players", PresenceUpdater.Format.compile("%online%/%max% players").render(3, 20));
+        Assertions.assertEquals("100% of 5 online", PresenceUpdater.Format.compile("100% of %online% online").render(5, 20));
+        Assertions.assertEquals("%max", PresenceUpdater.Format.compile("%max").render(5, 20));
+        Assertions.assertEquals("No-one", PresenceUpdater.Format.compile("No-one").render(0, 20));
+        Assertions.assertEquals("", PresenceUpdater.Format.compile("").render(0, 20));
+    }
+
+    @Test
+    public void testOnlyChangesAreSent() {
+        updater.update();
+        Assertions.assertEquals(1, sent.size());
+        Assertions.assertEquals("No-one is online", sent.get(0).getName());
+        updater.update();
+        Assertions.assertEquals(1, sent.size());
+
+        // The empty message does not contain %max%, so the status stays the same
+        max.set(30);
+        updater.update();
+        Assertions.assertEquals(1, sent.size());
+
+        online.set(2);
+        updater.update();
+        Assertions.assertEquals(2, sent.size());
+        Assertions.assertEquals("2/30 players online", sent.get(1).getName());
+        Assertions.assertEquals(Activity.ActivityType.PLAYING, sent.get(1).getType());
+
+        // Reloading an unchanged config does not resend the status
+        updater.reload();
+        updater.update();
+        Assertions.assertEquals(2, sent.size());
+    }
+
+    @Test
+    public void testDebounce() {
+        online.set(1);
+        updater.playerCountChanged();
+        updater.playerCountChanged();
+        online.set(3);
+        updater.playerCountChanged();
+        Assertions.assertEquals(1, debounced.size());
+        Assertions.assertTrue(sent.isEmpty());
+        debounced.get(0).run();
+        Assertions.assertEquals(1, sent.size());
+        Assertions.assertEquals("3/20 players online", sent.get(0).getName());
+        updater.playerCountChanged();
+        Assertions.assertEquals(2, debounced.size());
+    }
+
+    @Test
+    public void testRetriedUntilConnected() {
+        connected.set(false);
+        updater.update();
+        Assertions.assertTrue(sent.isEmpty());
+        connected.set(true);
+        updater.update();
+        Assertions.assertEquals(1, sent.size());
+    }
+
+    @Test
+    public void testDisabled() {
+        Configuration.instance().general.botStatusType = GameType.DISABLED;
+        updater.reload();
+        updater.update();
+        Assertions.assertTrue(sent.isEmpty());
+    }
+}
@@ -0,0 +1,115 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.DiscordIntegration;
+import de.erdbeerbaerlp.dcintegration.common.util.RecentMessageIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Unit tests for the recent message ring buffer index
+ */
+public class RecentMessageIndexTests {
+
+    @Test
+    public void testPutAndGet() {
+        final RecentMessageIndex index = new RecentMessageIndex(10);
+        final UUID sender = UUID.randomUUID();
+        index.put(1234567890123456789L, sender);
+        Assertions.assertTrue(index.contains(1234567890123456789L));
+        Assertions.assertEquals(sender, index.getOrDefault(1234567890123456789L, null));
+        Assertions.assertNull(index.getOrDefault(42L, null));
+        Assertions.assertFalse(index.contains(42L));
+    }
+
+    @Test
+    public void testServerMessagesReturnDummyUUID() {
+        final RecentMessageIndex index = new RecentMessageIndex(10);
+        index.put(5L, null);
+        Assertions.assertTrue(index.contains(5L));
+        Assertions.assertSame(DiscordIntegration.dummyUUID, index.getOrDefault(5L, null));
+    }
+
+    @Test
+    public void testEvictsOldestFirst() {
+        final RecentMessageIndex index = new RecentMessageIndex(3);
+        for (long id = 1; id <= 5; id++)
+            index.put(id, UUID.randomUUID());
+        Assertions.assertEquals(3, index.size());
+        Assertions.assertFalse(index.contains(1L));
+        Assertions.assertFalse(index.contains(2L));
+        Assertions.assertTrue(index.contains(3L));
+        Assertions.assertTrue(index.contains(4L));
+        Assertions.assertTrue(index.contains(5L));
+    }
+
+    @Test
+    public void testUpdateDoesNotEvict() {
+        final RecentMessageIndex index = new RecentMessageIndex(2);
+        final UUID updated = UUID.randomUUID();
+        index.put(1L, UUID.randomUUID());
+        index.put(2L, UUID.randomUUID());
+        index.put(1L, updated);
+        Assertions.assertEquals(2, index.size());
+        Assertions.assertEquals(updated, index.getOrDefault(1L, null));
+        Assertions.assertTrue(index.contains(2L));
+    }
+
+    @Test
+    public void testManyEvictionsKeepTableConsistent() {
+        final RecentMessageIndex index = new RecentMessageIndex(100);
+        final List<UUID> senders = new ArrayList<>();
+        long snowflake = 1100000000000000000L;
+        for (int i = 0; i < 10000; i++) {
+            final UUID u = UUID.randomUUID();
+            senders.add(u);
+            // Step by 4096 like snowflakes from the same worker, to provoke clustering
+            index.put(snowflake + i * 4096L, u);
+        }
+        Assertions.assertEquals(100, index.size());
+        for (int i = 0; i < 10000; i++) {
+            final UUID u = index.getOrDefault(snowflake + i * 4096L, null);
+            if (i < 9900) Assertions.assertNull(u, "Entry " + i + " should have been evicted");
+            else Assertions.assertEquals(senders.get(i), u);
+        }
+    }
+
+    @Test
+    public void testResizeKeepsNewestEntries() {
+        final RecentMessageIndex index = new RecentMessageIndex(10);
+        for (long id = 1; id <= 10; id++)
+            index.put(id, UUID.randomUUID());
+        index.setCapacity(4);
+        Assertions.assertEquals(4, index.capacity());
+        Assertions.assertEquals(4, index.size());
+        Assertions.assertFalse(index.contains(6L));
+        Assertions.assertTrue(index.contains(7L));
+        Assertions.assertTrue(index.contains(10L));
+        index.setCapacity(20);
+        index.put(11L, UUID.randomUUID());
+        Assertions.assertEquals(5, index.size());
+        Assertions.assertTrue(index.contains(7L));
+    }
+
+    @Test
+    public void testConcurrentAccess() throws InterruptedException {
+        final RecentMessageIndex index = new RecentMessageIndex(500);
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final long base = (t + 1) * 1000000L;
+            final Thread thread = new Thread(() -> {
+                for (int i = 1; i <= 5000; i++) {
+                    index.put(base + i, UUID.randomUUID());
+                    index.contains(base + i - 1);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) thread.join();
+        Assertions.assertEquals(500, index.size());
+    }
+}
@@ -0,0 +1,115 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.util.RoleIndex;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the role bitmasks used in permission checks
+ */
+public class RoleIndexTests {
+    private static final long ADMIN = 100000000000000001L, MOD = 100000000000000002L, LINKED = 100000000000000003L, OTHER = 100000000000000004L;
+
+    private static Role role(long id) {
+        final Role r = Mockito.mock(Role.class);
+        Mockito.when(r.getIdLong()).thenReturn(id);
+        return r;
+    }
+
+    private static Member member(long id, List<Role> roles) {
+        final Member m = Mockito.mock(Member.class);
+        Mockito.when(m.getIdLong()).thenReturn(id);
+        Mockito.when(m.getRoles()).thenReturn(roles);
+        return m;
+    }
+
+    private static RoleIndex index() {
+        final RoleIndex index = new RoleIndex();
+        index.rebuild(new String[]{String.valueOf(ADMIN), String.valueOf(MOD)}, new String[]{String.valueOf(LINKED), String.valueOf(ADMIN), "invalid"});
+        return index;
+    }
+
+    @Test
+    public void testChecks() {
+        final RoleIndex index = index();
+        Assertions.assertTrue(index.hasAdminRole(List.of(role(OTHER), role(MOD))));
+        Assertions.assertFalse(index.hasAdminRole(List.of(role(OTHER), role(LINKED))));
+        Assertions.assertTrue(index.hasRequiredRole(member(1, List.of(role(ADMIN)))));
+        Assertions.assertTrue(index.hasRequiredRole(member(2, List.of(role(LINKED)))));
+        Assertions.assertFalse(index.hasAdminRole(member(2, List.of(role(LINKED)))));
+        Assertions.assertFalse(index.hasRequiredRole(member(3, List.of(role(OTHER)))));
+    }
+
+    @Test
+    public void testRoleEvents() {
+        final RoleIndex index = index();
+        final List<Role> roles = new ArrayList<>(List.of(role(OTHER)));
+        final Member m = member(5, roles);
+        Assertions.assertNull(index.cachedMask(5));
+        Assertions.assertFalse(index.hasAdminRole(m));
+        Assertions.assertEquals(0L, index.cachedMask(5));
+        // The mask is cached, changes only become visible through events
+        roles.add(role(ADMIN));
+        Assertions.assertFalse(index.hasAdminRole(m));
+        index.rolesAdded(5, List.of(role(ADMIN)));
+        Assertions.assertTrue(index.hasAdminRole(m));
+        Assertions.assertTrue(index.hasRequiredRole(m));
+        index.rolesRemoved(5, List.of(role(ADMIN)));
+        Assertions.assertFalse(index.hasAdminRole(m));
+        Assertions.assertFalse(index.hasRequiredRole(m));
+        index.update(m);
+        Assertions.assertTrue(index.hasAdminRole(m));
+        roles.clear();
+        index.invalidate(5);
+        Assertions.assertNull(index.cachedMask(5));
+        Assertions.assertFalse(index.hasAdminRole(m));
+        // Events of members without a cached mask are ignored
+        index.rolesAdded(7, List.of(role(ADMIN)));
+        Assertions.assertNull(index.cachedMask(7));
+    }
+
+    @Test
+    public void testCachedChecksDontReadRoles() {
+        final RoleIndex index = index();
+        final Member m = member(8, List.of(role(ADMIN)));
+        Assertions.assertTrue(index.hasAdminRole(m));
+        Assertions.assertTrue(index.hasRequiredRole(m));
+        Mockito.verify(m, Mockito.times(1)).getRoles();
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        final RoleIndex index = index();
+        // One mock with a changing ID, creating thousands of mocks is slow
+        final long[] next = {0};
+        final List<Role> roles = List.of(role(ADMIN));
+        final Member m = Mockito.mock(Member.class);
+        Mockito.when(m.getIdLong()).thenAnswer(i -> next[0]);
+        Mockito.when(m.getRoles()).thenReturn(roles);
+        for (long id = 1; id <= 12_000; id++) {
+            next[0] = id;
+            Assertions.assertTrue(index.hasAdminRole(m));
+        }
+        Assertions.assertNotNull(index.cachedMask(12_000));
+        int cached = 0;
+        for (long id = 1; id <= 12_000; id++)
+            if (index.cachedMask(id) != null) cached++;
+        Assertions.assertTrue(cached <= 10_000);
+    }
+
+    @Test
+    public void testRebuildClearsMasks() {
+        final RoleIndex index = index();
+        final Member m = member(6, List.of(role(OTHER)));
+        Assertions.assertFalse(index.hasAdminRole(m));
+        index.rebuild(new String[]{String.valueOf(OTHER)}, new String[0]);
+        Assertions.assertTrue(index.hasAdminRole(m));
+        Assertions.assertFalse(index.hasRequiredRole(m));
+    }
+}
@@ -0,0 +1,139 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.util.ComponentUtils;
+import de.erdbeerbaerlp.dcintegration.common.util.UrlTokenizer;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tests for the URL scanner used to make links clickable ingame
+ */
+public class UrlTokenizerTests {
+    /**
+     * Regex previously used by {@link ComponentUtils#makeURLsClickable(Component)}
+     */
+    private static final Pattern OLD_URL_PATTERN = Pattern.compile(
+            "((?:[a-z0-9]{2,}:\\/\\/)?(?:(?:[0-9]{1,3}\\.){3}[0-9]{1,3}|(?:[-\\w_]{1,}\\.[a-z]{2,}?))(?::[0-9]{1,5})?.*?(?=[!\"§ \n]|$))",
+            Pattern.CASE_INSENSITIVE);
+
+    private static int[] regexUrls(String text) {
+        final List<Integer> out = new ArrayList<>();
+        final Matcher m = OLD_URL_PATTERN.matcher(text);
+        while (m.find()) {
+            out.add(m.start());
+            out.add(m.end());
+        }
+        return out.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * @return URLs found by the old regex, without the ones exceeding {@link UrlTokenizer#MAX_URL_LENGTH}
+     */
+    private static int[] regexUrlsLimited(String text) {
+        final int[] all = regexUrls(text);
+        final List<Integer> out = new ArrayList<>();
+        for (int i = 0; i < all.length; i += 2) {
+            if (all[i + 1] - all[i] > UrlTokenizer.MAX_URL_LENGTH) continue;
+            out.add(all[i]);
+            out.add(all[i + 1]);
+        }
+        return out.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static List<String> urls(String text) {
+        final int[] found = UrlTokenizer.findUrls(text);
+        final List<String> out = new ArrayList<>();
+        for (int i = 0; i < found.length; i += 2)
+            out.add(text.substring(found[i], found[i + 1]));
+        return out;
+    }
+
+    @Test
+    public void testFindsUrls() {
+        Assertions.assertEquals(Arrays.asList("https://example.com/path?a=b"), urls("see https://example.com/path?a=b now"));
+        Assertions.assertEquals(Arrays.asList("example.com", "127.0.0.1:25565"), urls("example.com or 127.0.0.1:25565!"));
+        Assertions.assertEquals(Arrays.asList("github.com/foo)"), urls("(github.com/foo)"));
+        Assertions.assertEquals(Arrays.asList("https://x.io"), urls("foo_https://x.io"));
+        Assertions.assertTrue(urls("e.g. nothing here, 1.2.3 or a.b").isEmpty());
+        Assertions.assertTrue(urls("").isEmpty());
+    }
+
+    @Test
+    public void testLengthLimit() {
+        final StringBuilder longUrl = new StringBuilder("https://example.com/");
+        while (longUrl.length() <= UrlTokenizer.MAX_URL_LENGTH) longUrl.append('a');
+        Assertions.assertTrue(urls(longUrl.toString()).isEmpty());
+        Assertions.assertEquals(1, urls(longUrl.substring(0, UrlTokenizer.MAX_URL_LENGTH)).size());
+    }
+
+    @Test
+    public void testMatchesOldRegex() {
+        final String[] samples = {"visit www.minecraft.net today", "ftp://files.example.org/a.zip\nand http://10.0.0.1/x", "1234.5.6.7", "a-b_c.de§cmore",
+                "\"quoted.com\"", "mail@example.com", "ab://", "ab://cd", "x.yz!", "hello. world.", "https://a.b", "://x.com", "UPPER.CASE"};
+        for (String s : samples)
+            Assertions.assertArrayEquals(regexUrls(s), UrlTokenizer.findUrls(s), s);
+        // Random strings over an alphabet of interesting characters
+        final Random random = new Random(42);
+        final char[] alphabet = "ab1:/._- !\"§\n9Z".toCharArray();
+        for (int n = 0; n < 20000; n++) {
+            final char[] chars = new char[random.nextInt(30)];
+            for (int i = 0; i < chars.length; i++) chars[i] = alphabet[random.nextInt(alphabet.length)];
+            final String s = new String(chars);
+            Assertions.assertArrayEquals(regexUrls(s), UrlTokenizer.findUrls(s), s);
+        }
+    }
+
+    @Test
+    public void testMakeURLsClickable() {
+        final Component in = Component.text("Go to ", NamedTextColor.GRAY).append(Component.text("example.com or ")).append(Component.text("nothing"));
+        final Component out = ComponentUtils.makeURLsClickable(in);
+        Assertions.assertEquals(plainText(in), plainText(out));
+        final TextComponent url = (TextComponent) out.children().get(0).children().get(0);
+        Assertions.assertEquals("example.com", url.content());
+        Assertions.assertEquals(ClickEvent.openUrl("example.com"), url.clickEvent());
+        final Component plain = Component.text("no links");
+        Assertions.assertSame(plain, ComponentUtils.makeURLsClickable(plain));
+    }
+
+    private static String plainText(Component c) {
+        return LegacyComponentSerializer.legacySection().serialize(c).replaceAll("§.", "");
+    }
+
+    @Test
+    public void testPathologicalInputs() {
+        final String[] inputs = {"a".repeat(500), "-".repeat(500) + ".", "a.".repeat(1000), "1.".repeat(1000),
+                "ab://".repeat(400), ("lorem ipsum https://example.com/" + "x".repeat(50) + " ").repeat(20)};
+        for (String input : inputs)
+            Assertions.assertArrayEquals(regexUrlsLimited(input), UrlTokenizer.findUrls(input));
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void benchmarkPathologicalInputs() {
+        final String[] inputs = {"a".repeat(5000), "-".repeat(5000) + ".", "a.".repeat(10000), "1.".repeat(10000),
+                "ab://".repeat(4000), ("lorem ipsum https://example.com/" + "x".repeat(50) + " ").repeat(200)};
+        for (String input : inputs) {
+            long start = System.nanoTime();
+            final int[] regex = regexUrlsLimited(input);
+            final long regexNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            final int[] scanner = UrlTokenizer.findUrls(input);
+            final long scannerNanos = System.nanoTime() - start;
+            System.out.printf("URL scan of %s... (%d chars): regex %.2f ms, scanner %.2f ms%n", input.substring(0, 10).replace("\n", " "), input.length(), regexNanos / 1e6, scannerNanos / 1e6);
+            Assertions.assertArrayEquals(regex, scanner);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.util.WebhookStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+
+/**
+ * Tests for the persistent webhook cache
+ */
+public class WebhookStoreTests {
+    @TempDir
+    File dir;
+
+    @Test
+    public void testPersistsAcrossRestarts() {
+        final File file = new File(dir, ".WebhookCache");
+        final WebhookStore store = new WebhookStore(file);
+        store.load();
+        Assertions.assertNull(store.get(1));
+        store.put(1, new WebhookStore.Handle(100, "token-a", "DC Integration"));
+        store.put(2, new WebhookStore.Handle(200, "token-b", "DC Integration"));
+        store.put(3, new WebhookStore.Handle(100, "token-a", "DC Integration"));
+
+        final WebhookStore restarted = new WebhookStore(file);
+        restarted.load();
+        Assertions.assertEquals(3, restarted.getAll().size());
+        Assertions.assertEquals("token-b", restarted.get(2).token);
+        Assertions.assertEquals(100, restarted.get(1).id);
+
+        // A deleted webhook gets removed from every channel using it
+        restarted.removeWebhook(100);
+        final WebhookStore again = new WebhookStore(file);
+        again.load();
+        Assertions.assertNull(again.get(1));
+        Assertions.assertNull(again.get(3));
+        Assertions.assertEquals(200, again.get(2).id);
+    }
+
+    @Test
+    public void testInvalidFile() throws IOException {
+        final File file = new File(dir, ".WebhookCache");
+        Files.writeString(file.toPath(), "{\"1\": {\"id\": 5, \"token\": \"t\", \"name\": \"n\"}, \"2\": {\"id\": \"broken\"}}");
+        final WebhookStore store = new WebhookStore(file);
+        store.load();
+        Assertions.assertEquals(5, store.get(1).id);
+        Assertions.assertNull(store.get(2));
+
+        Files.writeString(file.toPath(), "not json");
+        store.load();
+        Assertions.assertTrue(store.getAll().isEmpty());
+    }
+
+    @Test
+    public void testRetainChannels() {
+        final File file = new File(dir, ".WebhookCache");
+        final WebhookStore store = new WebhookStore(file);
+        store.put(1, new WebhookStore.Handle(100, "token-a", "DC Integration"));
+        store.put(2, new WebhookStore.Handle(200, "token-b", "DC Integration"));
+        Assertions.assertEquals(1, store.retainChannels((id) -> id == 2));
+        Assertions.assertEquals(0, store.retainChannels((id) -> id == 2));
+        final WebhookStore restarted = new WebhookStore(file);
+        restarted.load();
+        Assertions.assertNull(restarted.get(1));
+        Assertions.assertEquals(200, restarted.get(2).id);
+    }
+
+    @Test
+    public void testFileIsPrivate() throws IOException {
+        Assumptions.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        final File file = new File(dir, ".WebhookCache");
+        new WebhookStore(file).put(1, new WebhookStore.Handle(100, "token-a", "DC Integration"));
+        Assertions.assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file.toPath())));
+    }
+
+    @Test
+    public void testUnknownWebhook() {
+        Assertions.assertTrue(WebhookStore.isUnknownWebhook("{\"message\": \"Unknown Webhook\", \"code\": 10015}"));
+        // Deleted thread
+        Assertions.assertFalse(WebhookStore.isUnknownWebhook("{\"message\": \"Unknown Channel\", \"code\": 10003}"));
+        Assertions.assertFalse(WebhookStore.isUnknownWebhook("404 page not found"));
+        Assertions.assertFalse(WebhookStore.isUnknownWebhook(null));
+    }
+}
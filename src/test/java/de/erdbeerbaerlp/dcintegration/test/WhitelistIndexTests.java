@@ -0,0 +1,156 @@
+package de.erdbeerbaerlp.dcintegration.test;
+
+import de.erdbeerbaerlp.dcintegration.common.storage.linking.PlayerLink;
+import de.erdbeerbaerlp.dcintegration.common.storage.linking.PlayerSettings;
+import de.erdbeerbaerlp.dcintegration.common.util.WhitelistIndex;
+import net.dv8tion.jda.api.entities.Member;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Tests for the whitelist eligibility set
+ */
+public class WhitelistIndexTests {
+    private final List<PlayerLink> links = new ArrayList<>();
+    private final Map<Long, Member> members = new HashMap<>();
+    private final Set<Long> withRole = new HashSet<>();
+    private final Set<Long> failing = new HashSet<>();
+    private boolean rolesRequired = true, discordDown = false;
+
+    private final WhitelistIndex index = new WhitelistIndex(() -> links,
+            (id) -> discordDown || failing.contains(id) ? CompletableFuture.failedFuture(new RuntimeException("offline")) : CompletableFuture.completedFuture(members.get(id)),
+            (m) -> withRole.contains(m.getIdLong()), () -> rolesRequired);
+
+    private PlayerLink link(long discordID, boolean member, boolean role) {
+        final PlayerLink link = new PlayerLink(String.valueOf(discordID), UUID.randomUUID().toString(), "", new PlayerSettings());
+        links.add(link);
+        if (member) {
+            final Member m = Mockito.mock(Member.class);
+            Mockito.when(m.getIdLong()).thenReturn(discordID);
+            Mockito.when(m.getId()).thenReturn(String.valueOf(discordID));
+            members.put(discordID, m);
+        }
+        if (role) withRole.add(discordID);
+        return link;
+    }
+
+    private static UUID uuid(PlayerLink link) {
+        return UUID.fromString(link.mcPlayerUUID);
+    }
+
+    @Test
+    public void testReconcile() {
+        final PlayerLink ok = link(1, true, true), noRole = link(2, true, false), left = link(3, false, true);
+        Assertions.assertFalse(index.isReady());
+        index.reconcile().join();
+        Assertions.assertTrue(index.isReady());
+        Assertions.assertTrue(index.isEligible(uuid(ok)));
+        Assertions.assertFalse(index.isEligible(uuid(noRole)));
+        Assertions.assertFalse(index.isEligible(uuid(left)));
+
+        // Everyone linked may join without required roles
+        rolesRequired = false;
+        index.reconcile().join();
+        Assertions.assertTrue(index.isEligible(uuid(noRole)));
+        Assertions.assertTrue(index.isEligible(uuid(left)));
+    }
+
+    @Test
+    public void testEvents() {
+        index.reconcile().join();
+        final PlayerLink link = link(4, true, false);
+        index.linked(link).join();
+        Assertions.assertFalse(index.isEligible(uuid(link)));
+
+        withRole.add(4L);
+        index.memberChanged(members.get(4L));
+        Assertions.assertTrue(index.isEligible(uuid(link)));
+
+        index.memberLeft(4);
+        Assertions.assertFalse(index.isEligible(uuid(link)));
+        index.memberChanged(members.get(4L));
+        Assertions.assertTrue(index.isEligible(uuid(link)));
+
+        links.remove(link);
+        index.unlinked(link);
+        Assertions.assertFalse(index.isEligible(uuid(link)));
+    }
+
+    @Test
+    public void testReconcileFixesDrift() {
+        final PlayerLink link = link(5, true, true);
+        index.reconcile().join();
+        Assertions.assertTrue(index.isEligible(uuid(link)));
+        // Role removal event got lost
+        withRole.remove(5L);
+        Assertions.assertTrue(index.isEligible(uuid(link)));
+        index.reconcile().join();
+        Assertions.assertFalse(index.isEligible(uuid(link)));
+    }
+
+    @Test
+    public void testFailedLookupKeepsSet() {
+        final PlayerLink link = link(6, true, true);
+        index.reconcile().join();
+        withRole.remove(6L);
+        discordDown = true;
+        index.reconcile().join();
+        Assertions.assertTrue(index.isEligible(uuid(link)));
+    }
+
+    @Test
+    public void testFailedLookupOnlyKeepsItsLink() {
+        final PlayerLink stale = link(7, true, true), changed = link(8, true, true);
+        index.reconcile().join();
+        withRole.remove(7L);
+        withRole.remove(8L);
+        failing.add(7L);
+        index.reconcile().join();
+        Assertions.assertTrue(index.isEligible(uuid(stale)));
+        Assertions.assertFalse(index.isEligible(uuid(changed)));
+    }
+
+    @Test
+    public void testNotReadyUntilLookupsSucceed() {
+        final PlayerLink ok = link(9, true, true), unknown = link(10, true, true);
+        failing.add(10L);
+        Assertions.assertFalse(index.isStarted());
+        index.reconcile().join();
+        Assertions.assertTrue(index.isStarted());
+        Assertions.assertFalse(index.isReady());
+        Assertions.assertTrue(index.isEligible(uuid(ok)));
+        Assertions.assertFalse(index.isEligible(uuid(unknown)));
+        failing.clear();
+        index.reconcile().join();
+        Assertions.assertTrue(index.isReady());
+        Assertions.assertTrue(index.isEligible(uuid(unknown)));
+    }
+
+    @Test
+    public void testBatchedLookups() {
+        final List<Integer> batchSizes = new ArrayList<>();
+        final WhitelistIndex batched = new WhitelistIndex(() -> links, (id) -> null, (id) -> {
+            throw new AssertionError("Reconciliation should not look up single members");
+        }, (ids) -> {
+            batchSizes.add(ids.length);
+            final List<Member> found = new ArrayList<>();
+            for (final long id : ids)
+                if (members.containsKey(id)) found.add(members.get(id));
+            return CompletableFuture.completedFuture(found);
+        }, (m) -> withRole.contains(m.getIdLong()), () -> rolesRequired);
+        final List<PlayerLink> eligible = new ArrayList<>();
+        for (long id = 1; id <= 250; id++) {
+            final PlayerLink l = link(id, id % 2 == 0, true);
+            if (id % 2 == 0) eligible.add(l);
+        }
+        batched.reconcile().join();
+        Assertions.assertEquals(List.of(100, 100, 50), batchSizes);
+        Assertions.assertTrue(batched.isReady());
+        for (final PlayerLink l : links)
+            Assertions.assertEquals(eligible.contains(l), batched.isEligible(uuid(l)));
+    }
+}